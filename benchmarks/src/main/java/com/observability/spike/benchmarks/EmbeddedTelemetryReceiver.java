@@ -0,0 +1,215 @@
+package com.observability.spike.benchmarks;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * In-process receiver for the span exporters under comparison, on one port:
+ * <ul>
+ *   <li>OTLP/gRPC ({@code TraceService/Export}, {@code MetricsService/Export}) over h2c</li>
+ *   <li>OTLP/HTTP protobuf ({@code /v1/traces}, {@code /v1/metrics})</li>
+ *   <li>Application Insights track ({@code /v2.1/track}), as used by the Azure Monitor exporter</li>
+ * </ul>
+ * It counts request bodies as they arrive (compressed, i.e. the bytes on the wire less HTTP
+ * headers and framing) and the spans they carry, which are decoded from the protobuf (or counted
+ * per JSON line for Application Insights) to check that every span arrived.
+ */
+final class EmbeddedTelemetryReceiver implements AutoCloseable {
+
+    private static final String GRPC_TRACES = "/opentelemetry.proto.collector.trace.v1.TraceService/Export";
+    private static final String GRPC_METRICS = "/opentelemetry.proto.collector.metrics.v1.MetricsService/Export";
+    // Empty Export*ServiceResponse in a gRPC frame: not compressed, zero length
+    private static final byte[] EMPTY_GRPC_MESSAGE = new byte[5];
+    // Receiver threads are named after this so their CPU can be told apart from the exporters'
+    static final String THREAD_PREFIX = "telemetry-receiver";
+
+    private final LoopResources loops = LoopResources.create(THREAD_PREFIX, 2, true);
+    private final DisposableServer server;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bodyBytes = new LongAdder();
+    private final LongAdder spans = new LongAdder();
+
+    EmbeddedTelemetryReceiver() {
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .runOn(loops)
+                // gRPC clients connect with HTTP/2 prior knowledge; OTLP/HTTP and the Azure exporter use HTTP/1.1
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .route(routes -> routes
+                        .post(GRPC_TRACES, (request, response) -> grpc(request, response, true))
+                        .post(GRPC_METRICS, (request, response) -> grpc(request, response, false))
+                        .post("/v1/traces", (request, response) -> otlpHttp(request, response, true))
+                        .post("/v1/metrics", (request, response) -> otlpHttp(request, response, false))
+                        .post("/v2.1/track", this::track)
+                        .post("/v2/track", this::track))
+                .bindNow();
+    }
+
+    String endpoint() {
+        return "http://localhost:" + server.port();
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    long bodyBytes() {
+        return bodyBytes.sum();
+    }
+
+    long spans() {
+        return spans.sum();
+    }
+
+    void reset() {
+        requests.reset();
+        bodyBytes.reset();
+        spans.reset();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        loops.dispose();
+    }
+
+    private Mono<Void> grpc(HttpServerRequest request, HttpServerResponse response, boolean traces) {
+        return request.receive().aggregate().asByteArray().defaultIfEmpty(new byte[0]).flatMap(body -> {
+            receive(body.length);
+            // Length-prefixed message: compressed flag, 4-byte length, message
+            if (traces && body.length >= 5) {
+                byte[] message = new byte[body.length - 5];
+                System.arraycopy(body, 5, message, 0, message.length);
+                spans.add(countSpans(body[0] == 1 ? gunzip(message) : message));
+            }
+            // grpc-status belongs in the trailers; the OkHttp sender also accepts it as a header
+            return response.header("Content-Type", "application/grpc")
+                    .header("grpc-status", "0")
+                    .sendByteArray(Mono.just(EMPTY_GRPC_MESSAGE))
+                    .then();
+        });
+    }
+
+    private Mono<Void> otlpHttp(HttpServerRequest request, HttpServerResponse response, boolean traces) {
+        return request.receive().aggregate().asByteArray().defaultIfEmpty(new byte[0]).flatMap(body -> {
+            receive(body.length);
+            if (traces) {
+                spans.add(countSpans(isGzip(request) ? gunzip(body) : body));
+            }
+            return response.header("Content-Type", "application/x-protobuf").send().then();
+        });
+    }
+
+    private Mono<Void> track(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().aggregate().asByteArray().defaultIfEmpty(new byte[0]).flatMap(body -> {
+            receive(body.length);
+            String payload = new String(isGzip(request) ? gunzip(body) : body, StandardCharsets.UTF_8);
+            int items = 0;
+            for (String line : payload.split("\n")) {
+                if (line.contains("\"RemoteDependencyData\"") || line.contains("\"RequestData\"")) {
+                    items++;
+                }
+            }
+            spans.add(items);
+            String accepted = "{\"itemsReceived\":" + items + ",\"itemsAccepted\":" + items + ",\"errors\":[]}";
+            return response.status(HttpResponseStatus.OK)
+                    .header("Content-Type", "application/json")
+                    .sendString(Mono.just(accepted))
+                    .then();
+        });
+    }
+
+    private void receive(int bytes) {
+        requests.increment();
+        bodyBytes.add(bytes);
+    }
+
+    private static boolean isGzip(HttpServerRequest request) {
+        return "gzip".equalsIgnoreCase(request.requestHeaders().get("Content-Encoding"));
+    }
+
+    private static byte[] gunzip(byte[] body) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ExportTraceServiceRequest: resource_spans (1) > scope_spans (2) > spans (2)
+    private static int countSpans(byte[] request) {
+        int count = 0;
+        for (Field resourceSpans : new Fields(request, 0, request.length)) {
+            if (resourceSpans.number == 1) {
+                for (Field scopeSpans : new Fields(request, resourceSpans.offset, resourceSpans.end)) {
+                    if (scopeSpans.number == 2) {
+                        for (Field span : new Fields(request, scopeSpans.offset, scopeSpans.end)) {
+                            if (span.number == 2) {
+                                count++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private record Field(int number, int offset, int end) {
+    }
+
+    /** The length-delimited fields of one protobuf message; other wire types are skipped. */
+    private record Fields(byte[] buffer, int start, int end) implements Iterable<Field> {
+
+        @Override
+        public Iterator<Field> iterator() {
+            List<Field> fields = new ArrayList<>();
+            int[] position = {start};
+            while (position[0] < end) {
+                long tag = varint(position);
+                int wireType = (int) (tag & 7);
+                switch (wireType) {
+                    case 0 -> varint(position);
+                    case 1 -> position[0] += 8;
+                    case 2 -> {
+                        int length = (int) varint(position);
+                        fields.add(new Field((int) (tag >>> 3), position[0], position[0] + length));
+                        position[0] += length;
+                    }
+                    case 5 -> position[0] += 4;
+                    default -> throw new IllegalStateException("Unexpected protobuf wire type " + wireType);
+                }
+            }
+            return fields.iterator();
+        }
+
+        private long varint(int[] position) {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer[position[0]++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.observability.spike.benchmarks;
+
+import com.azure.monitor.opentelemetry.exporter.AzureMonitorExporterBuilder;
+import com.observability.spike.order.config.MetricCardinalityProperties;
+import com.observability.spike.order.config.OtlpExporters;
+import com.observability.spike.order.config.TelemetryExportProperties;
+import com.observability.spike.order.service.OpenTelemetryService;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the same order-service spans through the Azure Monitor exporter and the OTLP exporters
+ * (gRPC and HTTP/protobuf, gzip and uncompressed) into an {@link EmbeddedTelemetryReceiver}, and
+ * reports request body bytes and exporter CPU per 1,000 spans. CPU is summed over every thread
+ * except the receiver's, so it covers serialization, compression and the client I/O threads.
+ *
+ * <p>Options: {@code --spans=50000 --batch-size=512 --warmup-spans=20000 --output=target/exporter-comparison.md
+ * --exporters=azure,otlp-grpc-gzip,otlp-grpc-none,otlp-http-gzip,otlp-http-none}
+ */
+public class ExporterComparison {
+
+    private static final String AZURE = "azure";
+    private static final String CONFIGURATIONS = AZURE + ",otlp-grpc-gzip,otlp-grpc-none,otlp-http-gzip,otlp-http-none";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        int spanCount = Integer.parseInt(options.getOrDefault("spans", "50000"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch-size", "512"));
+        int warmupSpans = Integer.parseInt(options.getOrDefault("warmup-spans", "20000"));
+        List<String> configurations = List.of(options.getOrDefault("exporters", CONFIGURATIONS).split(","));
+        Path output = Path.of(options.getOrDefault("output", "target/exporter-comparison.md"));
+
+        List<SpanData> spans = orderSpans(spanCount);
+        List<SpanData> warmup = orderSpans(warmupSpans);
+        StringBuilder report = new StringBuilder()
+                .append("| exporter | spans received | requests | bytes / 1k spans | CPU ms / 1k spans |\n")
+                .append("|---|---:|---:|---:|---:|\n");
+
+        try (EmbeddedTelemetryReceiver receiver = new EmbeddedTelemetryReceiver()) {
+            for (String configuration : configurations) {
+                SpanExporter exporter = exporter(configuration, receiver.endpoint());
+                try {
+                    export(exporter, warmup, batchSize);
+                    awaitSpans(receiver, warmup.size());
+                    receiver.reset();
+
+                    Map<Long, Long> cpuBefore = exporterThreadCpu();
+                    export(exporter, spans, batchSize);
+                    awaitSpans(receiver, spans.size());
+                    long cpuNanos = cpuSince(cpuBefore);
+
+                    double thousands = spans.size() / 1000.0;
+                    report.append(String.format("| %s | %d | %d | %.0f | %.2f |%n", configuration, receiver.spans(),
+                            receiver.requests(), receiver.bodyBytes() / thousands, cpuNanos / 1e6 / thousands));
+                } finally {
+                    exporter.shutdown().join(10, TimeUnit.SECONDS);
+                    receiver.reset();
+                }
+            }
+        }
+
+        System.out.print(report);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.writeString(output, report);
+        System.out.println("Written to " + output);
+    }
+
+    static SpanExporter exporter(String configuration, String endpoint) {
+        if (AZURE.equals(configuration)) {
+            return new AzureMonitorExporterBuilder()
+                    .connectionString("InstrumentationKey=00000000-0000-0000-0000-000000000000;IngestionEndpoint="
+                            + endpoint + "/")
+                    .buildTraceExporter();
+        }
+        // otlp-<protocol>-<compression>
+        String[] parts = configuration.split("-");
+        TelemetryExportProperties.Otlp otlp = new TelemetryExportProperties().getOtlp();
+        otlp.setProtocol("grpc".equals(parts[1]) ? OtlpExporters.GRPC : OtlpExporters.HTTP_PROTOBUF);
+        otlp.setCompression(parts[2]);
+        otlp.setEndpoint(endpoint);
+        return OtlpExporters.spanExporter(otlp);
+    }
+
+    static void export(SpanExporter exporter, List<SpanData> spans, int batchSize) {
+        for (int from = 0; from < spans.size(); from += batchSize) {
+            CompletableResultCode result = exporter.export(spans.subList(from, Math.min(spans.size(), from + batchSize)))
+                    .join(30, TimeUnit.SECONDS);
+            if (!result.isSuccess()) {
+                throw new IllegalStateException("Export failed");
+            }
+        }
+    }
+
+    static void awaitSpans(EmbeddedTelemetryReceiver receiver, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (receiver.spans() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    // order.processing and customer.enrichment spans as OrderService records them, half with events
+    static List<SpanData> orderSpans(int count) {
+        List<SpanData> spans = new ArrayList<>(count);
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().toBuilder()
+                        .put(AttributeKey.stringKey("service.name"), "order-service")
+                        .put(AttributeKey.stringKey("service.version"), "1.0.0")
+                        .put(AttributeKey.stringKey("deployment.environment"), "development")
+                        .build())
+                .addSpanProcessor(SimpleSpanProcessor.create(new CollectingSpanExporter(spans)))
+                .build();
+        OpenTelemetryService service = new OpenTelemetryService(tracerProvider.get("order-service"),
+                SdkMeterProvider.builder().build().get("order-service"), new MetricCardinalityProperties());
+
+        for (int i = 0; spans.size() < count; i++) {
+            String orderId = "ORD-" + (1000 + i % 500);
+            Span order = service.startOrderProcessingSpan(orderId, Context.root());
+            Span enrichment = service.startCustomerEnrichmentSpan(orderId, String.valueOf(100 + i % 50), Context.root().with(order));
+            if (i % 2 == 0) {
+                service.addSpanEvent(enrichment, "customer.enrichment.success", OpenTelemetryService.DURATION_MS, 12L);
+            }
+            enrichment.end();
+            order.end();
+        }
+        tracerProvider.shutdown();
+        return spans.subList(0, count);
+    }
+
+    private static Map<Long, Long> exporterThreadCpu() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Map<Long, Long> cpu = new HashMap<>();
+        for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (thread != null && !thread.getThreadName().startsWith(EmbeddedTelemetryReceiver.THREAD_PREFIX)) {
+                long nanos = threads.getThreadCpuTime(thread.getThreadId());
+                if (nanos >= 0) {
+                    cpu.put(thread.getThreadId(), nanos);
+                }
+            }
+        }
+        return cpu;
+    }
+
+    // Threads that ended in between are missed; exporter client threads are long-lived
+    private static long cpuSince(Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> thread : exporterThreadCpu().entrySet()) {
+            total += thread.getValue() - before.getOrDefault(thread.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private record CollectingSpanExporter(List<SpanData> spans) implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> batch) {
+            spans.addAll(batch);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+
+    static {
+        // The Azure exporter's statsbeat would add its own requests to the receiver's counts
+        System.setProperty("APPLICATIONINSIGHTS_STATSBEAT_DISABLED", "true");
+    }
+}
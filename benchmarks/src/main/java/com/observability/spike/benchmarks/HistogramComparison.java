@@ -0,0 +1,291 @@
+package com.observability.spike.benchmarks;
+
+import com.observability.spike.order.config.MetricViewProperties;
+import com.observability.spike.order.config.MetricViews;
+import com.observability.spike.order.config.OtlpExporters;
+import com.observability.spike.order.config.TelemetryExportProperties;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.SdkMeterProviderBuilder;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.ExponentialHistogramBuckets;
+import io.opentelemetry.sdk.metrics.data.ExponentialHistogramPointData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.AggregationTemporalitySelector;
+import io.opentelemetry.sdk.metrics.export.CollectionRegistration;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Percentile accuracy and export size of the {@code telemetry.metrics.views} histogram
+ * aggregations. Accuracy: samples from known latency distributions are recorded into one histogram
+ * per aggregation, and percentiles interpolated from its buckets are compared with the exact
+ * percentiles of the samples. Export size: OTLP/HTTP bytes of the second of two exports when all
+ * series see data in the first interval and a few in the second, per aggregation and temporality.
+ *
+ * <p>Options: {@code --samples=100000 --series=40 --active-series=4 --output=target/histogram-comparison.md}
+ */
+public class HistogramComparison {
+
+    static final String UNIFORM = "uniform 1-300 ms";
+    static final String LOG_NORMAL = "log-normal, median 20 ms";
+    static final String BIMODAL = "bimodal 8 ms / 250 ms (90/10)";
+    static final String EXPLICIT = "explicit (SDK default buckets)";
+    static final String EXPONENTIAL_160 = "base2-exponential, 160 buckets";
+    static final String EXPONENTIAL_40 = "base2-exponential, 40 buckets";
+    static final List<String> DISTRIBUTIONS = List.of(UNIFORM, LOG_NORMAL, BIMODAL);
+    static final List<String> AGGREGATIONS = List.of(EXPLICIT, EXPONENTIAL_160, EXPONENTIAL_40);
+
+    private static final double[] PERCENTILES = {0.50, 0.90, 0.99, 0.999};
+    private static final AttributeKey<String> ENDPOINT = AttributeKey.stringKey("endpoint");
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        int samples = Integer.parseInt(options.getOrDefault("samples", "100000"));
+        int series = Integer.parseInt(options.getOrDefault("series", "40"));
+        int activeSeries = Integer.parseInt(options.getOrDefault("active-series", "4"));
+        Path output = Path.of(options.getOrDefault("output", "target/histogram-comparison.md"));
+
+        StringBuilder report = new StringBuilder("## Percentile accuracy (ms, relative error)\n\n")
+                .append("| distribution | aggregation | p50 | p90 | p99 | p99.9 |\n")
+                .append("|---|---|---:|---:|---:|---:|\n");
+        Random random = new Random(42);
+        for (String distribution : DISTRIBUTIONS) {
+            double[] values = samples(distribution, samples, random);
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            report.append("| ").append(distribution).append(" | exact |");
+            for (double percentile : PERCENTILES) {
+                report.append(String.format(" %.2f |", exact(sorted, percentile)));
+            }
+            report.append('\n');
+            for (String aggregation : AGGREGATIONS) {
+                MetricData data = recordAll(view(aggregation), values);
+                report.append("| ").append(distribution).append(" | ").append(aggregation).append(" |");
+                for (double percentile : PERCENTILES) {
+                    report.append(String.format(" %.2f (%.1f%%) |", estimate(data, percentile),
+                            100 * relativeError(data, sorted, percentile)));
+                }
+                report.append('\n');
+            }
+        }
+
+        report.append("\n## Export size (second export, ").append(series).append(" series, ")
+                .append(activeSeries).append(" active in the second interval)\n\n")
+                .append("| aggregation | temporality | points | bytes (none) | bytes (gzip) |\n")
+                .append("|---|---|---:|---:|---:|\n");
+        try (EmbeddedTelemetryReceiver receiver = new EmbeddedTelemetryReceiver()) {
+            for (String aggregation : AGGREGATIONS) {
+                for (String temporality : List.of("cumulative", "delta")) {
+                    long[] plain = exportSize(view(aggregation), temporality, "none", series, activeSeries, receiver);
+                    long[] gzip = exportSize(view(aggregation), temporality, "gzip", series, activeSeries, receiver);
+                    report.append(String.format("| %s | %s | %d | %d | %d |%n", aggregation, temporality,
+                            plain[0], plain[1], gzip[1]));
+                }
+            }
+        }
+
+        System.out.print(report);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.writeString(output, report);
+        System.out.println("Written to " + output);
+    }
+
+    static MetricViewProperties.View view(String aggregation) {
+        return switch (aggregation) {
+            case EXPLICIT -> view(MetricViews.EXPLICIT, 0);
+            case EXPONENTIAL_160 -> view(MetricViews.BASE2_EXPONENTIAL, 160);
+            case EXPONENTIAL_40 -> view(MetricViews.BASE2_EXPONENTIAL, 40);
+            default -> throw new IllegalArgumentException("Unknown aggregation " + aggregation);
+        };
+    }
+
+    static double[] samples(String distribution, int count, Random random) {
+        DoubleSupplier sample = switch (distribution) {
+            case UNIFORM -> () -> 1 + random.nextDouble() * 299;
+            case LOG_NORMAL -> () -> 20 * Math.exp(random.nextGaussian());
+            case BIMODAL -> () -> random.nextDouble() < 0.9
+                    ? Math.max(0.1, 8 + 2 * random.nextGaussian())
+                    : Math.max(0.1, 250 + 30 * random.nextGaussian());
+            default -> throw new IllegalArgumentException("Unknown distribution " + distribution);
+        };
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = sample.getAsDouble();
+        }
+        return values;
+    }
+
+    // Relative error of the percentile estimated from the buckets against the exact one of the sorted samples
+    static double relativeError(MetricData data, double[] sorted, double percentile) {
+        double exact = exact(sorted, percentile);
+        return Math.abs(estimate(data, percentile) - exact) / exact;
+    }
+
+    private static MetricViewProperties.View view(String aggregation, int maxBuckets) {
+        MetricViewProperties.View view = new MetricViewProperties.View();
+        view.setInstrument("latency");
+        view.setAggregation(aggregation);
+        if (maxBuckets > 0) {
+            view.setMaxBuckets(maxBuckets);
+        }
+        return view;
+    }
+
+    private static SdkMeterProviderBuilder meterProvider(MetricViewProperties.View view) {
+        MetricViewProperties properties = new MetricViewProperties();
+        properties.setViews(List.of(view));
+        SdkMeterProviderBuilder builder = SdkMeterProvider.builder();
+        MetricViews.register(builder, properties, true);
+        return builder;
+    }
+
+    static MetricData recordAll(MetricViewProperties.View view, double[] values) {
+        PullReader reader = new PullReader(AggregationTemporalitySelector.alwaysCumulative());
+        try (SdkMeterProvider provider = meterProvider(view).registerMetricReader(reader).build()) {
+            DoubleHistogram histogram = provider.get("histogram-comparison").histogramBuilder("latency").setUnit("ms").build();
+            for (double value : values) {
+                histogram.record(value);
+            }
+            return reader.registration.collectAllMetrics().iterator().next();
+        }
+    }
+
+    // Points and body bytes of the second export. Collected and exported directly rather than through a
+    // PeriodicMetricReader, whose flush can report completion before the exporter takes the next batch
+    static long[] exportSize(MetricViewProperties.View view, String temporality, String compression,
+                                     int series, int activeSeries, EmbeddedTelemetryReceiver receiver) {
+        TelemetryExportProperties.Otlp otlp = new TelemetryExportProperties().getOtlp();
+        otlp.setProtocol(OtlpExporters.HTTP_PROTOBUF);
+        otlp.setEndpoint(receiver.endpoint());
+        otlp.setCompression(compression);
+        otlp.setTemporality(temporality);
+        MetricExporter exporter = OtlpExporters.metricExporter(otlp);
+        PullReader reader = new PullReader(exporter::getAggregationTemporality);
+        try (SdkMeterProvider provider = meterProvider(view).registerMetricReader(reader).build()) {
+            DoubleHistogram histogram = provider.get("histogram-comparison").histogramBuilder("latency").setUnit("ms").build();
+            Random random = new Random(7);
+            record(histogram, series, random);
+            exporter.export(reader.registration.collectAllMetrics()).join(10, TimeUnit.SECONDS);
+            receiver.reset();
+            record(histogram, activeSeries, random);
+            Collection<MetricData> metrics = reader.registration.collectAllMetrics();
+            exporter.export(metrics).join(10, TimeUnit.SECONDS);
+            long points = metrics.stream().mapToLong(metric -> metric.getData().getPoints().size()).sum();
+            return new long[] {points, receiver.bodyBytes()};
+        } finally {
+            exporter.shutdown().join(10, TimeUnit.SECONDS);
+            receiver.reset();
+        }
+    }
+
+    private static void record(DoubleHistogram histogram, int series, Random random) {
+        for (int s = 0; s < series; s++) {
+            Attributes attributes = Attributes.of(ENDPOINT, "endpoint-" + (s / 2), OUTCOME, s % 2 == 0 ? "success" : "failure");
+            for (int i = 0; i < 1000; i++) {
+                histogram.record(20 * Math.exp(random.nextGaussian()), attributes);
+            }
+        }
+    }
+
+    static double exact(double[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    // Linear interpolation inside the bucket holding the rank, clamped to the recorded min and max
+    static double estimate(MetricData data, double percentile) {
+        return switch (data.getType()) {
+            case HISTOGRAM -> {
+                HistogramPointData point = data.getHistogramData().getPoints().iterator().next();
+                List<Double> bounds = point.getBoundaries();
+                List<Long> counts = point.getCounts();
+                double rank = percentile * point.getCount();
+                long seen = 0;
+                for (int i = 0; i < counts.size(); i++) {
+                    long count = counts.get(i);
+                    if (count > 0 && seen + count >= rank) {
+                        double lower = Math.max(point.getMin(), i == 0 ? point.getMin() : bounds.get(i - 1));
+                        double upper = Math.min(point.getMax(), i == bounds.size() ? point.getMax() : bounds.get(i));
+                        yield lower + (upper - lower) * (rank - seen) / count;
+                    }
+                    seen += count;
+                }
+                yield point.getMax();
+            }
+            case EXPONENTIAL_HISTOGRAM -> {
+                ExponentialHistogramPointData point = data.getExponentialHistogramData().getPoints().iterator().next();
+                ExponentialHistogramBuckets buckets = point.getPositiveBuckets();
+                double base = Math.pow(2, Math.pow(2, -point.getScale()));
+                double rank = percentile * point.getCount();
+                long seen = point.getZeroCount();
+                List<Long> counts = buckets.getBucketCounts();
+                for (int i = 0; i < counts.size(); i++) {
+                    long count = counts.get(i);
+                    if (count > 0 && seen + count >= rank) {
+                        int index = buckets.getOffset() + i;
+                        double lower = Math.max(point.getMin(), Math.pow(base, index));
+                        double upper = Math.min(point.getMax(), Math.pow(base, index + 1));
+                        yield lower + (upper - lower) * (rank - seen) / count;
+                    }
+                    seen += count;
+                }
+                yield point.getMax();
+            }
+            default -> throw new IllegalStateException("Not a histogram: " + data.getType());
+        };
+    }
+
+    private static final class PullReader implements MetricReader {
+
+        private final AggregationTemporalitySelector temporality;
+        private CollectionRegistration registration = CollectionRegistration.noop();
+
+        PullReader(AggregationTemporalitySelector temporality) {
+            this.temporality = temporality;
+        }
+
+        @Override
+        public void register(CollectionRegistration registration) {
+            this.registration = registration;
+        }
+
+        @Override
+        public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+            return temporality.getAggregationTemporality(instrumentType);
+        }
+
+        @Override
+        public CompletableResultCode forceFlush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.observability.spike.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.observability.spike.order.model.Customer;
+import com.observability.spike.order.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the order response and deserialization of the customer-service
+ * payload, using the mapper Spring MVC builds. No telemetry runs on this path, so it has no
+ * enabled/disabled parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Order order;
+    private byte[] customerJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        Customer customer = new Customer();
+        customer.setCustomerId("123");
+        customer.setFirstName("John");
+        customer.setLastName("Doe");
+        customer.setEmail("john.doe@example.com");
+        customer.setStatus("ACTIVE");
+        customer.setCreatedAt(LocalDateTime.of(2024, 1, 15, 10, 30));
+
+        order = new Order("ORD-001", "123", "Laptop Computer", 1, new BigDecimal("999.99"));
+        order.setCustomer(customer);
+        customerJson = objectMapper.writeValueAsBytes(customer);
+    }
+
+    @Benchmark
+    public byte[] serializeOrder() throws Exception {
+        return objectMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public Customer deserializeCustomer() throws Exception {
+        return objectMapper.readValue(customerJson, Customer.class);
+    }
+}
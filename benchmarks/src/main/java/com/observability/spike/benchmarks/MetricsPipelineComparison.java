@@ -0,0 +1,272 @@
+package com.observability.spike.benchmarks;
+
+import com.observability.spike.order.config.MetricCardinalityProperties;
+import com.observability.spike.order.config.OtlpExporters;
+import com.observability.spike.order.config.TelemetryExportProperties;
+import com.observability.spike.order.service.MetricsService;
+import com.observability.spike.order.service.OpenTelemetryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.FileDescriptorMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.instrumentation.micrometer.v1_5.OpenTelemetryMeterRegistry;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Heap held by meters and metric export payload for order-service's two metric pipelines:
+ * "separate" (Micrometer in its own registry next to the OTel SDK meter provider, the default) and
+ * "bridged" (Micrometer bridged into the SDK, as under the metrics-bridge profile). Both register
+ * the same meters (actuator JVM and process binders, {@code http.server.requests} timers,
+ * {@code MetricsService} and {@code OpenTelemetryService}) and record the same load.
+ *
+ * <p>Heap is the used heap after full GCs with a pipeline held, less the baseline without it
+ * (median of {@code --runs}). Payload is one OTLP/HTTP metrics export into the
+ * {@link EmbeddedTelemetryReceiver}. In separate mode, the Micrometer registry is exported by a
+ * second SDK of its own, standing in for the agent's separate Micrometer export.
+ *
+ * <p>Options: {@code --runs=5 --requests=50000 --output=target/metrics-pipeline-comparison.md}
+ */
+public class MetricsPipelineComparison {
+
+    private static final List<String> URIS = List.of("/api/orders/{orderId}", "/api/orders",
+            "/api/orders/reactive/{orderId}", "/actuator/health", "/actuator/traces");
+    private static final List<String> STATUSES = List.of("200", "404", "500", "503");
+    private static final List<String> ENDPOINTS = List.of("localhost:8081", "localhost:8082", "localhost:8083");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "50000"));
+        Path output = Path.of(options.getOrDefault("output", "target/metrics-pipeline-comparison.md"));
+
+        StringBuilder report = new StringBuilder()
+                .append("| pipeline | meters heap KiB | export requests | export bytes (none) | export bytes (gzip) |\n")
+                .append("|---|---:|---:|---:|---:|\n");
+        try (EmbeddedTelemetryReceiver receiver = new EmbeddedTelemetryReceiver()) {
+            for (boolean bridged : new boolean[] {false, true}) {
+                long heap = heapHeld(bridged, requests, runs);
+                long[] plain = exportPayload(bridged, requests, receiver, "none");
+                long[] gzip = exportPayload(bridged, requests, receiver, "gzip");
+                report.append(String.format("| %s | %d | %d | %d | %d |%n", bridged ? "bridged" : "separate",
+                        heap / 1024, plain[0], plain[1], gzip[1]));
+            }
+        }
+
+        System.out.print(report);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.writeString(output, report);
+        System.out.println("Written to " + output);
+    }
+
+    private static long heapHeld(boolean bridged, int requests, int runs) throws InterruptedException {
+        // One throwaway run, so class loading and JIT data are not counted
+        pipeline(bridged, null).record(requests).close();
+        long[] held = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long baseline = usedHeapAfterGc();
+            Pipeline pipeline = pipeline(bridged, null).record(requests);
+            held[i] = usedHeapAfterGc() - baseline;
+            pipeline.close();
+        }
+        Arrays.sort(held);
+        return held[runs / 2];
+    }
+
+    // Requests and body bytes of the second export, once every meter has data
+    private static long[] exportPayload(boolean bridged, int requests, EmbeddedTelemetryReceiver receiver,
+                                        String compression) {
+        TelemetryExportProperties.Otlp otlp = new TelemetryExportProperties().getOtlp();
+        otlp.setProtocol(OtlpExporters.HTTP_PROTOBUF);
+        otlp.setEndpoint(receiver.endpoint());
+        otlp.setCompression(compression);
+        Pipeline pipeline = pipeline(bridged, () -> OtlpExporters.metricExporter(otlp)).record(requests);
+        try {
+            pipeline.export();
+            receiver.reset();
+            pipeline.record(requests).export();
+            return new long[] {receiver.requests(), receiver.bodyBytes()};
+        } finally {
+            pipeline.close();
+            receiver.reset();
+        }
+    }
+
+    // Without an OTLP exporter (heap runs) the SDKs export to a discarding one, since they only
+    // aggregate with a reader, and separate mode's Micrometer registry is a SimpleMeterRegistry
+    private static Pipeline pipeline(boolean bridged, Supplier<MetricExporter> otlpExporter) {
+        Supplier<MetricExporter> exporter = otlpExporter != null ? otlpExporter : DiscardingMetricExporter::new;
+        List<PeriodicMetricReader> readers = new ArrayList<>();
+        OpenTelemetrySdk sdk = sdk(exporter, readers);
+        MeterRegistry registry;
+        List<OpenTelemetrySdk> sdks = new ArrayList<>(List.of(sdk));
+        if (bridged) {
+            registry = OpenTelemetryMeterRegistry.builder(sdk).build();
+        } else if (otlpExporter == null) {
+            registry = new SimpleMeterRegistry();
+        } else {
+            // The payload Micrometer itself would send, from a second pipeline with its own reader
+            OpenTelemetrySdk micrometerSdk = sdk(exporter, readers);
+            sdks.add(micrometerSdk);
+            registry = OpenTelemetryMeterRegistry.builder(micrometerSdk).build();
+        }
+        return new Pipeline(registry, sdk, sdks, readers);
+    }
+
+    private static OpenTelemetrySdk sdk(Supplier<MetricExporter> exporter, List<PeriodicMetricReader> readers) {
+        // Only exported on demand
+        PeriodicMetricReader reader = PeriodicMetricReader.builder(exporter.get())
+                .setInterval(Duration.ofHours(1))
+                .build();
+        readers.add(reader);
+        return OpenTelemetrySdk.builder()
+                .setMeterProvider(SdkMeterProvider.builder().registerMetricReader(reader).build())
+                .build();
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /** The meters order-service registers, on one Micrometer registry and one OTel SDK. */
+    private static final class Pipeline implements AutoCloseable {
+
+        private final MeterRegistry registry;
+        private final List<OpenTelemetrySdk> sdks;
+        private final List<PeriodicMetricReader> readers;
+        private final JvmGcMetrics gcMetrics = new JvmGcMetrics();
+        private final MetricsService metricsService;
+        private final OpenTelemetryService openTelemetryService;
+        private final List<Timer> httpServerRequests = new ArrayList<>();
+
+        Pipeline(MeterRegistry registry, OpenTelemetry openTelemetry, List<OpenTelemetrySdk> sdks,
+                 List<PeriodicMetricReader> readers) {
+            this.registry = registry;
+            this.sdks = sdks;
+            this.readers = readers;
+            // What actuator binds by default
+            new JvmMemoryMetrics().bindTo(registry);
+            gcMetrics.bindTo(registry);
+            new JvmThreadMetrics().bindTo(registry);
+            new ClassLoaderMetrics().bindTo(registry);
+            new ProcessorMetrics().bindTo(registry);
+            new UptimeMetrics().bindTo(registry);
+            new FileDescriptorMetrics().bindTo(registry);
+            for (String uri : URIS) {
+                for (String status : STATUSES) {
+                    httpServerRequests.add(Timer.builder("http.server.requests")
+                            .tag("method", "GET")
+                            .tag("uri", uri)
+                            .tag("status", status)
+                            .tag("outcome", status.startsWith("2") ? "SUCCESS" : status.startsWith("4") ? "CLIENT_ERROR" : "SERVER_ERROR")
+                            .tag("exception", "none")
+                            .tag("error", "none")
+                            .register(registry));
+                }
+            }
+            this.metricsService = new MetricsService(registry);
+            this.openTelemetryService = new OpenTelemetryService(openTelemetry.getTracer("order-service"),
+                    openTelemetry.getMeter("order-service"), new MetricCardinalityProperties());
+        }
+
+        Pipeline record(int requests) {
+            for (int i = 0; i < requests; i++) {
+                long nanos = TimeUnit.MILLISECONDS.toNanos(1 + i % 300);
+                httpServerRequests.get(i % httpServerRequests.size()).record(nanos, TimeUnit.NANOSECONDS);
+                String endpoint = ENDPOINTS.get(i % ENDPOINTS.size());
+                boolean success = i % 20 != 0;
+
+                metricsService.recordCustomerCacheHits(1);
+                metricsService.recordCustomerCacheLoad(nanos, success);
+                metricsService.recordCustomerEndpointCall(endpoint, nanos, success);
+                openTelemetryService.recordCustomerCacheHits(1);
+                openTelemetryService.recordCustomerCacheLoad(nanos / 1_000_000, success);
+                openTelemetryService.recordCustomerEndpointCall(endpoint, nanos / 1_000_000, success);
+                if (!success) {
+                    metricsService.recordCustomerCacheMisses(1);
+                    metricsService.recordCustomerHedge("sent");
+                    metricsService.recordDeadlineExceeded("in_flight");
+                    openTelemetryService.recordCustomerCacheMisses(1);
+                    openTelemetryService.recordCustomerHedge("sent");
+                    openTelemetryService.recordDeadlineExceeded("in_flight");
+                }
+            }
+            return this;
+        }
+
+        void export() {
+            for (PeriodicMetricReader reader : readers) {
+                reader.forceFlush().join(10, TimeUnit.SECONDS);
+            }
+        }
+
+        @Override
+        public void close() {
+            gcMetrics.close();
+            registry.close();
+            for (OpenTelemetrySdk sdk : sdks) {
+                sdk.getSdkMeterProvider().shutdown().join(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private static final class DiscardingMetricExporter implements MetricExporter {
+
+        @Override
+        public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+            return AggregationTemporality.CUMULATIVE;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<MetricData> metrics) {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.observability.spike.benchmarks;
+
+import com.observability.spike.order.service.MetricsService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer counters with a dynamic tag as {@link MetricsService} records them, against the
+ * register-on-every-call builder pattern they replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsServiceBenchmark {
+
+    @Param({"enabled", "disabled"})
+    public String telemetry;
+
+    private TelemetryFixture fixture;
+    private MetricsService metricsService;
+    private MeterRegistry meterRegistry;
+
+    @Setup
+    public void setUp() {
+        fixture = new TelemetryFixture(telemetry);
+        metricsService = fixture.metricsService();
+        meterRegistry = fixture.meterRegistry();
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void recordDeadlineExceeded() {
+        metricsService.recordDeadlineExceeded("in_flight");
+    }
+
+    @Benchmark
+    public void recordCustomerEndpointCall() {
+        metricsService.recordCustomerEndpointCall("localhost:8081", 12_000_000L, true);
+    }
+
+    // Baseline: builder and registry lookup on every increment
+    @Benchmark
+    public void builderRegistrationPerCall() {
+        Counter.builder("deadline.exceeded")
+                .tag("service", "order-service")
+                .tag("stage", "in_flight")
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,90 @@
+package com.observability.spike.benchmarks;
+
+import com.observability.spike.order.service.OpenTelemetryService;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Span lifecycle and metric recording through {@link OpenTelemetryService}, plus an ad hoc
+ * {@code Attributes.of} recording as the baseline the precomputed attribute sets replace. With
+ * telemetry enabled every span also goes through the span metrics processor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenTelemetryServiceBenchmark {
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+    // Preallocated so the benchmark measures the span, not building a stack trace
+    private static final IllegalArgumentException ORDER_NOT_FOUND = new IllegalArgumentException("Order not found");
+
+    @Param({"enabled", "disabled"})
+    public String telemetry;
+
+    private TelemetryFixture fixture;
+    private OpenTelemetryService openTelemetryService;
+
+    @Setup
+    public void setUp() {
+        fixture = new TelemetryFixture(telemetry);
+        openTelemetryService = fixture.openTelemetryService();
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void orderProcessingSpan() {
+        Span span = openTelemetryService.startOrderProcessingSpan("ORD-001");
+        openTelemetryService.setSpanSuccess(span);
+        span.end();
+    }
+
+    @Benchmark
+    public void customerEnrichmentSpanWithEvents() {
+        Span span = openTelemetryService.startCustomerEnrichmentSpan("ORD-001", "123");
+        openTelemetryService.addSpanEvent(span, "http.request.start", OpenTelemetryService.CUSTOMER_REQUEST_ATTRIBUTES);
+        openTelemetryService.addSpanEvent(span, "customer.enrichment.success", OpenTelemetryService.DURATION_MS, 12L);
+        span.end();
+    }
+
+    // Order outcome metrics are span.calls and span.duration, recorded by SpanMetricsProcessor on end
+    @Benchmark
+    public void orderProcessingFailureSpan() {
+        Span span = openTelemetryService.startOrderProcessingSpan("ORD-404");
+        openTelemetryService.setSpanError(span, ORDER_NOT_FOUND, "order_not_found");
+        span.end();
+    }
+
+    @Benchmark
+    public void recordCustomerEndpointCall() {
+        openTelemetryService.recordCustomerEndpointCall("localhost:8081", 12L, true);
+    }
+
+    // Baseline: the attribute set built on every recording
+    @Benchmark
+    public Attributes adHocAttributes() {
+        return Attributes.of(SERVICE_NAME, "order-service", OUTCOME, "success");
+    }
+}
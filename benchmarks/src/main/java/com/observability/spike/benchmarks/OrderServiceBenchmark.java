@@ -0,0 +1,73 @@
+package com.observability.spike.benchmarks;
+
+import com.observability.spike.order.OrderServiceApplication;
+import com.observability.spike.order.model.Order;
+import com.observability.spike.order.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full {@link OrderService#getOrderById} call, wired by the real Spring context, against a stub
+ * customer endpoint. The cache and batching are off so every call goes over HTTP; "disabled"
+ * turns off the OTel SDK and all Micrometer meters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    @Param({"enabled", "disabled"})
+    public String telemetry;
+
+    private StubCustomerEndpoint customerEndpoint;
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+
+    @Setup
+    public void setUp() throws Exception {
+        customerEndpoint = new StubCustomerEndpoint();
+        boolean disabled = "disabled".equals(telemetry);
+
+        // Command-line arguments, since they take precedence over application.yml
+        context = new SpringApplicationBuilder(OrderServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--customer-service.base-url=" + customerEndpoint.baseUrl(),
+                        "--customer-service.cache.enabled=false",
+                        "--customer-service.batch.enabled=false",
+                        // Per-request INFO logging would otherwise dominate the measurement
+                        "--logging.level.com.observability.spike=WARN",
+                        "--otel.sdk.disabled=" + disabled,
+                        "--management.metrics.enable.all=" + !disabled);
+        orderService = context.getBean(OrderService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        customerEndpoint.close();
+    }
+
+    @Benchmark
+    public Optional<Order> getOrderById() {
+        return orderService.getOrderById("ORD-001", null);
+    }
+}
@@ -0,0 +1,40 @@
+package com.observability.spike.benchmarks;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * In-process stand-in for customer-service: answers every {@code /api/customers/{id}} with the
+ * same customer immediately over keep-alive connections, so a benchmark measures the order path
+ * rather than the downstream.
+ */
+final class StubCustomerEndpoint implements AutoCloseable {
+
+    private static final byte[] CUSTOMER_JSON = ("{\"customerId\":\"123\",\"firstName\":\"John\",\"lastName\":\"Doe\","
+            + "\"email\":\"john.doe@example.com\",\"status\":\"ACTIVE\",\"createdAt\":\"2024-01-15T10:30:00\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final DisposableServer server;
+
+    StubCustomerEndpoint() {
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get("/api/customers/{customerId}", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .sendByteArray(Mono.just(CUSTOMER_JSON))))
+                .bindNow();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+}
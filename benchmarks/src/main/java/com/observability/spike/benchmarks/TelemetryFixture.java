@@ -0,0 +1,132 @@
+package com.observability.spike.benchmarks;
+
+import com.observability.spike.order.config.CardinalityLimitMeterFilter;
+import com.observability.spike.order.config.MetricCardinalityGuard;
+import com.observability.spike.order.config.MetricCardinalityProperties;
+import com.observability.spike.order.config.SpanMetricsProcessor;
+import com.observability.spike.order.service.MetricsService;
+import com.observability.spike.order.service.OpenTelemetryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Telemetry services wired outside Spring for the micro benchmarks. "enabled" is the SDK with the
+ * span metrics processor, a batch span processor and a periodic metric reader whose exporters
+ * discard everything, so the cost measured is recording, not network I/O; "disabled" is the
+ * no-op API and a Micrometer registry without backends.
+ */
+final class TelemetryFixture {
+
+    private final OpenTelemetry openTelemetry;
+    private final MeterRegistry meterRegistry;
+    private final OpenTelemetryService openTelemetryService;
+    private final MetricsService metricsService;
+
+    TelemetryFixture(String telemetry) {
+        MetricCardinalityProperties cardinality = new MetricCardinalityProperties();
+        if ("enabled".equals(telemetry)) {
+            this.meterRegistry = new SimpleMeterRegistry();
+            meterRegistry.config().meterFilter(
+                    new CardinalityLimitMeterFilter(new MetricCardinalityGuard(cardinality), meterRegistry));
+            SdkMeterProvider meterProvider = SdkMeterProvider.builder()
+                    .registerMetricReader(PeriodicMetricReader.builder(new DiscardingMetricExporter())
+                            .setInterval(Duration.ofSeconds(30))
+                            .build())
+                    .build();
+            // Span metrics as the service registers them; they replace the per-outcome counters
+            this.openTelemetry = OpenTelemetrySdk.builder()
+                    .setTracerProvider(SdkTracerProvider.builder()
+                            .addSpanProcessor(new SpanMetricsProcessor(meterProvider.get("order-service"),
+                                    "order-service", 100, 20))
+                            .addSpanProcessor(BatchSpanProcessor.builder(new DiscardingSpanExporter()).build())
+                            .build())
+                    .setMeterProvider(meterProvider)
+                    .build();
+        } else {
+            this.openTelemetry = OpenTelemetry.noop();
+            // A composite without children hands out no-op meters
+            this.meterRegistry = new CompositeMeterRegistry();
+        }
+        this.openTelemetryService = new OpenTelemetryService(
+                openTelemetry.getTracer("order-service"), openTelemetry.getMeter("order-service"), cardinality);
+        this.metricsService = new MetricsService(meterRegistry);
+    }
+
+    OpenTelemetryService openTelemetryService() {
+        return openTelemetryService;
+    }
+
+    MetricsService metricsService() {
+        return metricsService;
+    }
+
+    MeterRegistry meterRegistry() {
+        return meterRegistry;
+    }
+
+    void close() {
+        if (openTelemetry instanceof OpenTelemetrySdk sdk) {
+            sdk.getSdkTracerProvider().shutdown();
+            sdk.getSdkMeterProvider().shutdown();
+        }
+        meterRegistry.close();
+    }
+
+    private static final class DiscardingSpanExporter implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+
+    private static final class DiscardingMetricExporter implements MetricExporter {
+
+        @Override
+        public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+            return AggregationTemporality.CUMULATIVE;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<MetricData> metrics) {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
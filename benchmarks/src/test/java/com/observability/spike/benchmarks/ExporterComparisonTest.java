@@ -0,0 +1,67 @@
+package com.observability.spike.benchmarks;
+
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The OTLP exporters {@link ExporterComparison} measures, built by {@code OtlpExporters}, deliver
+ * every span to the {@link EmbeddedTelemetryReceiver}, and gzip shrinks what goes on the wire.
+ */
+class ExporterComparisonTest {
+
+    private static final int SPANS = 1_000;
+    private static final int BATCH_SIZE = 256;
+
+    private static EmbeddedTelemetryReceiver receiver;
+    private static List<SpanData> spans;
+
+    @BeforeAll
+    static void startReceiver() {
+        receiver = new EmbeddedTelemetryReceiver();
+        spans = ExporterComparison.orderSpans(SPANS);
+    }
+
+    @AfterAll
+    static void stopReceiver() {
+        receiver.close();
+    }
+
+    @BeforeEach
+    void reset() {
+        receiver.reset();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"grpc", "http"})
+    void gzipExportDeliversEverySpan(String protocol) throws InterruptedException {
+        long gzipBytes = exportAll("otlp-" + protocol + "-gzip");
+        assertThat(receiver.spans()).isEqualTo(SPANS);
+        assertThat(receiver.requests()).isEqualTo((SPANS + BATCH_SIZE - 1) / BATCH_SIZE);
+
+        receiver.reset();
+        long uncompressedBytes = exportAll("otlp-" + protocol + "-none");
+        assertThat(receiver.spans()).isEqualTo(SPANS);
+        assertThat(gzipBytes).isPositive().isLessThan(uncompressedBytes / 2);
+    }
+
+    private long exportAll(String configuration) throws InterruptedException {
+        SpanExporter exporter = ExporterComparison.exporter(configuration, receiver.endpoint());
+        try {
+            ExporterComparison.export(exporter, spans, BATCH_SIZE);
+            ExporterComparison.awaitSpans(receiver, SPANS);
+        } finally {
+            exporter.shutdown().join(10, TimeUnit.SECONDS);
+        }
+        return receiver.bodyBytes();
+    }
+}
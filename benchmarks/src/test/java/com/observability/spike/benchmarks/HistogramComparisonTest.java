@@ -0,0 +1,83 @@
+package com.observability.spike.benchmarks;
+
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The accuracy and export size checks behind {@link HistogramComparison}'s report, as tolerances
+ * the {@code telemetry.metrics.views} aggregations have to keep.
+ */
+class HistogramComparisonTest {
+
+    private static final int SAMPLES = 100_000;
+    private static final int SERIES = 40;
+    private static final int ACTIVE_SERIES = 4;
+
+    @ParameterizedTest
+    @ValueSource(strings = {HistogramComparison.UNIFORM, HistogramComparison.LOG_NORMAL, HistogramComparison.BIMODAL})
+    void exponentialHistogramWith160BucketsIsWithinTwoPercent(String distribution) {
+        double[] sorted = sortedSamples(distribution);
+        MetricData data = HistogramComparison.recordAll(HistogramComparison.view(HistogramComparison.EXPONENTIAL_160), sorted);
+
+        for (double percentile : new double[] {0.50, 0.90, 0.99}) {
+            assertThat(HistogramComparison.relativeError(data, sorted, percentile))
+                    .as("p%s of %s", percentile * 100, distribution)
+                    .isLessThan(0.02);
+        }
+    }
+
+    @Test
+    void exponentialHistogramsBeatDefaultBucketsOnTheTail() {
+        double[] sorted = sortedSamples(HistogramComparison.LOG_NORMAL);
+        double explicit = p99Error(HistogramComparison.EXPLICIT, sorted);
+        double exponential160 = p99Error(HistogramComparison.EXPONENTIAL_160, sorted);
+        double exponential40 = p99Error(HistogramComparison.EXPONENTIAL_40, sorted);
+
+        assertThat(exponential40).isLessThan(0.10).isLessThan(explicit);
+        assertThat(exponential160).isLessThan(exponential40);
+    }
+
+    @Test
+    void deltaExportsOnlyActiveSeriesAndGzipShrinksTheBody() {
+        try (EmbeddedTelemetryReceiver receiver = new EmbeddedTelemetryReceiver()) {
+            for (String aggregation : HistogramComparison.AGGREGATIONS) {
+                long[] cumulative = exportSize(aggregation, "cumulative", "none", receiver);
+                long[] delta = exportSize(aggregation, "delta", "none", receiver);
+                long[] cumulativeGzip = exportSize(aggregation, "cumulative", "gzip", receiver);
+
+                assertThat(cumulative[0]).as("cumulative points, %s", aggregation).isEqualTo(SERIES);
+                assertThat(delta[0]).as("delta points, %s", aggregation).isEqualTo(ACTIVE_SERIES);
+                assertThat(delta[1]).as("delta bytes, %s", aggregation).isPositive().isLessThan(cumulative[1] / 5);
+                assertThat(cumulativeGzip[1]).as("gzip bytes, %s", aggregation).isPositive().isLessThan(cumulative[1]);
+            }
+
+            // Fewer buckets, smaller points
+            assertThat(exportSize(HistogramComparison.EXPONENTIAL_40, "cumulative", "none", receiver)[1])
+                    .isLessThan(exportSize(HistogramComparison.EXPONENTIAL_160, "cumulative", "none", receiver)[1]);
+        }
+    }
+
+    private static double[] sortedSamples(String distribution) {
+        double[] values = HistogramComparison.samples(distribution, SAMPLES, new Random(42));
+        Arrays.sort(values);
+        return values;
+    }
+
+    private static double p99Error(String aggregation, double[] sorted) {
+        MetricData data = HistogramComparison.recordAll(HistogramComparison.view(aggregation), sorted);
+        return HistogramComparison.relativeError(data, sorted, 0.99);
+    }
+
+    private static long[] exportSize(String aggregation, String temporality, String compression,
+                                     EmbeddedTelemetryReceiver receiver) {
+        return HistogramComparison.exportSize(HistogramComparison.view(aggregation), temporality, compression,
+                SERIES, ACTIVE_SERIES, receiver);
+    }
+}
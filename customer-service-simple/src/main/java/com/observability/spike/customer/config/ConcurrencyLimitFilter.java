@@ -0,0 +1,93 @@
+package com.observability.spike.customer.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds customer API requests beyond the adaptive concurrency limit with an immediate 503, so
+ * excess load is rejected fast instead of queueing in Tomcat. Health and actuator endpoints are
+ * not limited.
+ */
+@Component
+@ConditionalOnProperty(name = "concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private static final String LIMITED_PATH = "/api/customers";
+    private static final String HEALTH_PATH = "/api/customers/health";
+
+    private final GradientConcurrencyLimit concurrencyLimit;
+    private final Counter rejectedCounter;
+    private final String retryAfterSeconds;
+
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+                                  @Value("${concurrency-limit.initial-limit:50}") int initialLimit,
+                                  @Value("${concurrency-limit.min-limit:5}") int minLimit,
+                                  @Value("${concurrency-limit.max-limit:150}") int maxLimit,
+                                  @Value("${concurrency-limit.tolerance:1.5}") double tolerance,
+                                  @Value("${concurrency-limit.smoothing:0.2}") double smoothing,
+                                  @Value("${concurrency-limit.window-ms:100}") long windowMs,
+                                  @Value("${concurrency-limit.min-window-samples:10}") int minWindowSamples,
+                                  @Value("${concurrency-limit.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.concurrencyLimit = new GradientConcurrencyLimit(
+                initialLimit, minLimit, maxLimit, tolerance, smoothing, windowMs, minWindowSamples);
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+
+        Gauge.builder("customer.concurrency.limit", concurrencyLimit, GradientConcurrencyLimit::limit)
+                .description("Current adaptive concurrency limit of the customer API")
+                .tag("service", "customer-service")
+                .register(meterRegistry);
+        Gauge.builder("customer.concurrency.in_flight", concurrencyLimit, GradientConcurrencyLimit::inFlight)
+                .description("Customer API requests currently in flight")
+                .tag("service", "customer-service")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("customer.concurrency.rejected")
+                .description("Count of customer API requests rejected by the concurrency limit")
+                .tag("service", "customer-service")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.startsWith(LIMITED_PATH) || path.equals(HEALTH_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!concurrencyLimit.tryAcquire()) {
+            rejectedCounter.increment();
+            logger.debug("Rejecting {} at concurrency limit {}", request.getRequestURI(), concurrencyLimit.limit());
+
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        boolean success = false;
+        try {
+            filterChain.doFilter(request, response);
+            success = response.getStatus() < 500;
+        } finally {
+            concurrencyLimit.release(System.nanoTime() - startTime, success);
+        }
+    }
+}
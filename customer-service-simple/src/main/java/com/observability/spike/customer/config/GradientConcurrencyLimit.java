@@ -0,0 +1,119 @@
+package com.observability.spike.customer.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit learned from latency, after the gradient algorithm: the limit follows the
+ * ratio of long-term to recent latency, so it shrinks as requests start to queue and grows
+ * back, with a small headroom, while latency stays at its baseline.
+ */
+public class GradientConcurrencyLimit {
+
+    private static final double LONG_RTT_WEIGHT = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    // Guards the sampling window and longRttNanos
+    private final ReentrantLock windowLock = new ReentrantLock();
+    private long windowStartNanos = System.nanoTime();
+    private long windowRttSumNanos;
+    private int windowSamples;
+    private double longRttNanos;
+
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                    double smoothing, long windowMs, int minWindowSamples) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limit bounds must satisfy 1 <= min <= max, got min "
+                    + minLimit + " and max " + maxLimit);
+        }
+        // The limit only moves within [minLimit, maxLimit], so it has to start there too
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.minWindowSamples = minWindowSamples;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Samples from failed requests are dropped: their latency says nothing about queueing
+    public void release(long rttNanos, boolean sample) {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        if (!sample) {
+            return;
+        }
+
+        windowLock.lock();
+        try {
+            windowRttSumNanos += rttNanos;
+            windowSamples++;
+
+            long now = System.nanoTime();
+            if (now - windowStartNanos < windowNanos || windowSamples < minWindowSamples) {
+                return;
+            }
+            double shortRttNanos = (double) windowRttSumNanos / windowSamples;
+            windowStartNanos = now;
+            windowRttSumNanos = 0;
+            windowSamples = 0;
+
+            updateLimit(shortRttNanos, inFlightAtCompletion);
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    // Must be called while holding windowLock
+    private void updateLimit(double shortRttNanos, int inFlightAtCompletion) {
+        longRttNanos = longRttNanos == 0
+                ? shortRttNanos
+                : longRttNanos + LONG_RTT_WEIGHT * (shortRttNanos - longRttNanos);
+
+        // Let the baseline recover quickly after a sustained latency shift downwards
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        // Too little traffic to tell whether the limit is the bottleneck
+        if (inFlightAtCompletion < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+
+        limit = (int) Math.max(minLimit, Math.min(maxLimit, Math.round(newLimit)));
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,51 @@
+package com.observability.spike.customer.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Load-test only: delays single-customer lookups of the configured customers, so the load
+ * generator's slow orders have a slow dependency. Batch lookups are not delayed.
+ */
+@Component
+@Profile("load-test")
+public class SlowCustomerFilter extends OncePerRequestFilter {
+
+    private static final String SINGLE_LOOKUP_PATH = "/api/customers/";
+
+    private final Set<String> customerIds;
+    private final long delayMs;
+
+    public SlowCustomerFilter(@Value("${load-test.slow-customers.ids}") Set<String> customerIds,
+                              @Value("${load-test.slow-customers.delay-ms:1000}") long delayMs) {
+        this.customerIds = Set.copyOf(customerIds);
+        this.delayMs = delayMs;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.startsWith(SINGLE_LOOKUP_PATH)
+                || !customerIds.contains(path.substring(SINGLE_LOOKUP_PATH.length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -1,55 +1,82 @@
 package com.observability.spike.customer.controller;
 
+import com.observability.spike.common.telemetry.TelemetryDispatcher;
 import com.observability.spike.customer.model.Customer;
-import com.microsoft.applicationinsights.TelemetryClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/customers")
 public class CustomerController {
 
     private static final Logger logger = LoggerFactory.getLogger(CustomerController.class);
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final long DATABASE_LOOKUP_MS = 200;
+
+    // Remaining time budget of the caller, propagated by order-service
+    private static final String DEADLINE_HEADER = "X-Request-Timeout-Ms";
+    private static final AttributeKey<String> DEADLINE_OUTCOME = AttributeKey.stringKey("deadline.outcome");
+
     private final Map<String, Customer> customerDatabase;
-    private final TelemetryClient telemetryClient;
+    private final TelemetryDispatcher telemetryDispatcher;
+    private final Counter deadlineShedCounter;
+    private final Counter deadlineCutShortCounter;
 
-    public CustomerController(TelemetryClient telemetryClient) {
-        this.telemetryClient = telemetryClient;
+    public CustomerController(TelemetryDispatcher telemetryDispatcher, MeterRegistry meterRegistry) {
+        this.telemetryDispatcher = telemetryDispatcher;
         this.customerDatabase = initializeCustomerData();
+        this.deadlineShedCounter = deadlineExceededCounter(meterRegistry, "shed");
+        this.deadlineCutShortCounter = deadlineExceededCounter(meterRegistry, "cut_short");
     }
 
     @GetMapping("/{customerId}")
-    public ResponseEntity<Customer> getCustomer(@PathVariable("customerId") String customerId) {
+    public ResponseEntity<Customer> getCustomer(@PathVariable("customerId") String customerId,
+                                                @RequestHeader(name = DEADLINE_HEADER, required = false) Long timeoutMs) {
+        // Start the clock as soon as the request arrives
+        Long deadlineNanos = deadlineNanos(timeoutMs);
+
+        // Everything this request dispatches is queued as one call
+        try (Scope telemetryBatch = telemetryDispatcher.openBatch()) {
+            return lookupCustomer(customerId, deadlineNanos);
+        }
+    }
+
+    private ResponseEntity<Customer> lookupCustomer(String customerId, Long deadlineNanos) {
         logger.info("Received request to get customer: {}", customerId);
         
         // Track custom event
-        telemetryClient.trackEvent("CustomerRequest", Map.of("customerId", customerId), null);
+        telemetryDispatcher.dispatch(client -> client.trackEvent("CustomerRequest", Map.of("customerId", customerId), null));
         
         // Add request validation
         if (customerId == null || customerId.trim().isEmpty()) {
             logger.warn("Invalid customer ID received: {}", customerId);
-            telemetryClient.trackEvent("InvalidCustomerRequest", Map.of("customerId", String.valueOf(customerId)), null);
+            telemetryDispatcher.dispatch(client -> client.trackEvent("InvalidCustomerRequest", Map.of("customerId", String.valueOf(customerId)), null));
             return ResponseEntity.badRequest().build();
         }
 
+        // Shed work the caller is no longer waiting for
+        if (isExpired(deadlineNanos)) {
+            return deadlineExceeded("shed", "single");
+        }
+
         // Simulate database lookup delay
-        try {
-            long startTime = System.currentTimeMillis();
-            Thread.sleep(200);
-            long duration = System.currentTimeMillis() - startTime;
-            
-            // Track simulated database dependency
-            telemetryClient.trackDependency("Database", "customer-db", 
-                new com.microsoft.applicationinsights.telemetry.Duration(duration), true);
-                
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            telemetryClient.trackException(e);
+        if (!simulateDatabaseLookup(deadlineNanos)) {
+            return deadlineExceeded("cut_short", "single");
         }
 
         Customer customer = customerDatabase.get(customerId);
@@ -58,23 +85,130 @@ public class CustomerController {
             logger.info("Successfully found customer: {} {}", customer.getFirstName(), customer.getLastName());
             
             // Track successful customer lookup
-            telemetryClient.trackEvent("CustomerFound", 
-                Map.of("customerId", customerId, "customerStatus", customer.getStatus()), null);
+            telemetryDispatcher.dispatch(client -> client.trackEvent("CustomerFound", 
+                Map.of("customerId", customerId, "customerStatus", customer.getStatus()), null));
                 
             return ResponseEntity.ok(customer);
         } else {
             logger.warn("Customer not found: {}", customerId);
-            telemetryClient.trackEvent("CustomerNotFound", Map.of("customerId", customerId), null);
+            telemetryDispatcher.dispatch(client -> client.trackEvent("CustomerNotFound", Map.of("customerId", customerId), null));
             return ResponseEntity.notFound().build();
         }
     }
 
+    @GetMapping
+    public ResponseEntity<List<Customer>> getCustomers(@RequestParam("ids") List<String> customerIds,
+                                                       @RequestHeader(name = DEADLINE_HEADER, required = false) Long timeoutMs) {
+        // Start the clock as soon as the request arrives
+        Long deadlineNanos = deadlineNanos(timeoutMs);
+
+        // Everything this request dispatches is queued as one call
+        try (Scope telemetryBatch = telemetryDispatcher.openBatch()) {
+            return lookupCustomers(customerIds, deadlineNanos);
+        }
+    }
+
+    private ResponseEntity<List<Customer>> lookupCustomers(List<String> customerIds, Long deadlineNanos) {
+        logger.info("Received batch request for {} customers", customerIds.size());
+
+        // Track custom event
+        telemetryDispatcher.dispatch(client -> client.trackEvent("CustomerBatchRequest", null, Map.of("batchSize", (double) customerIds.size())));
+
+        // Add request validation
+        if (customerIds.isEmpty() || customerIds.size() > MAX_BATCH_SIZE) {
+            logger.warn("Invalid customer batch size received: {}", customerIds.size());
+            telemetryDispatcher.dispatch(client -> client.trackEvent("InvalidCustomerBatchRequest", null, Map.of("batchSize", (double) customerIds.size())));
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Shed work the caller is no longer waiting for
+        if (isExpired(deadlineNanos)) {
+            return deadlineExceeded("shed", "batch");
+        }
+
+        // Simulate a single database round trip for the whole batch
+        if (!simulateDatabaseLookup(deadlineNanos)) {
+            return deadlineExceeded("cut_short", "batch");
+        }
+
+        List<Customer> customers = new ArrayList<>(customerIds.size());
+        for (String customerId : customerIds) {
+            Customer customer = customerDatabase.get(customerId);
+            if (customer != null) {
+                customers.add(customer);
+            }
+        }
+
+        logger.info("Successfully found {} of {} requested customers", customers.size(), customerIds.size());
+
+        // Track batch lookup result
+        telemetryDispatcher.dispatch(client -> client.trackEvent("CustomerBatchFound", null,
+            Map.of("batchSize", (double) customerIds.size(), "foundCount", (double) customers.size())));
+
+        return ResponseEntity.ok(customers);
+    }
+
     @GetMapping("/health")
     public ResponseEntity<String> health() {
-        telemetryClient.trackEvent("HealthCheck", Map.of("service", "customer-service"), null);
+        telemetryDispatcher.dispatch(client -> client.trackEvent("HealthCheck", Map.of("service", "customer-service"), null));
         return ResponseEntity.ok("Customer Service is UP");
     }
 
+    // Returns false when the caller's deadline cut the lookup short, like a query timeout would
+    private boolean simulateDatabaseLookup(Long deadlineNanos) {
+        long lookupMs = DATABASE_LOOKUP_MS;
+        if (deadlineNanos != null) {
+            lookupMs = Math.min(lookupMs, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+        }
+        boolean completed = lookupMs >= DATABASE_LOOKUP_MS;
+
+        try {
+            long startTime = System.currentTimeMillis();
+            Thread.sleep(Math.max(0, lookupMs));
+            long duration = System.currentTimeMillis() - startTime;
+            
+            // Track simulated database dependency
+            telemetryDispatcher.dispatch(client -> client.trackDependency("Database", "customer-db", 
+                new com.microsoft.applicationinsights.telemetry.Duration(duration), completed));
+                
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            telemetryDispatcher.dispatch(client -> client.trackException(e));
+        }
+        return completed;
+    }
+
+    private static Long deadlineNanos(Long timeoutMs) {
+        return timeoutMs != null ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : null;
+    }
+
+    private static boolean isExpired(Long deadlineNanos) {
+        return deadlineNanos != null && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    private <T> ResponseEntity<T> deadlineExceeded(String outcome, String lookup) {
+        logger.warn("Deadline exceeded for {} customer lookup ({})", lookup, outcome);
+
+        // Track deadline outcome on the server span, in Micrometer and in Application Insights
+        Span.current().addEvent("deadline.exceeded", Attributes.of(DEADLINE_OUTCOME, outcome));
+        if ("shed".equals(outcome)) {
+            deadlineShedCounter.increment();
+        } else {
+            deadlineCutShortCounter.increment();
+        }
+        telemetryDispatcher.dispatch(client -> client.trackEvent("CustomerDeadlineExceeded", Map.of("outcome", outcome, "lookup", lookup), null));
+
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+    }
+
+    private static Counter deadlineExceededCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("customer.deadline.exceeded")
+                .description("Count of customer lookups abandoned because the caller's deadline passed")
+                .tag("service", "customer-service")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
     private Map<String, Customer> initializeCustomerData() {
         Map<String, Customer> data = new HashMap<>();
         
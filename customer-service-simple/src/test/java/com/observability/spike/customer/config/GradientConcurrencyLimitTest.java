@@ -0,0 +1,35 @@
+package com.observability.spike.customer.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GradientConcurrencyLimitTest {
+
+    @Test
+    void initialLimitIsClampedToBounds() {
+        assertThat(limit(500, 5, 150).limit()).isEqualTo(150);
+        assertThat(limit(0, 5, 150).limit()).isEqualTo(5);
+        assertThat(limit(50, 5, 150).limit()).isEqualTo(50);
+    }
+
+    @Test
+    void clampedInitialLimitIsEnforced() {
+        GradientConcurrencyLimit limit = limit(10, 1, 2);
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void invalidBoundsAreRejected() {
+        assertThatThrownBy(() -> limit(50, 0, 150)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> limit(50, 100, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static GradientConcurrencyLimit limit(int initialLimit, int minLimit, int maxLimit) {
+        return new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit, 1.5, 0.2, 100, 10);
+    }
+}
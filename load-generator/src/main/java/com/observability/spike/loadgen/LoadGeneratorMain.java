@@ -0,0 +1,54 @@
+package com.observability.spike.loadgen;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Drives {@code /api/orders/{id}} of a running order-service with one open-model run per
+ * configured rate and prints the latency percentiles and throughput of each run.
+ */
+public final class LoadGeneratorMain {
+
+    private LoadGeneratorMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGeneratorOptions options;
+        try {
+            options = LoadGeneratorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadGeneratorOptions.usage());
+            System.exit(2);
+            return;
+        }
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+        OpenModelRunner runner = new OpenModelRunner(httpClient, options);
+
+        for (int run = 0; run < options.rates.size(); run++) {
+            double rate = options.rates.get(run);
+            System.out.printf(Locale.ROOT, "%n=== Run %d/%d: %.0f req/s for %ds (warm-up %ds) against %s, mix %s ===%n",
+                    run + 1, options.rates.size(), rate, options.durationSeconds, options.warmupSeconds,
+                    options.baseUrl, options.mix);
+
+            RunResult result = runner.run(rate);
+            if (options.hgrmDir != null) {
+                Path file = options.hgrmDir.resolve(String.format(Locale.ROOT, "run-%d-%.0frps.hgrm", run + 1, rate));
+                result.writePercentileDistribution(file);
+                System.out.println("percentile distribution: " + file);
+            }
+            if (options.summaryFile != null) {
+                Files.writeString(options.summaryFile, result.summary(rate, options.durationSeconds) + System.lineSeparator(),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        }
+    }
+}
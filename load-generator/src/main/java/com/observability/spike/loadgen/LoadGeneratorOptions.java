@@ -0,0 +1,78 @@
+package com.observability.spike.loadgen;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line options, given as {@code --name=value}. Several comma-separated rates make one run
+ * per rate, in order, against the same services.
+ */
+final class LoadGeneratorOptions {
+
+    final String baseUrl;
+    final List<Double> rates;
+    final int durationSeconds;
+    final int warmupSeconds;
+    final RequestMix mix;
+    final long timeoutMs;
+    final long seed;
+    final Path hgrmDir;
+    final Path summaryFile;
+
+    private LoadGeneratorOptions(Map<String, String> values) {
+        baseUrl = values.getOrDefault("base-url", "http://localhost:8080");
+        rates = parseRates(values.getOrDefault("rate", "100"));
+        durationSeconds = Integer.parseInt(values.getOrDefault("duration-seconds", "30"));
+        warmupSeconds = Integer.parseInt(values.getOrDefault("warmup-seconds", "5"));
+        mix = RequestMix.parse(values.getOrDefault("mix", "existing=80,missing=10,slow=10"));
+        timeoutMs = Long.parseLong(values.getOrDefault("timeout-ms", "10000"));
+        seed = Long.parseLong(values.getOrDefault("seed", "42"));
+        hgrmDir = values.containsKey("hgrm-dir") ? Path.of(values.get("hgrm-dir")) : null;
+        summaryFile = values.containsKey("summary-file") ? Path.of(values.get("summary-file")) : null;
+
+        if (durationSeconds <= 0 || warmupSeconds < 0 || timeoutMs <= 0) {
+            throw new IllegalArgumentException("duration-seconds and timeout-ms must be positive, warmup-seconds not negative");
+        }
+    }
+
+    static LoadGeneratorOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadGeneratorOptions(values);
+    }
+
+    static String usage() {
+        return """
+                Options (all --name=value):
+                  --base-url=http://localhost:8080        order-service to drive
+                  --rate=100                              requests/second; a comma-separated list runs once per rate
+                  --duration-seconds=30                   measured time per run
+                  --warmup-seconds=5                      unrecorded load before each run
+                  --mix=existing=80,missing=10,slow=10    relative weights of the order kinds
+                  --timeout-ms=10000                      per-request timeout, counted as a failure
+                  --seed=42                               seed for the mix, so runs are repeatable
+                  --hgrm-dir=<dir>                        also write each run's percentile distribution (.hgrm)
+                  --summary-file=<file>                   append one name=value line per run, for scripts""";
+    }
+
+    private static List<Double> parseRates(String value) {
+        List<Double> rates = new ArrayList<>();
+        for (String rate : value.split(",")) {
+            double parsed = Double.parseDouble(rate.trim());
+            if (parsed <= 0) {
+                throw new IllegalArgumentException("Rate must be positive: " + rate);
+            }
+            rates.add(parsed);
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,108 @@
+package com.observability.spike.loadgen;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a constant arrival rate regardless of how fast responses come back (an open
+ * model): request {@code i} is due at {@code start + i / rate}, is sent asynchronously when due,
+ * and never waits for earlier requests. Requests due during the warm-up are sent but not recorded.
+ */
+final class OpenModelRunner {
+
+    private static final long DRAIN_POLL_MS = 10;
+
+    private final HttpClient httpClient;
+    private final LoadGeneratorOptions options;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelRunner(HttpClient httpClient, LoadGeneratorOptions options) {
+        this.httpClient = httpClient;
+        this.options = options;
+    }
+
+    RunResult run(double rate) throws InterruptedException {
+        RunResult result = new RunResult();
+        SplittableRandom random = new SplittableRandom(options.seed);
+
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long maxSendLag = 0;
+
+        for (long i = 0; ; i++) {
+            // Computed from the start rather than accumulated, so rounding never drifts the rate
+            long intendedStart = start + (long) (i * intervalNanos);
+            if (intendedStart >= end) {
+                break;
+            }
+            long now = waitUntil(intendedStart);
+
+            RequestMix.Kind kind = options.mix.next(random);
+            String orderId = RequestMix.orderId(kind, random);
+            if (intendedStart >= measureStart) {
+                maxSendLag = Math.max(maxSendLag, now - intendedStart);
+                result.recordSent();
+                send(orderId, kind, intendedStart, result);
+            } else {
+                send(orderId, kind, intendedStart, null);
+            }
+        }
+
+        awaitInFlight();
+        result.print(System.out, options.durationSeconds, maxSendLag);
+        return result;
+    }
+
+    private void send(String orderId, RequestMix.Kind kind, long intendedStart, RunResult result) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.baseUrl + "/api/orders/" + orderId))
+                .timeout(Duration.ofMillis(options.timeoutMs))
+                .GET()
+                .build();
+
+        inFlight.incrementAndGet();
+        long sent = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long completed = System.nanoTime();
+                    if (result != null) {
+                        result.record(kind, intendedStart, sent, completed, outcome(response, error));
+                    }
+                    inFlight.decrementAndGet();
+                });
+    }
+
+    // Waits for outstanding requests; each one ends by the per-request timeout at the latest
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.timeoutMs * 2);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(DRAIN_POLL_MS);
+        }
+    }
+
+    private static long waitUntil(long targetNanos) {
+        long now;
+        while ((now = System.nanoTime()) < targetNanos) {
+            LockSupport.parkNanos(targetNanos - now);
+        }
+        return now;
+    }
+
+    private static String outcome(HttpResponse<Void> response, Throwable error) {
+        if (error == null) {
+            return Integer.toString(response.statusCode());
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof HttpTimeoutException ? RunResult.TIMEOUT : RunResult.ERROR;
+    }
+}
@@ -0,0 +1,81 @@
+package com.observability.spike.loadgen;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Weighted mix of order kinds. The ids match the data seeded in order-service and
+ * customer-service: existing orders have a regular customer lookup, the slow order's customer
+ * (999) is delayed by customer-service's load-test profile, and missing orders are not in the
+ * repository at all.
+ */
+final class RequestMix {
+
+    enum Kind {
+        EXISTING(List.of("ORD-001", "ORD-002", "ORD-003", "ORD-005")),
+        MISSING(List.of("ORD-404", "ORD-999")),
+        SLOW(List.of("ORD-004"));
+
+        private final List<String> orderIds;
+
+        Kind(List<String> orderIds) {
+            this.orderIds = orderIds;
+        }
+
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final Map<Kind, Integer> weights;
+    private final int totalWeight;
+
+    private RequestMix(Map<Kind, Integer> weights) {
+        this.weights = weights;
+        this.totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The request mix needs at least one positive weight");
+        }
+    }
+
+    static RequestMix parse(String value) {
+        Map<Kind, Integer> weights = new EnumMap<>(Kind.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected kind=weight in the mix but got: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights must not be negative: " + entry);
+            }
+            weights.put(Kind.valueOf(parts[0].trim().toUpperCase()), weight);
+        }
+        return new RequestMix(weights);
+    }
+
+    Kind next(SplittableRandom random) {
+        int pick = random.nextInt(totalWeight);
+        for (Map.Entry<Kind, Integer> weight : weights.entrySet()) {
+            pick -= weight.getValue();
+            if (pick < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable: pick exceeded total weight");
+    }
+
+    static String orderId(Kind kind, SplittableRandom random) {
+        return kind.orderIds.get(random.nextInt(kind.orderIds.size()));
+    }
+
+    @Override
+    public String toString() {
+        return weights.entrySet().stream()
+                .map(weight -> weight.getKey().label() + "=" + weight.getValue() * 100 / totalWeight + "%")
+                .collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,115 @@
+package com.observability.spike.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one run, recorded from the HTTP client's completion threads.
+ *
+ * <p>Response time is measured from the moment the schedule said a request should start, not
+ * from when it was actually sent, so a stalled generator or a saturated service shows up as
+ * latency instead of silently sending fewer requests (coordinated omission). Service time, from
+ * the actual send, is kept alongside to show how much the two differ.
+ */
+final class RunResult {
+
+    // Microsecond resolution up to ten minutes, three significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    static final String TIMEOUT = "timeout";
+    static final String ERROR = "error";
+
+    private final Histogram responseTime = newHistogram();
+    private final Histogram serviceTime = newHistogram();
+    private final Map<RequestMix.Kind, Histogram> responseTimeByKind = new EnumMap<>(RequestMix.Kind.class);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final LongAdder sent = new LongAdder();
+
+    RunResult() {
+        for (RequestMix.Kind kind : RequestMix.Kind.values()) {
+            responseTimeByKind.put(kind, newHistogram());
+        }
+    }
+
+    void recordSent() {
+        sent.increment();
+    }
+
+    void record(RequestMix.Kind kind, long intendedStartNanos, long sentNanos, long completedNanos, String outcome) {
+        long responseMicros = toMicros(completedNanos - intendedStartNanos);
+        responseTime.recordValue(responseMicros);
+        responseTimeByKind.get(kind).recordValue(responseMicros);
+        serviceTime.recordValue(toMicros(completedNanos - sentNanos));
+        outcomes.computeIfAbsent(kind.label() + " " + outcome, key -> new LongAdder()).increment();
+    }
+
+    void print(PrintStream out, double elapsedSeconds, long maxSendLagNanos) {
+        long completed = responseTime.getTotalCount();
+        out.printf("sent %d, completed %d, throughput %.1f req/s, max send lag %.1f ms%n",
+                sent.sum(), completed, completed / elapsedSeconds, maxSendLagNanos / 1_000_000.0);
+        out.printf("%-28s %8s %9s %9s %9s %9s%n", "latency (ms)", "count", "p50", "p99", "p99.9", "max");
+        printRow(out, "response time (corrected)", responseTime);
+        for (Map.Entry<RequestMix.Kind, Histogram> byKind : responseTimeByKind.entrySet()) {
+            if (byKind.getValue().getTotalCount() > 0) {
+                printRow(out, "  " + byKind.getKey().label(), byKind.getValue());
+            }
+        }
+        printRow(out, "service time (uncorrected)", serviceTime);
+
+        StringBuilder statuses = new StringBuilder("outcomes:");
+        new TreeMap<>(outcomes).forEach((outcome, count) -> statuses.append("  ").append(outcome).append('=').append(count.sum()));
+        out.println(statuses);
+    }
+
+    // One line of name=value pairs, for scripts that compare runs
+    String summary(double rate, double elapsedSeconds) {
+        long completed = responseTime.getTotalCount();
+        long failed = outcomes.entrySet().stream()
+                .filter(outcome -> outcome.getKey().endsWith(" " + TIMEOUT) || outcome.getKey().endsWith(" " + ERROR))
+                .mapToLong(outcome -> outcome.getValue().sum())
+                .sum();
+        return String.format(Locale.ROOT, "rate=%.0f sent=%d completed=%d failed=%d throughput=%.1f p50_ms=%.1f p99_ms=%.1f p999_ms=%.1f max_ms=%.1f",
+                rate, sent.sum(), completed, failed, completed / elapsedSeconds,
+                millis(responseTime.getValueAtPercentile(50)), millis(responseTime.getValueAtPercentile(99)),
+                millis(responseTime.getValueAtPercentile(99.9)), millis(responseTime.getMaxValue()));
+    }
+
+    void writePercentileDistribution(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            // Values are recorded in microseconds, the file is in milliseconds
+            responseTime.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static void printRow(PrintStream out, String label, Histogram histogram) {
+        out.printf("%-28s %8d %9.1f %9.1f %9.1f %9.1f%n", label, histogram.getTotalCount(),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+    }
+
+    private static Histogram newHistogram() {
+        return new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
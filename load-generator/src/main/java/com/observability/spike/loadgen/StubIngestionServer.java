@@ -0,0 +1,144 @@
+package com.observability.spike.loadgen;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Local stand-in for the Application Insights ingestion endpoint, so the agent and the Azure
+ * Monitor exporter can run with a connection string of
+ * {@code IngestionEndpoint=http://localhost:<port>/;LiveEndpoint=http://localhost:<port>/}.
+ * Accepts every track call, counts items by type and serves the counts on {@code GET /stats}.
+ * To simulate an ingestion outage, {@code /control/fail?status=503} makes track calls fail,
+ * {@code /control/delay?ms=10000} holds them before answering, and {@code /control/recover}
+ * restores normal behaviour.
+ */
+public final class StubIngestionServer {
+
+    private static final Pattern BASE_TYPE = Pattern.compile("\"baseType\"\\s*:\\s*\"(\\w+)\"");
+
+    private final Map<String, LongAdder> items = new ConcurrentHashMap<>();
+    private final LongAdder trackRequests = new LongAdder();
+    private final LongAdder trackBytes = new LongAdder();
+    private final LongAdder trackRejected = new LongAdder();
+    // 0 while healthy
+    private volatile int failStatus;
+    private volatile long delayMs;
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4319;
+        new StubIngestionServer().start(port);
+        System.out.println("Stub ingestion listening on http://localhost:" + port + "/");
+    }
+
+    private void start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/v2.1/track", this::track);
+        server.createContext("/v2/track", this::track);
+        // Live metrics: tell the agent nobody is watching so it only pings
+        server.createContext("/QuickPulseService.svc", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("x-ms-qps-subscribed", "false");
+            respond(exchange, 200, "");
+        });
+        server.createContext("/stats", this::stats);
+        server.createContext("/control", this::control);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, "");
+        });
+        // Unbounded so a delayed track call never blocks /control or /stats
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    private void track(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        long delay = delayMs;
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int status = failStatus;
+        if (status != 0) {
+            trackRejected.increment();
+            respond(exchange, status, "");
+            return;
+        }
+        trackRequests.increment();
+        trackBytes.add(body.length);
+
+        // One JSON item per line, gzipped by both the agent and the exporter
+        String payload;
+        try (InputStream in = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+                ? new GZIPInputStream(new ByteArrayInputStream(body)) : new ByteArrayInputStream(body)) {
+            payload = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        int received = 0;
+        for (String line : payload.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            received++;
+            Matcher baseType = BASE_TYPE.matcher(line);
+            items.computeIfAbsent(baseType.find() ? baseType.group(1) : "Unknown", key -> new LongAdder()).increment();
+        }
+
+        respond(exchange, 200, "{\"itemsReceived\":" + received + ",\"itemsAccepted\":" + received + ",\"errors\":[]}");
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        StringBuilder stats = new StringBuilder()
+                .append("track.requests=").append(trackRequests.sum()).append('\n')
+                .append("track.bytes=").append(trackBytes.sum()).append('\n')
+                .append("track.rejected=").append(trackRejected.sum()).append('\n');
+        new TreeMap<>(items).forEach((type, count) -> stats.append("items.").append(type).append('=').append(count.sum()).append('\n'));
+        respond(exchange, 200, stats.toString());
+    }
+
+    private void control(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        String value = query != null && query.contains("=") ? query.substring(query.indexOf('=') + 1) : null;
+        switch (path) {
+            case "/control/fail" -> failStatus = value != null ? Integer.parseInt(value) : 503;
+            case "/control/delay" -> delayMs = value != null ? Long.parseLong(value) : 10_000;
+            case "/control/recover" -> {
+                failStatus = 0;
+                delayMs = 0;
+            }
+            default -> {
+                respond(exchange, 404, "");
+                return;
+            }
+        }
+        respond(exchange, 200, "fail.status=" + failStatus + "\ndelay.ms=" + delayMs + "\n");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -1,16 +1,102 @@
 package com.observability.spike.order.config;
 
 import com.microsoft.applicationinsights.TelemetryClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class ApplicationConfig {
 
+    @Value("${customer-service.http.protocol:http1}")
+    private String protocol;
+
+    @Value("${customer-service.http.h2c-connections:2}")
+    private int h2cConnections;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${customer-service.http.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${customer-service.http.max-connections-per-route:100}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${customer-service.http.keep-alive-ms:30000}")
+    private long keepAliveMs;
+
+    @Value("${customer-service.http.idle-evict-ms:15000}")
+    private long idleEvictMs;
+
+    @Value("${customer-service.http.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+
+    @Value("${customer-service.http.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${customer-service.http.connection-request-timeout-ms:1000}")
+    private long connectionRequestTimeoutMs;
+
+    @Bean
+    public PoolingHttpClientConnectionManager customerServiceConnectionManager(MeterRegistry meterRegistry) {
+        Timer leaseWaitTimer = Timer.builder("httpcomponents.httpclient.pool.lease.wait")
+                .description("Time spent waiting to lease a pooled connection to customer-service")
+                .tag("httpclient", "customer-service")
+                .register(meterRegistry);
+
+        PoolingHttpClientConnectionManager connectionManager = new InstrumentedConnectionManager(leaseWaitTimer);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .build());
+        return connectionManager;
+    }
+
+    @Bean
+    public MeterBinder customerServiceConnectionPoolMetrics(PoolingHttpClientConnectionManager customerServiceConnectionManager) {
+        // Leased, available (idle), pending and max connection gauges
+        return new PoolingHttpClientConnectionManagerMetricsBinder(customerServiceConnectionManager, "customer-service");
+    }
+
+    @Bean
+    public CloseableHttpClient customerServiceHttpClient(PoolingHttpClientConnectionManager customerServiceConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(customerServiceConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAliveMs))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictMs))
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient customerServiceHttpClient) {
+        if ("h2c".equalsIgnoreCase(protocol)) {
+            return new RestTemplate(new MultiplexedClientHttpRequestFactory(h2cConnections,
+                    Duration.ofMillis(connectTimeoutMs), Duration.ofMillis(readTimeoutMs), virtualThreads));
+        }
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(customerServiceHttpClient));
     }
 
     @Bean
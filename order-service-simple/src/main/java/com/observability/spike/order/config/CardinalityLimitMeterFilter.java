@@ -0,0 +1,63 @@
+package com.observability.spike.order.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.config.MeterFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a {@link MetricCardinalityGuard} to Micrometer meters as they are registered: tags that
+ * are not allowed are stripped, and tag sets past the series cap are mapped onto one series whose
+ * tag values are all {@value MetricCardinalityGuard#OVERFLOW_VALUE}.
+ */
+public class CardinalityLimitMeterFilter implements MeterFilter {
+
+    private final MetricCardinalityGuard guard;
+    private final MeterRegistry meterRegistry;
+
+    public CardinalityLimitMeterFilter(MetricCardinalityGuard guard, MeterRegistry meterRegistry) {
+        this.guard = guard;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Meter.Id map(Meter.Id id) {
+        String name = id.getName();
+        if (!guard.isGuarded(name)) {
+            return id;
+        }
+
+        List<Tag> kept = new ArrayList<>();
+        int dropped = 0;
+        for (Tag tag : id.getTagsAsIterable()) {
+            if (guard.isTagAllowed(name, tag.getKey())) {
+                kept.add(tag);
+            } else {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            // The report meters live under "metrics." so they are never guarded themselves
+            Counter.builder("metrics.cardinality.dropped.tags")
+                    .description("Count of tags stripped from application meters at registration")
+                    .tag("meter", name)
+                    .register(meterRegistry)
+                    .increment(dropped);
+        }
+
+        if (!guard.admitSeries(name, kept)) {
+            kept.replaceAll(tag -> Tag.of(tag.getKey(), MetricCardinalityGuard.OVERFLOW_VALUE));
+            Counter.builder("metrics.cardinality.overflow")
+                    .description("Count of meter registrations folded into the overflow series")
+                    .tag("meter", name)
+                    .register(meterRegistry)
+                    .increment();
+            return id.replaceTags(kept);
+        }
+        return dropped > 0 ? id.replaceTags(kept) : id;
+    }
+}
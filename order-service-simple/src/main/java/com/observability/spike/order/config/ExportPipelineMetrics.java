@@ -0,0 +1,212 @@
+package com.observability.spike.order.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.CollectionRegistration;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Self-metrics of the span export pipeline, in Micrometer (as a {@link MeterBinder}) and
+ * OpenTelemetry: batch span processor queue depth and capacity, spans dropped because the queue
+ * was full, and the batch size, duration and failures of export calls. The batch span processor
+ * only reports its queue through a {@link MeterProvider}, so it gets a private one that is read
+ * on demand.
+ */
+class ExportPipelineMetrics implements MeterBinder {
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+    private static final AttributeKey<Boolean> DROPPED = AttributeKey.booleanKey("dropped");
+
+    private final int queueCapacity;
+    private final ProcessorMetricReader processorMetrics = new ProcessorMetricReader();
+    private final SdkMeterProvider processorMeterProvider = SdkMeterProvider.builder()
+            .registerMetricReader(processorMetrics)
+            .build();
+
+    private volatile DistributionSummary batchSizeSummary;
+    private volatile Timer successTimer;
+    private volatile Timer failureTimer;
+    private volatile Counter failureCounter;
+
+    private volatile LongHistogram batchSizeHistogram;
+    private volatile DoubleHistogram durationHistogram;
+    private volatile LongCounter failures;
+    private Attributes successAttributes;
+    private Attributes failureAttributes;
+
+    ExportPipelineMetrics(TelemetryExportProperties properties) {
+        // The SDK's queue rounds its capacity up to a power of two
+        int maxQueueSize = Math.max(2, properties.getMaxQueueSize());
+        this.queueCapacity = Integer.highestOneBit(maxQueueSize - 1) << 1;
+    }
+
+    /** For {@code BatchSpanProcessorBuilder.setMeterProvider}. */
+    MeterProvider processorMeterProvider() {
+        return processorMeterProvider;
+    }
+
+    void recordExport(int batchSize, long durationNanos, boolean success) {
+        if (batchSizeSummary != null) {
+            batchSizeSummary.record(batchSize);
+            (success ? successTimer : failureTimer).record(durationNanos, TimeUnit.NANOSECONDS);
+            if (!success) {
+                failureCounter.increment();
+            }
+        }
+        if (batchSizeHistogram != null) {
+            Attributes attributes = success ? successAttributes : failureAttributes;
+            batchSizeHistogram.record(batchSize, attributes);
+            durationHistogram.record(durationNanos / 1e9, attributes);
+            if (!success) {
+                failures.add(1, failureAttributes);
+            }
+        }
+    }
+
+    long queueSize() {
+        long size = 0;
+        for (MetricData metric : processorMetrics.collect()) {
+            if ("queueSize".equals(metric.getName())) {
+                for (LongPointData point : metric.getLongGaugeData().getPoints()) {
+                    size += point.getValue();
+                }
+            }
+        }
+        return size;
+    }
+
+    long droppedSpans() {
+        long dropped = 0;
+        for (MetricData metric : processorMetrics.collect()) {
+            if ("processedSpans".equals(metric.getName())) {
+                for (LongPointData point : metric.getLongSumData().getPoints()) {
+                    if (Boolean.TRUE.equals(point.getAttributes().get(DROPPED))) {
+                        dropped += point.getValue();
+                    }
+                }
+            }
+        }
+        return dropped;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("telemetry.export.queue.size", this, ExportPipelineMetrics::queueSize)
+                .description("Spans waiting in the batch span processor queue")
+                .tag("service", "order-service")
+                .register(registry);
+        Gauge.builder("telemetry.export.queue.capacity", this, metrics -> metrics.queueCapacity)
+                .description("Capacity of the batch span processor queue")
+                .tag("service", "order-service")
+                .register(registry);
+        FunctionCounter.builder("telemetry.export.dropped", this, ExportPipelineMetrics::droppedSpans)
+                .description("Spans dropped because the batch span processor queue was full")
+                .tag("service", "order-service")
+                .register(registry);
+        failureCounter = Counter.builder("telemetry.export.failures")
+                .description("Span export calls that failed")
+                .tag("service", "order-service")
+                .register(registry);
+        successTimer = exportTimer(registry, "success");
+        failureTimer = exportTimer(registry, "failure");
+        batchSizeSummary = DistributionSummary.builder("telemetry.export.batch.size")
+                .description("Spans per export call")
+                .baseUnit("spans")
+                .tag("service", "order-service")
+                .register(registry);
+    }
+
+    void bindTo(Meter meter, String serviceName) {
+        Attributes attributes = Attributes.of(SERVICE_NAME, serviceName);
+        meter.gaugeBuilder("telemetry.export.queue.size")
+                .setDescription("Spans waiting in the batch span processor queue")
+                .setUnit("1")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(queueSize(), attributes));
+        meter.gaugeBuilder("telemetry.export.queue.capacity")
+                .setDescription("Capacity of the batch span processor queue")
+                .setUnit("1")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(queueCapacity, attributes));
+        meter.counterBuilder("telemetry.export.dropped")
+                .setDescription("Spans dropped because the batch span processor queue was full")
+                .setUnit("1")
+                .buildWithCallback(measurement -> measurement.record(droppedSpans(), attributes));
+
+        successAttributes = Attributes.of(SERVICE_NAME, serviceName, OUTCOME, "success");
+        failureAttributes = Attributes.of(SERVICE_NAME, serviceName, OUTCOME, "failure");
+        failures = meter.counterBuilder("telemetry.export.failures")
+                .setDescription("Span export calls that failed")
+                .setUnit("1")
+                .build();
+        durationHistogram = meter.histogramBuilder("telemetry.export.duration")
+                .setDescription("Duration of span export calls")
+                .setUnit("s")
+                .build();
+        batchSizeHistogram = meter.histogramBuilder("telemetry.export.batch.size")
+                .setDescription("Spans per export call")
+                .setUnit("1")
+                .ofLongs()
+                .build();
+    }
+
+    private static Timer exportTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("telemetry.export.duration")
+                .description("Duration of span export calls")
+                .tag("service", "order-service")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    // Collects the processor's two instruments whenever a gauge or counter above is read
+    private static final class ProcessorMetricReader implements MetricReader {
+
+        private volatile CollectionRegistration registration = CollectionRegistration.noop();
+
+        @Override
+        public void register(CollectionRegistration registration) {
+            this.registration = registration;
+        }
+
+        Collection<MetricData> collect() {
+            return registration.collectAllMetrics();
+        }
+
+        @Override
+        public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+            return AggregationTemporality.CUMULATIVE;
+        }
+
+        @Override
+        public CompletableResultCode forceFlush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
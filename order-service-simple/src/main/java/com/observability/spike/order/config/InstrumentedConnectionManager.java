@@ -0,0 +1,47 @@
+package com.observability.spike.order.config;
+
+import io.micrometer.core.instrument.Timer;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.util.Timeout;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pooling connection manager that records how long callers wait to lease a connection.
+ */
+public class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final Timer leaseWaitTimer;
+
+    public InstrumentedConnectionManager(Timer leaseWaitTimer) {
+        this.leaseWaitTimer = leaseWaitTimer;
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        LeaseRequest leaseRequest = super.lease(id, route, requestTimeout, state);
+
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                long startTime = System.nanoTime();
+                try {
+                    return leaseRequest.get(timeout);
+                } finally {
+                    leaseWaitTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return leaseRequest.cancel();
+            }
+        };
+    }
+}
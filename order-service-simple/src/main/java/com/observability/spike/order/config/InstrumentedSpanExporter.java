@@ -0,0 +1,48 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.Collection;
+
+/**
+ * Times every export call of the wrapped exporter and records its batch size and outcome in
+ * {@link ExportPipelineMetrics}. Results are recorded when the exporter completes them, so an
+ * export that outlives a caller's timeout is still counted.
+ */
+class InstrumentedSpanExporter implements SpanExporter {
+
+    private final SpanExporter delegate;
+    private final ExportPipelineMetrics metrics;
+
+    InstrumentedSpanExporter(SpanExporter delegate, ExportPipelineMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        int batchSize = spans.size();
+        long start = System.nanoTime();
+        CompletableResultCode result;
+        try {
+            result = delegate.export(spans);
+        } catch (RuntimeException e) {
+            metrics.recordExport(batchSize, System.nanoTime() - start, false);
+            throw e;
+        }
+        result.whenComplete(() -> metrics.recordExport(batchSize, System.nanoTime() - start, result.isSuccess()));
+        return result;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return delegate.shutdown();
+    }
+}
@@ -0,0 +1,19 @@
+package com.observability.spike.order.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.actuate.autoconfigure.metrics.MeterRegistryCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(MetricCardinalityProperties.class)
+public class MetricCardinalityConfig {
+
+    // A customizer rather than a MeterFilter bean so the filter can report through the registry it guards
+    @Bean
+    public MeterRegistryCustomizer<MeterRegistry> cardinalityLimitCustomizer(MetricCardinalityProperties properties) {
+        return registry -> registry.config().meterFilter(
+                new CardinalityLimitMeterFilter(new MetricCardinalityGuard(properties), registry));
+    }
+}
@@ -0,0 +1,79 @@
+package com.observability.spike.order.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cardinality limits for one metrics pipeline: which tag keys a meter may carry, and how many
+ * distinct tag sets it may grow before new ones go to a single overflow series. The Micrometer
+ * filter and {@code OpenTelemetryService} each hold their own instance since their meters and
+ * tag keys are named differently.
+ */
+public class MetricCardinalityGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricCardinalityGuard.class);
+
+    public static final String OVERFLOW_VALUE = "overflow";
+
+    private final boolean enabled;
+    private final int maxSeriesPerMeter;
+    private final List<String> guardedPrefixes;
+    private final Set<String> deniedTags;
+    private final Map<String, Set<String>> allowedTags = new HashMap<>();
+    private final Map<String, Set<Object>> seriesByMeter = new ConcurrentHashMap<>();
+
+    public MetricCardinalityGuard(MetricCardinalityProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.maxSeriesPerMeter = properties.getMaxSeriesPerMeter();
+        this.guardedPrefixes = List.copyOf(properties.getGuardedPrefixes());
+        this.deniedTags = Set.copyOf(properties.getDeniedTags());
+        properties.getAllowedTags().forEach((meter, keys) -> allowedTags.put(meter, Set.copyOf(keys)));
+    }
+
+    public int maxSeriesPerMeter() {
+        return maxSeriesPerMeter;
+    }
+
+    public boolean isGuarded(String meterName) {
+        if (!enabled) {
+            return false;
+        }
+        for (String prefix : guardedPrefixes) {
+            if (meterName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isTagAllowed(String meterName, String tagKey) {
+        if (deniedTags.contains(tagKey)) {
+            return false;
+        }
+        Set<String> allowed = allowedTags.get(meterName);
+        return allowed == null || allowed.contains(tagKey);
+    }
+
+    // False once the meter holds maxSeriesPerMeter tag sets and this one is new. Concurrent
+    // first sightings may overshoot the cap by a few series, which is fine for a safety limit.
+    public boolean admitSeries(String meterName, Object seriesKey) {
+        Set<Object> series = seriesByMeter.computeIfAbsent(meterName, name -> ConcurrentHashMap.newKeySet());
+        if (series.contains(seriesKey)) {
+            return true;
+        }
+        if (series.size() >= maxSeriesPerMeter) {
+            return false;
+        }
+        if (series.add(seriesKey) && series.size() == maxSeriesPerMeter) {
+            logger.warn("Meter {} reached {} series; further tag sets are recorded as overflow",
+                    meterName, maxSeriesPerMeter);
+        }
+        return true;
+    }
+}
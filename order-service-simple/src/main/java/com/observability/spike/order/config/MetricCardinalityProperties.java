@@ -0,0 +1,70 @@
+package com.observability.spike.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits applied to application metrics by {@link MetricCardinalityGuard}. Bound from
+ * {@code telemetry.cardinality.*}; the per-meter allow-lists are a map, which is why these are not
+ * plain {@code @Value} fields.
+ */
+@ConfigurationProperties(prefix = "telemetry.cardinality")
+public class MetricCardinalityProperties {
+
+    private boolean enabled = true;
+
+    // Distinct tag sets per meter before new ones are folded into the overflow series
+    private int maxSeriesPerMeter = 100;
+
+    // Only meters whose names start with one of these are guarded; framework meters are left alone
+    private List<String> guardedPrefixes = List.of("order.", "customer.", "deadline.", "telemetry.");
+
+    // Never allowed on any guarded meter
+    private List<String> deniedTags = List.of("order_id", "customer_id", "order.id", "customer.id");
+
+    // Meter name to allowed tag keys; meters without an entry keep every tag that is not denied
+    private Map<String, List<String>> allowedTags = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxSeriesPerMeter() {
+        return maxSeriesPerMeter;
+    }
+
+    public void setMaxSeriesPerMeter(int maxSeriesPerMeter) {
+        this.maxSeriesPerMeter = maxSeriesPerMeter;
+    }
+
+    public List<String> getGuardedPrefixes() {
+        return guardedPrefixes;
+    }
+
+    public void setGuardedPrefixes(List<String> guardedPrefixes) {
+        this.guardedPrefixes = guardedPrefixes;
+    }
+
+    public List<String> getDeniedTags() {
+        return deniedTags;
+    }
+
+    public void setDeniedTags(List<String> deniedTags) {
+        this.deniedTags = deniedTags;
+    }
+
+    public Map<String, List<String>> getAllowedTags() {
+        return allowedTags;
+    }
+
+    public void setAllowedTags(Map<String, List<String>> allowedTags) {
+        this.allowedTags = allowedTags;
+    }
+}
@@ -0,0 +1,83 @@
+package com.observability.spike.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Histogram views for the OTel SDK meter provider, bound from {@code telemetry.metrics.views}.
+ * Each view picks histogram instruments by name and sets their aggregation, e.g. a base-2
+ * exponential histogram for latency instruments instead of the default explicit buckets.
+ */
+@ConfigurationProperties(prefix = "telemetry.metrics")
+public class MetricViewProperties {
+
+    private List<View> views = new ArrayList<>();
+
+    public List<View> getViews() {
+        return views;
+    }
+
+    public void setViews(List<View> views) {
+        this.views = views;
+    }
+
+    public static class View {
+
+        // Instrument name; * matches any run of characters
+        private String instrument;
+
+        // base2-exponential or explicit
+        private String aggregation = MetricViews.BASE2_EXPONENTIAL;
+
+        // base2-exponential: buckets per sign; the scale drops as needed to stay within them
+        private int maxBuckets = 160;
+
+        // base2-exponential: starting (finest) scale, 20 at most
+        private int maxScale = 20;
+
+        // explicit: bucket upper bounds in the instrument's unit; empty keeps the SDK defaults
+        private List<Double> boundaries = new ArrayList<>();
+
+        public String getInstrument() {
+            return instrument;
+        }
+
+        public void setInstrument(String instrument) {
+            this.instrument = instrument;
+        }
+
+        public String getAggregation() {
+            return aggregation;
+        }
+
+        public void setAggregation(String aggregation) {
+            this.aggregation = aggregation;
+        }
+
+        public int getMaxBuckets() {
+            return maxBuckets;
+        }
+
+        public void setMaxBuckets(int maxBuckets) {
+            this.maxBuckets = maxBuckets;
+        }
+
+        public int getMaxScale() {
+            return maxScale;
+        }
+
+        public void setMaxScale(int maxScale) {
+            this.maxScale = maxScale;
+        }
+
+        public List<Double> getBoundaries() {
+            return boundaries;
+        }
+
+        public void setBoundaries(List<Double> boundaries) {
+            this.boundaries = boundaries;
+        }
+    }
+}
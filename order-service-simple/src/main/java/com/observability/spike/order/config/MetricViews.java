@@ -0,0 +1,64 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.InstrumentSelector;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProviderBuilder;
+import io.opentelemetry.sdk.metrics.View;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * Registers the {@code telemetry.metrics.views} histogram views on an SDK meter provider. Shared
+ * with the benchmarks, which compare exponential and explicit-bucket accuracy and export size.
+ */
+public final class MetricViews {
+
+    public static final String BASE2_EXPONENTIAL = "base2-exponential";
+    public static final String EXPLICIT = "explicit";
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricViews.class);
+
+    private MetricViews() {
+    }
+
+    /**
+     * @param exponentialSupported false when the exporter cannot send exponential histograms; those
+     *                             views are then skipped and the instruments keep explicit buckets
+     */
+    public static void register(SdkMeterProviderBuilder builder, MetricViewProperties properties,
+                                boolean exponentialSupported) {
+        for (MetricViewProperties.View view : properties.getViews()) {
+            Aggregation aggregation = aggregation(view);
+            if (!exponentialSupported && isExponential(view)) {
+                logger.warn("Exporter does not support exponential histograms, keeping explicit buckets for {}",
+                        view.getInstrument());
+                continue;
+            }
+            builder.registerView(InstrumentSelector.builder()
+                            .setType(InstrumentType.HISTOGRAM)
+                            .setName(view.getInstrument())
+                            .build(),
+                    View.builder().setAggregation(aggregation).build());
+        }
+    }
+
+    public static Aggregation aggregation(MetricViewProperties.View view) {
+        if (isExponential(view)) {
+            return Aggregation.base2ExponentialBucketHistogram(view.getMaxBuckets(), view.getMaxScale());
+        }
+        if (EXPLICIT.equalsIgnoreCase(view.getAggregation())) {
+            return view.getBoundaries().isEmpty()
+                    ? Aggregation.explicitBucketHistogram()
+                    : Aggregation.explicitBucketHistogram(view.getBoundaries());
+        }
+        throw new IllegalArgumentException("Unsupported histogram aggregation '" + view.getAggregation()
+                + "' for " + view.getInstrument() + ", expected " + BASE2_EXPONENTIAL + " or " + EXPLICIT);
+    }
+
+    private static boolean isExponential(MetricViewProperties.View view) {
+        return BASE2_EXPONENTIAL.equals(view.getAggregation().toLowerCase(Locale.ROOT));
+    }
+}
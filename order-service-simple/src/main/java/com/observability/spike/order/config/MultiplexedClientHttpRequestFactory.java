@@ -0,0 +1,47 @@
+package com.observability.spike.order.config;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads requests round-robin over a fixed set of JDK HTTP/2 clients. Each client keeps a
+ * single multiplexed h2c connection per origin, so the set size is the connection count.
+ */
+public class MultiplexedClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    private final JdkClientHttpRequestFactory[] delegates;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public MultiplexedClientHttpRequestFactory(int connections, Duration connectTimeout, Duration readTimeout,
+                                               boolean virtualThreads) {
+        this.delegates = new JdkClientHttpRequestFactory[Math.max(1, connections)];
+        for (int i = 0; i < delegates.length; i++) {
+            HttpClient.Builder httpClientBuilder = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(connectTimeout);
+            if (virtualThreads) {
+                // Response handling and dependent tasks run on virtual threads
+                httpClientBuilder.executor(Executors.newVirtualThreadPerTaskExecutor());
+            }
+            HttpClient httpClient = httpClientBuilder.build();
+            JdkClientHttpRequestFactory delegate = new JdkClientHttpRequestFactory(httpClient);
+            delegate.setReadTimeout(readTimeout);
+            delegates[i] = delegate;
+        }
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        int index = Math.floorMod(next.getAndIncrement(), delegates.length);
+        return delegates[index].createRequest(uri, httpMethod);
+    }
+}
@@ -1,23 +1,40 @@
 package com.observability.spike.order.config;
 
+import com.azure.core.http.policy.FixedDelay;
+import com.azure.core.http.policy.RetryPolicy;
 import com.azure.monitor.opentelemetry.exporter.AzureMonitorExporterBuilder;
+import com.observability.spike.common.logging.LoggingMetrics;
+import com.observability.spike.common.telemetry.TelemetryDispatcher;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.MeterProvider;
 import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
 import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
 import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
 import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
+@EnableConfigurationProperties({TraceSamplingProperties.class, SpanSpoolProperties.class, TelemetryExportProperties.class,
+        MetricViewProperties.class})
 public class OpenTelemetryConfig {
 
     @Value("${spring.application.name:order-service}")
@@ -26,8 +43,46 @@ public class OpenTelemetryConfig {
     @Value("${APPLICATIONINSIGHTS_CONNECTION_STRING:#{null}}")
     private String connectionString;
 
+    @Value("${otel.sdk.disabled:false}")
+    private boolean sdkDisabled;
+
+    @Value("${telemetry.recent-traces.enabled:true}")
+    private boolean recentTracesEnabled;
+
+    @Value("${telemetry.recent-traces.max-bytes:8388608}")
+    private long recentTracesMaxBytes;
+
+    @Value("${telemetry.span-metrics.enabled:true}")
+    private boolean spanMetricsEnabled;
+
+    @Value("${telemetry.span-metrics.max-span-names:100}")
+    private int spanMetricsMaxSpanNames;
+
+    @Value("${telemetry.span-metrics.max-error-types:20}")
+    private int spanMetricsMaxErrorTypes;
+
+    // Set by the metrics-bridge profile: the starter then bridges every Micrometer meter into this SDK
+    @Value("${otel.instrumentation.micrometer.enabled:false}")
+    private boolean micrometerBridged;
+
+    // MeterRegistry is only looked up lazily: the starter's Micrometer bridge depends on this bean
     @Bean
-    public OpenTelemetry openTelemetry() {
+    public OpenTelemetry openTelemetry(TraceSamplingProperties samplingProperties,
+                                       ObjectProvider<MeterRegistry> meterRegistry,
+                                       SpanSpoolProperties spoolProperties,
+                                       SpanSpool spanSpool,
+                                       SpanSpoolMetrics spanSpoolMetrics,
+                                       RecentTraceBuffer recentTraceBuffer,
+                                       TelemetryExportProperties exportProperties,
+                                       ExportPipelineMetrics exportPipelineMetrics,
+                                       MetricViewProperties metricViewProperties,
+                                       LoggingMetrics loggingMetrics,
+                                       TelemetryDispatcher telemetryDispatcher) {
+        if (sdkDisabled) {
+            // Custom spans and metrics become no-ops, e.g. to measure telemetry overhead
+            return OpenTelemetry.noop();
+        }
+
         Resource resource = Resource.getDefault().toBuilder()
                 .put(AttributeKey.stringKey("service.name"), serviceName)
                 .put(AttributeKey.stringKey("service.version"), "1.0.0")
@@ -40,28 +95,136 @@ public class OpenTelemetryConfig {
         var meterProviderBuilder = SdkMeterProvider.builder()
                 .setResource(resource);
 
-        if (connectionString != null && !connectionString.isEmpty()) {
-            // Azure Monitor Exporters
-            var azureTraceExporter = new AzureMonitorExporterBuilder()
-                    .connectionString(connectionString)
-                    .buildTraceExporter();
+        // The Azure Monitor exporter only maps explicit-bucket histograms
+        boolean otlp = "otlp".equalsIgnoreCase(exportProperties.getExporter());
+        MetricViews.register(meterProviderBuilder, metricViewProperties, otlp);
 
-            var azureMetricExporter = new AzureMonitorExporterBuilder()
+        SpanExporter traceExporter = null;
+        MetricExporter metricExporter = null;
+        if (otlp) {
+            // OTLP to a local collector, which forwards to the backend
+            // With the spool on, failed batches are retried by the spool rather than the exporter
+            traceExporter = spoolProperties.isEnabled()
+                    ? OtlpExporters.spooledSpanExporter(exportProperties.getOtlp(), spoolProperties.getExportTimeoutMs())
+                    : OtlpExporters.spanExporter(exportProperties.getOtlp());
+            metricExporter = OtlpExporters.metricExporter(exportProperties.getOtlp());
+        } else if (connectionString != null && !connectionString.isEmpty()) {
+            // Azure Monitor Exporters
+            var traceExporterBuilder = new AzureMonitorExporterBuilder()
+                    .connectionString(connectionString);
+            if (spoolProperties.isEnabled()) {
+                // As for OTLP: an HTTP retry finishing after the spool took the batch would send it twice
+                traceExporterBuilder.retryPolicy(new RetryPolicy(new FixedDelay(0, Duration.ZERO)));
+            }
+            traceExporter = traceExporterBuilder.buildTraceExporter();
+            metricExporter = new AzureMonitorExporterBuilder()
                     .connectionString(connectionString)
                     .buildMetricExporter();
+        }
 
-            tracerProviderBuilder.addSpanProcessor(BatchSpanProcessor.builder(azureTraceExporter).build());
-            meterProviderBuilder.registerMetricReader(PeriodicMetricReader.builder(azureMetricExporter)
-                    .setInterval(Duration.ofSeconds(30))
+        SpanProcessor exportProcessor = null;
+        boolean spooling = false;
+        if (traceExporter != null) {
+            traceExporter = new InstrumentedSpanExporter(traceExporter, exportPipelineMetrics);
+            if (spoolProperties.isEnabled()) {
+                // Batches the exporter cannot send are kept on disk and replayed once it recovers
+                traceExporter = new SpoolingSpanExporter(traceExporter, spanSpool, spoolProperties);
+                spooling = true;
+            }
+
+            exportProcessor = BatchSpanProcessor.builder(traceExporter)
+                    .setMaxQueueSize(exportProperties.getMaxQueueSize())
+                    .setMaxExportBatchSize(exportProperties.getMaxExportBatchSize())
+                    .setScheduleDelay(Duration.ofMillis(exportProperties.getScheduleDelayMs()))
+                    .setExporterTimeout(Duration.ofMillis(exportProperties.getExportTimeoutMs()))
+                    .setMeterProvider(exportPipelineMetrics.processorMeterProvider())
+                    .build();
+            meterProviderBuilder.registerMetricReader(PeriodicMetricReader.builder(metricExporter)
+                    .setInterval(Duration.ofMillis(exportProperties.getMetricIntervalMs()))
                     .build());
         }
 
+        SdkMeterProvider meterProvider = meterProviderBuilder.build();
+        // Self-metrics are recorded in Micrometer and on this meter; once Micrometer is bridged into
+        // the provider, the Micrometer copy already ends up here, so the second one is a no-op
+        Meter selfMeter = micrometerBridged
+                ? MeterProvider.noop().get(serviceName)
+                : meterProvider.get(serviceName);
+        if (exportProcessor != null) {
+            exportPipelineMetrics.bindTo(selfMeter, serviceName);
+        }
+        if (spooling) {
+            spanSpoolMetrics.bindTo(selfMeter, serviceName);
+        }
+        loggingMetrics.bindTo(selfMeter);
+        telemetryDispatcher.bindTo(selfMeter);
+
+        // Processors that read the span's status or events share one snapshot per ended span
+        List<SnapshotSpanProcessor> snapshotProcessors = new ArrayList<>();
+        if (spanMetricsEnabled) {
+            // On the SDK meter in both modes: there is no Micrometer copy for the bridge to carry
+            snapshotProcessors.add(new SpanMetricsProcessor(meterProvider.get(serviceName),
+                    serviceName, spanMetricsMaxSpanNames, spanMetricsMaxErrorTypes));
+        }
+        if (recentTracesEnabled) {
+            // Sees recorded spans before the tail sampler decides on them
+            snapshotProcessors.add(new RecentTraceProcessor(recentTraceBuffer));
+        }
+        if (samplingProperties.isEnabled()) {
+            var samplingMetrics = new TraceSamplingMetrics(meterRegistry, selfMeter);
+            // Unsampled traces are only worth recording when something can still export them
+            boolean tailSampling = samplingProperties.getTail().isEnabled() && exportProcessor != null;
+            // Span metrics have to see every span, not only the sampled ones
+            tracerProviderBuilder.setSampler(new RateLimitingSampler(samplingProperties.getTracesPerSecond(),
+                    tailSampling || spanMetricsEnabled, tailSampling, samplingMetrics));
+            if (tailSampling) {
+                snapshotProcessors.add(new TailSamplingSpanProcessor(exportProcessor, samplingProperties.getTail(),
+                        samplingMetrics));
+                exportProcessor = null;
+            }
+        }
+        if (snapshotProcessors.size() == 1) {
+            tracerProviderBuilder.addSpanProcessor(snapshotProcessors.get(0));
+        } else if (!snapshotProcessors.isEmpty()) {
+            tracerProviderBuilder.addSpanProcessor(new SharedSnapshotSpanProcessor(snapshotProcessors));
+        }
+        if (exportProcessor != null) {
+            tracerProviderBuilder.addSpanProcessor(exportProcessor);
+        }
+
         return OpenTelemetrySdk.builder()
                 .setTracerProvider(tracerProviderBuilder.build())
-                .setMeterProvider(meterProviderBuilder.build())
+                .setMeterProvider(meterProvider)
+                // traceparent carries the sampling decision to customer-service
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
                 .buildAndRegisterGlobal();
     }
 
+    @Bean(destroyMethod = "close")
+    public SpanSpool spanSpool(SpanSpoolProperties spoolProperties) {
+        return new SpanSpool(spoolProperties);
+    }
+
+    @Bean
+    public SpanSpoolMetrics spanSpoolMetrics(SpanSpool spanSpool) {
+        return new SpanSpoolMetrics(spanSpool);
+    }
+
+    @Bean
+    public ExportPipelineMetrics exportPipelineMetrics(TelemetryExportProperties exportProperties) {
+        return new ExportPipelineMetrics(exportProperties);
+    }
+
+    @Bean
+    public RecentTraceBuffer recentTraceBuffer() {
+        return new RecentTraceBuffer(recentTracesMaxBytes);
+    }
+
+    @Bean
+    public RecentTracesEndpoint recentTracesEndpoint(RecentTraceBuffer recentTraceBuffer) {
+        return new RecentTracesEndpoint(recentTraceBuffer);
+    }
+
     @Bean
     public Tracer otelTracer(OpenTelemetry openTelemetry) {
         return openTelemetry.getTracer(serviceName);
@@ -0,0 +1,114 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.exporter.otlp.http.metrics.OtlpHttpMetricExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.exporter.otlp.metrics.OtlpGrpcMetricExporter;
+import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
+import io.opentelemetry.sdk.common.export.RetryPolicy;
+import io.opentelemetry.sdk.metrics.export.AggregationTemporalitySelector;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * OTLP span and metric exporters from {@code telemetry.export.otlp.*}, over gRPC or
+ * HTTP/protobuf. Shared with the benchmarks, which compare them with the Azure Monitor exporter.
+ */
+public final class OtlpExporters {
+
+    public static final String GRPC = "grpc";
+    public static final String HTTP_PROTOBUF = "http/protobuf";
+
+    private OtlpExporters() {
+    }
+
+    public static SpanExporter spanExporter(TelemetryExportProperties.Otlp otlp) {
+        return spanExporter(otlp, otlp.getTimeoutMs(), retryPolicy(otlp.getRetry()));
+    }
+
+    /**
+     * Span exporter behind the {@link SpanSpool}, which retries failed batches itself: one attempt,
+     * abandoned no later than the spool gives up on it. A retry that succeeded after the spool had
+     * already taken the batch would export it twice.
+     */
+    public static SpanExporter spooledSpanExporter(TelemetryExportProperties.Otlp otlp, long spoolExportTimeoutMs) {
+        return spanExporter(otlp, Math.min(otlp.getTimeoutMs(), spoolExportTimeoutMs), null);
+    }
+
+    private static SpanExporter spanExporter(TelemetryExportProperties.Otlp otlp, long timeoutMs, RetryPolicy retryPolicy) {
+        if (isGrpc(otlp)) {
+            var builder = OtlpGrpcSpanExporter.builder()
+                    .setEndpoint(endpoint(otlp))
+                    .setCompression(otlp.getCompression())
+                    .setTimeout(Duration.ofMillis(timeoutMs));
+            return (retryPolicy != null ? builder.setRetryPolicy(retryPolicy) : builder).build();
+        }
+        var builder = OtlpHttpSpanExporter.builder()
+                .setEndpoint(endpoint(otlp) + "/v1/traces")
+                .setCompression(otlp.getCompression())
+                .setTimeout(Duration.ofMillis(timeoutMs));
+        return (retryPolicy != null ? builder.setRetryPolicy(retryPolicy) : builder).build();
+    }
+
+    public static MetricExporter metricExporter(TelemetryExportProperties.Otlp otlp) {
+        RetryPolicy retryPolicy = retryPolicy(otlp.getRetry());
+        if (isGrpc(otlp)) {
+            var builder = OtlpGrpcMetricExporter.builder()
+                    .setEndpoint(endpoint(otlp))
+                    .setCompression(otlp.getCompression())
+                    .setTimeout(Duration.ofMillis(otlp.getTimeoutMs()))
+                    .setAggregationTemporalitySelector(temporality(otlp));
+            return (retryPolicy != null ? builder.setRetryPolicy(retryPolicy) : builder).build();
+        }
+        var builder = OtlpHttpMetricExporter.builder()
+                .setEndpoint(endpoint(otlp) + "/v1/metrics")
+                .setCompression(otlp.getCompression())
+                .setTimeout(Duration.ofMillis(otlp.getTimeoutMs()))
+                .setAggregationTemporalitySelector(temporality(otlp));
+        return (retryPolicy != null ? builder.setRetryPolicy(retryPolicy) : builder).build();
+    }
+
+    private static boolean isGrpc(TelemetryExportProperties.Otlp otlp) {
+        if (GRPC.equalsIgnoreCase(otlp.getProtocol())) {
+            return true;
+        }
+        if (HTTP_PROTOBUF.equalsIgnoreCase(otlp.getProtocol())) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unsupported OTLP protocol '" + otlp.getProtocol()
+                + "', expected " + GRPC + " or " + HTTP_PROTOBUF);
+    }
+
+    private static String endpoint(TelemetryExportProperties.Otlp otlp) {
+        String endpoint = otlp.getEndpoint();
+        if (endpoint == null || endpoint.isBlank()) {
+            return isGrpc(otlp) ? "http://localhost:4317" : "http://localhost:4318";
+        }
+        return endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+    }
+
+    private static AggregationTemporalitySelector temporality(TelemetryExportProperties.Otlp otlp) {
+        return switch (otlp.getTemporality().toLowerCase(Locale.ROOT)) {
+            case "cumulative" -> AggregationTemporalitySelector.alwaysCumulative();
+            case "delta" -> AggregationTemporalitySelector.deltaPreferred();
+            case "low-memory" -> AggregationTemporalitySelector.lowMemory();
+            default -> throw new IllegalArgumentException("Unsupported metric temporality '" + otlp.getTemporality()
+                    + "', expected cumulative, delta or low-memory");
+        };
+    }
+
+    // null when retries are disabled (the exporters' default)
+    private static RetryPolicy retryPolicy(TelemetryExportProperties.Retry retry) {
+        if (!retry.isEnabled()) {
+            return null;
+        }
+        return RetryPolicy.builder()
+                .setMaxAttempts(retry.getMaxAttempts())
+                .setInitialBackoff(Duration.ofMillis(retry.getInitialBackoffMs()))
+                .setMaxBackoff(Duration.ofMillis(retry.getMaxBackoffMs()))
+                .setBackoffMultiplier(retry.getBackoffMultiplier())
+                .build();
+    }
+}
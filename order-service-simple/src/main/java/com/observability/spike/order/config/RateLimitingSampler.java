@@ -0,0 +1,86 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.util.List;
+
+/**
+ * Parent-based head sampler. A span with a parent follows the parent's decision, so a trace
+ * sampled upstream (and propagated in {@code traceparent}) stays sampled here and downstream.
+ * A new trace is sampled while the rate limit allows; otherwise, with a tail buffer configured,
+ * it is still recorded (but not marked sampled) so {@link TailSamplingSpanProcessor} can keep it
+ * by rule. Unsampled traces are also recorded, and never exported, while span metrics are on;
+ * with neither they are dropped outright.
+ */
+class RateLimitingSampler implements Sampler {
+
+    private static final SamplingResult RECORD_AND_SAMPLE = SamplingResult.create(SamplingDecision.RECORD_AND_SAMPLE);
+    private static final SamplingResult RECORD_ONLY = SamplingResult.create(SamplingDecision.RECORD_ONLY);
+    private static final SamplingResult DROP = SamplingResult.create(SamplingDecision.DROP);
+
+    private final TraceRateLimiter rateLimiter;
+    private final double tracesPerSecond;
+    private final SamplingResult notSampled;
+    private final boolean tailSampling;
+    private final TraceSamplingMetrics metrics;
+
+    RateLimitingSampler(double tracesPerSecond, boolean recordUnsampled, boolean tailSampling,
+                        TraceSamplingMetrics metrics) {
+        this.rateLimiter = new TraceRateLimiter(tracesPerSecond);
+        this.tracesPerSecond = tracesPerSecond;
+        this.notSampled = recordUnsampled ? RECORD_ONLY : DROP;
+        this.tailSampling = tailSampling;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                                       Attributes attributes, List<LinkData> parentLinks) {
+        Span parentSpan = Span.fromContext(parentContext);
+        SpanContext parent = parentSpan.getSpanContext();
+
+        if (parent.isValid() && !parent.isRemote()) {
+            // Local child: same decision as its parent, recording included
+            if (parent.isSampled()) {
+                return RECORD_AND_SAMPLE;
+            }
+            return parentSpan.isRecording() ? RECORD_ONLY : DROP;
+        }
+
+        // The local root of a trace decides, and is counted, once per trace in this service
+        if (parent.isValid()) {
+            if (parent.isSampled()) {
+                metrics.record(TraceSamplingMetrics.SAMPLED, "parent");
+                return RECORD_AND_SAMPLE;
+            }
+            return unsampled("parent");
+        }
+        if (rateLimiter.tryAcquire()) {
+            metrics.record(TraceSamplingMetrics.SAMPLED, "rate_limit");
+            return RECORD_AND_SAMPLE;
+        }
+        return unsampled("rate_limit");
+    }
+
+    private SamplingResult unsampled(String reason) {
+        // Traces in the tail buffer are counted once it has decided on them
+        if (!tailSampling) {
+            metrics.record(TraceSamplingMetrics.DROPPED, reason);
+        }
+        return notSampled;
+    }
+
+    @Override
+    public String getDescription() {
+        return "RateLimitingSampler{tracesPerSecond=" + tracesPerSecond + ", recordUnsampled=" + (notSampled == RECORD_ONLY)
+                + ", tailSampling=" + tailSampling + "}";
+    }
+}
@@ -0,0 +1,58 @@
+package com.observability.spike.order.config;
+
+import com.observability.spike.order.service.CustomerEndpointBalancer;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    @Value("${customer-service.base-url:http://localhost:8081}")
+    private String customerServiceBaseUrl;
+
+    @Value("${customer-service.http.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${customer-service.http.idle-evict-ms:15000}")
+    private long idleEvictMs;
+
+    @Value("${customer-service.http.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    @Value("${customer-service.http.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${customer-service.http.connection-request-timeout-ms:1000}")
+    private long connectionRequestTimeoutMs;
+
+    @Bean
+    public WebClient customerServiceWebClient(WebClient.Builder webClientBuilder, CustomerEndpointBalancer balancer) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("customer-service")
+                .maxConnections(maxConnections)
+                .maxIdleTime(Duration.ofMillis(idleEvictMs))
+                .pendingAcquireTimeout(Duration.ofMillis(connectionRequestTimeoutMs))
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+
+        return webClientBuilder
+                .baseUrl(customerServiceBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                // Route each request to the endpoint picked by the balancer
+                .filter(balancer.exchangeFilter())
+                .build();
+    }
+}
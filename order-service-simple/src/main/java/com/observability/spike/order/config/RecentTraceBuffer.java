@@ -0,0 +1,349 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The most recently ended spans, oldest evicted first once their estimated size passes a byte
+ * budget. Spans are indexed by trace id, and traces by their {@code order.id} and
+ * {@code customer.id} attribute values, for {@link RecentTracesEndpoint}. Attribute values are
+ * kept as truncated strings and events by name only, so a span costs a few hundred bytes.
+ */
+class RecentTraceBuffer {
+
+    static final String ORDER_ID = "order.id";
+    static final String CUSTOMER_ID = "customer.id";
+
+    private static final int MAX_ATTRIBUTE_LENGTH = 256;
+    private static final int MAX_EVENTS = 16;
+    // Rough per-object costs for the size estimate: span record and arrays, index entries
+    private static final int SPAN_OVERHEAD_BYTES = 160;
+    private static final int TRACE_OVERHEAD_BYTES = 256;
+    private static final int INDEX_ENTRY_BYTES = 64;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private final long maxBytes;
+    // Oldest first
+    private final ArrayDeque<RecentSpan> spans = new ArrayDeque<>();
+    private final Map<String, RecentTrace> traces = new HashMap<>();
+    private final Map<String, Set<String>> tracesByOrderId = new HashMap<>();
+    private final Map<String, Set<String>> tracesByCustomerId = new HashMap<>();
+    private long bytes;
+
+    RecentTraceBuffer(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // Runs on request threads as spans end: the span is converted before taking the lock
+    void add(SpanData data) {
+        RecentSpan span = RecentSpan.of(data);
+        synchronized (this) {
+            RecentTrace trace = traces.get(span.traceId);
+            if (trace == null) {
+                trace = new RecentTrace();
+                traces.put(span.traceId, trace);
+                bytes += TRACE_OVERHEAD_BYTES + stringBytes(span.traceId);
+            }
+            trace.add(span);
+            index(tracesByOrderId, trace.orderIds, span.attribute(ORDER_ID), span.traceId);
+            index(tracesByCustomerId, trace.customerIds, span.attribute(CUSTOMER_ID), span.traceId);
+            spans.addLast(span);
+            bytes += span.estimatedBytes;
+
+            while (bytes > maxBytes && !spans.isEmpty()) {
+                evict(spans.removeFirst());
+            }
+        }
+    }
+
+    /**
+     * Traces with at least one span in the buffer, most recent (or slowest) first, optionally only
+     * those for an order or customer, or with (or without) an error.
+     */
+    List<TraceSummary> traces(String orderId, String customerId, Boolean error, boolean slowest, int limit) {
+        // Only span references are copied under the lock; filtering, building and sorting the
+        // summaries do not hold up add()
+        List<TraceSnapshot> candidates;
+        synchronized (this) {
+            Set<String> traceIds = orderId != null ? tracesByOrderId.getOrDefault(orderId, Set.of())
+                    : customerId != null ? tracesByCustomerId.getOrDefault(customerId, Set.of())
+                    : traces.keySet();
+            candidates = new ArrayList<>(traceIds.size());
+            for (String traceId : traceIds) {
+                candidates.add(traces.get(traceId).snapshot(traceId));
+            }
+        }
+
+        List<TraceSummary> summaries = new ArrayList<>();
+        for (TraceSnapshot trace : candidates) {
+            if ((customerId == null || trace.hasCustomer(customerId))
+                    && (error == null || trace.hasError() == error)) {
+                summaries.add(trace.summary());
+            }
+        }
+        summaries.sort(slowest
+                ? Comparator.comparingDouble(TraceSummary::durationMs).reversed()
+                : Comparator.comparing(TraceSummary::start).reversed());
+        return summaries.size() > limit ? List.copyOf(summaries.subList(0, limit)) : summaries;
+    }
+
+    /** The trace's spans as a tree under its local root(s), or null if none are buffered. */
+    synchronized List<SpanNode> trace(String traceId) {
+        RecentTrace trace = traces.get(traceId);
+        return trace != null ? trace.tree() : null;
+    }
+
+    synchronized long estimatedBytes() {
+        return bytes;
+    }
+
+    synchronized int spanCount() {
+        return spans.size();
+    }
+
+    private void evict(RecentSpan span) {
+        bytes -= span.estimatedBytes;
+        RecentTrace trace = traces.get(span.traceId);
+        if (trace == null || !trace.remove(span)) {
+            return;
+        }
+        traces.remove(span.traceId);
+        bytes -= TRACE_OVERHEAD_BYTES + stringBytes(span.traceId);
+        unindex(tracesByOrderId, trace.orderIds, span.traceId);
+        unindex(tracesByCustomerId, trace.customerIds, span.traceId);
+    }
+
+    private void index(Map<String, Set<String>> index, Set<String> traceValues, String value, String traceId) {
+        if (value != null && traceValues.add(value)) {
+            index.computeIfAbsent(value, key -> new HashSet<>()).add(traceId);
+            bytes += INDEX_ENTRY_BYTES + stringBytes(value);
+        }
+    }
+
+    private void unindex(Map<String, Set<String>> index, Set<String> traceValues, String traceId) {
+        for (String value : traceValues) {
+            bytes -= INDEX_ENTRY_BYTES + stringBytes(value);
+            Set<String> traceIds = index.get(value);
+            if (traceIds != null && traceIds.remove(traceId) && traceIds.isEmpty()) {
+                index.remove(value);
+            }
+        }
+    }
+
+    private static int stringBytes(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + value.length();
+    }
+
+    private static final class RecentTrace {
+
+        // In end order, so eviction (oldest first) always takes the head
+        private final ArrayDeque<RecentSpan> spans = new ArrayDeque<>();
+        private final Set<String> orderIds = new TreeSet<>();
+        private final Set<String> customerIds = new TreeSet<>();
+
+        void add(RecentSpan span) {
+            spans.addLast(span);
+        }
+
+        // True once the trace has no spans left
+        boolean remove(RecentSpan span) {
+            if (spans.peekFirst() == span) {
+                spans.removeFirst();
+            } else {
+                spans.remove(span);
+            }
+            return spans.isEmpty();
+        }
+
+        TraceSnapshot snapshot(String traceId) {
+            return new TraceSnapshot(traceId, spans.toArray(new RecentSpan[0]),
+                    orderIds.toArray(new String[0]), customerIds.toArray(new String[0]));
+        }
+
+        List<SpanNode> tree() {
+            Map<String, List<RecentSpan>> children = new HashMap<>();
+            Set<String> spanIds = spanIds(spans);
+            List<RecentSpan> roots = new ArrayList<>();
+            for (RecentSpan span : spans) {
+                if (spanIds.contains(span.parentSpanId)) {
+                    children.computeIfAbsent(span.parentSpanId, id -> new ArrayList<>()).add(span);
+                } else {
+                    // The local root, or a span whose parent was evicted or is remote
+                    roots.add(span);
+                }
+            }
+            return nodes(roots, children);
+        }
+
+        private static List<SpanNode> nodes(List<RecentSpan> spans, Map<String, List<RecentSpan>> children) {
+            List<SpanNode> nodes = new ArrayList<>(spans.size());
+            spans.stream()
+                    .sorted(Comparator.comparingLong(span -> span.startEpochNanos))
+                    .forEach(span -> nodes.add(span.node(nodes(children.getOrDefault(span.spanId, List.of()), children))));
+            return nodes;
+        }
+    }
+
+    // A trace's spans and ids as of the query; the spans themselves are immutable
+    private record TraceSnapshot(String traceId, RecentSpan[] spans, String[] orderIds, String[] customerIds) {
+
+        boolean hasCustomer(String customerId) {
+            return Arrays.asList(customerIds).contains(customerId);
+        }
+
+        boolean hasError() {
+            for (RecentSpan span : spans) {
+                if (span.error) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        TraceSummary summary() {
+            long start = Long.MAX_VALUE;
+            long end = Long.MIN_VALUE;
+            RecentSpan root = null;
+            Set<String> spanIds = spanIds(Arrays.asList(spans));
+            for (RecentSpan span : spans) {
+                start = Math.min(start, span.startEpochNanos);
+                end = Math.max(end, span.startEpochNanos + span.durationNanos);
+                if (!spanIds.contains(span.parentSpanId) && (root == null || span.startEpochNanos < root.startEpochNanos)) {
+                    root = span;
+                }
+            }
+            return new TraceSummary(traceId, root.name, instant(start), (end - start) / 1_000_000.0,
+                    spans.length, hasError(), Set.of(orderIds), Set.of(customerIds));
+        }
+    }
+
+    private static final class RecentSpan {
+
+        private final String traceId;
+        private final String spanId;
+        private final String parentSpanId;
+        private final String name;
+        private final String kind;
+        private final long startEpochNanos;
+        private final long durationNanos;
+        private final boolean error;
+        private final String statusDescription;
+        // Alternating keys and values
+        private final String[] attributes;
+        private final String[] eventNames;
+        private final long[] eventOffsetsNanos;
+        private final int estimatedBytes;
+
+        private RecentSpan(SpanData data, String[] attributes, String[] eventNames, long[] eventOffsetsNanos) {
+            SpanContext parent = data.getParentSpanContext();
+            this.traceId = data.getTraceId();
+            this.spanId = data.getSpanId();
+            this.parentSpanId = parent.isValid() ? parent.getSpanId() : null;
+            this.name = data.getName();
+            this.kind = data.getKind().name();
+            this.startEpochNanos = data.getStartEpochNanos();
+            this.durationNanos = data.getEndEpochNanos() - data.getStartEpochNanos();
+            this.error = data.getStatus().getStatusCode() == StatusCode.ERROR;
+            String description = data.getStatus().getDescription();
+            this.statusDescription = description.isEmpty() ? null : truncate(description);
+            this.attributes = attributes;
+            this.eventNames = eventNames;
+            this.eventOffsetsNanos = eventOffsetsNanos;
+
+            int size = SPAN_OVERHEAD_BYTES + stringBytes(spanId) + stringBytes(parentSpanId)
+                    + stringBytes(name) + stringBytes(statusDescription) + 8 * eventOffsetsNanos.length;
+            for (String value : attributes) {
+                size += 4 + stringBytes(value);
+            }
+            for (String eventName : eventNames) {
+                size += 4 + stringBytes(eventName);
+            }
+            this.estimatedBytes = size;
+        }
+
+        static RecentSpan of(SpanData data) {
+            String[] attributes = new String[data.getAttributes().size() * 2];
+            int[] next = {0};
+            data.getAttributes().forEach((AttributeKey<?> key, Object value) -> {
+                attributes[next[0]++] = key.getKey();
+                attributes[next[0]++] = truncate(String.valueOf(value));
+            });
+
+            List<EventData> events = data.getEvents();
+            int eventCount = Math.min(events.size(), MAX_EVENTS);
+            String[] eventNames = new String[eventCount];
+            long[] eventOffsets = new long[eventCount];
+            for (int i = 0; i < eventCount; i++) {
+                eventNames[i] = events.get(i).getName();
+                eventOffsets[i] = events.get(i).getEpochNanos() - data.getStartEpochNanos();
+            }
+            return new RecentSpan(data, attributes, eventNames, eventOffsets);
+        }
+
+        String attribute(String key) {
+            for (int i = 0; i < attributes.length; i += 2) {
+                if (attributes[i].equals(key)) {
+                    return attributes[i + 1];
+                }
+            }
+            return null;
+        }
+
+        SpanNode node(List<SpanNode> children) {
+            Map<String, String> attributeMap = new LinkedHashMap<>();
+            for (int i = 0; i < attributes.length; i += 2) {
+                attributeMap.put(attributes[i], attributes[i + 1]);
+            }
+            List<SpanEvent> events = new ArrayList<>(eventNames.length);
+            for (int i = 0; i < eventNames.length; i++) {
+                events.add(new SpanEvent(eventNames[i], eventOffsetsNanos[i] / 1_000_000.0));
+            }
+            return new SpanNode(spanId, name, kind, instant(startEpochNanos), durationNanos / 1_000_000.0,
+                    error, statusDescription, attributeMap, events, children);
+        }
+
+        private static String truncate(String value) {
+            return value.length() > MAX_ATTRIBUTE_LENGTH ? value.substring(0, MAX_ATTRIBUTE_LENGTH) : value;
+        }
+    }
+
+    private static Set<String> spanIds(Iterable<RecentSpan> spans) {
+        Set<String> spanIds = new HashSet<>();
+        for (RecentSpan span : spans) {
+            spanIds.add(span.spanId);
+        }
+        return spanIds;
+    }
+
+    private static Instant instant(long epochNanos) {
+        return Instant.ofEpochSecond(0, epochNanos);
+    }
+
+    record TraceSummary(String traceId, String rootSpan, Instant start, double durationMs, int spanCount,
+                        boolean error, Set<String> orderIds, Set<String> customerIds) {
+    }
+
+    record SpanNode(String spanId, String name, String kind, Instant start, double durationMs, boolean error,
+                    String status, Map<String, String> attributes, List<SpanEvent> events, List<SpanNode> children) {
+    }
+
+    // offsetMs is relative to the span start
+    record SpanEvent(String name, double offsetMs) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+/**
+ * Hands every recorded span to the {@link RecentTraceBuffer} as it ends, whether or not it is
+ * sampled for export.
+ */
+class RecentTraceProcessor implements SnapshotSpanProcessor {
+
+    private final RecentTraceBuffer buffer;
+
+    RecentTraceProcessor(RecentTraceBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span, SpanData snapshot) {
+        buffer.add(snapshot);
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package com.observability.spike.order.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * {@code /actuator/traces}: spans recently ended in this process, without waiting for ingestion.
+ * <ul>
+ *   <li>{@code GET /actuator/traces?orderId=&customerId=&error=true&sort=slowest&limit=20} lists traces</li>
+ *   <li>{@code GET /actuator/traces/{traceId}} returns a trace's span tree</li>
+ * </ul>
+ */
+@Endpoint(id = "traces")
+public class RecentTracesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final RecentTraceBuffer buffer;
+
+    RecentTracesEndpoint(RecentTraceBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @ReadOperation
+    public List<RecentTraceBuffer.TraceSummary> traces(@Nullable String orderId, @Nullable String customerId,
+                                                       @Nullable Boolean error, @Nullable String sort,
+                                                       @Nullable Integer limit) {
+        return buffer.traces(orderId, customerId, error, "slowest".equalsIgnoreCase(sort),
+                limit != null && limit > 0 ? limit : DEFAULT_LIMIT);
+    }
+
+    // null answers 404
+    @ReadOperation
+    public List<RecentTraceBuffer.SpanNode> trace(@Selector String traceId) {
+        return buffer.trace(traceId);
+    }
+}
@@ -0,0 +1,63 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.util.List;
+
+/**
+ * Calls each {@link SnapshotSpanProcessor} in order, with one {@link SpanData} snapshot per ended
+ * span. {@code toSpanData()} copies the span's attributes, events and links, so taking it once
+ * rather than per processor keeps that copy off the request thread's hot path.
+ */
+class SharedSnapshotSpanProcessor implements SpanProcessor {
+
+    private final List<SnapshotSpanProcessor> processors;
+    private final boolean startRequired;
+
+    SharedSnapshotSpanProcessor(List<SnapshotSpanProcessor> processors) {
+        this.processors = List.copyOf(processors);
+        this.startRequired = processors.stream().anyMatch(SpanProcessor::isStartRequired);
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        for (SnapshotSpanProcessor processor : processors) {
+            if (processor.isStartRequired()) {
+                processor.onStart(parentContext, span);
+            }
+        }
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return startRequired;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        SpanData snapshot = span.toSpanData();
+        for (SnapshotSpanProcessor processor : processors) {
+            processor.onEnd(span, snapshot);
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofAll(processors.stream().map(SpanProcessor::shutdown).toList());
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return CompletableResultCode.ofAll(processors.stream().map(SpanProcessor::forceFlush).toList());
+    }
+}
@@ -0,0 +1,20 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+/**
+ * A span processor that needs more of an ended span than {@link ReadableSpan} exposes, such as
+ * its status. Registered through {@link SharedSnapshotSpanProcessor}, it is handed a snapshot
+ * taken once for all of them; on its own it takes one itself.
+ */
+interface SnapshotSpanProcessor extends SpanProcessor {
+
+    void onEnd(ReadableSpan span, SpanData snapshot);
+
+    @Override
+    default void onEnd(ReadableSpan span) {
+        onEnd(span, span.toSpanData());
+    }
+}
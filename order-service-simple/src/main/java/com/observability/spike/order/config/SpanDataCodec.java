@@ -0,0 +1,448 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.AttributeType;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.TraceStateBuilder;
+import io.opentelemetry.sdk.common.InstrumentationLibraryInfo;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.StatusData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary form of a span batch for the span spool. Everything an exporter reads from
+ * {@link SpanData} round-trips; the resource and instrumentation scope are written once per run
+ * of spans sharing them, which in practice is once per batch.
+ */
+final class SpanDataCodec {
+
+    private static final AttributeType[] ATTRIBUTE_TYPES = AttributeType.values();
+    private static final SpanKind[] SPAN_KINDS = SpanKind.values();
+    private static final StatusCode[] STATUS_CODES = StatusCode.values();
+
+    private SpanDataCodec() {
+    }
+
+    static byte[] encode(Collection<SpanData> spans) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * spans.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(spans.size());
+            Resource previousResource = null;
+            InstrumentationScopeInfo previousScope = null;
+            for (SpanData span : spans) {
+                Resource resource = span.getResource();
+                out.writeBoolean(resource.equals(previousResource));
+                if (!resource.equals(previousResource)) {
+                    writeAttributes(out, resource.getAttributes());
+                    writeNullableString(out, resource.getSchemaUrl());
+                    previousResource = resource;
+                }
+                InstrumentationScopeInfo scope = span.getInstrumentationScopeInfo();
+                out.writeBoolean(scope.equals(previousScope));
+                if (!scope.equals(previousScope)) {
+                    writeString(out, scope.getName());
+                    writeNullableString(out, scope.getVersion());
+                    writeNullableString(out, scope.getSchemaUrl());
+                    writeAttributes(out, scope.getAttributes());
+                    previousScope = scope;
+                }
+                writeSpan(out, span);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<SpanData> decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int count = in.readInt();
+        List<SpanData> spans = new ArrayList<>(count);
+        Resource resource = null;
+        InstrumentationScopeInfo scope = null;
+        for (int i = 0; i < count; i++) {
+            if (!in.readBoolean()) {
+                Attributes attributes = readAttributes(in);
+                resource = Resource.create(attributes, readNullableString(in));
+            }
+            if (!in.readBoolean()) {
+                String name = readString(in);
+                String version = readNullableString(in);
+                String schemaUrl = readNullableString(in);
+                scope = InstrumentationScopeInfo.builder(name)
+                        .setVersion(version)
+                        .setSchemaUrl(schemaUrl)
+                        .setAttributes(readAttributes(in))
+                        .build();
+            }
+            spans.add(readSpan(in, resource, scope));
+        }
+        return spans;
+    }
+
+    private static void writeSpan(DataOutputStream out, SpanData span) throws IOException {
+        writeSpanContext(out, span.getSpanContext());
+        SpanContext parent = span.getParentSpanContext();
+        out.writeBoolean(parent.isValid());
+        if (parent.isValid()) {
+            writeSpanContext(out, parent);
+            out.writeBoolean(parent.isRemote());
+        }
+        writeString(out, span.getName());
+        out.writeByte(span.getKind().ordinal());
+        out.writeLong(span.getStartEpochNanos());
+        out.writeLong(span.getEndEpochNanos());
+        out.writeByte(span.getStatus().getStatusCode().ordinal());
+        writeString(out, span.getStatus().getDescription());
+        writeAttributes(out, span.getAttributes());
+        out.writeInt(span.getTotalAttributeCount());
+
+        out.writeInt(span.getEvents().size());
+        for (EventData event : span.getEvents()) {
+            writeString(out, event.getName());
+            out.writeLong(event.getEpochNanos());
+            writeAttributes(out, event.getAttributes());
+            out.writeInt(event.getTotalAttributeCount());
+        }
+        out.writeInt(span.getTotalRecordedEvents());
+
+        out.writeInt(span.getLinks().size());
+        for (LinkData link : span.getLinks()) {
+            writeSpanContext(out, link.getSpanContext());
+            writeAttributes(out, link.getAttributes());
+            out.writeInt(link.getTotalAttributeCount());
+        }
+        out.writeInt(span.getTotalRecordedLinks());
+    }
+
+    private static SpanData readSpan(DataInputStream in, Resource resource, InstrumentationScopeInfo scope) throws IOException {
+        SpanContext spanContext = readSpanContext(in);
+        SpanContext parent = SpanContext.getInvalid();
+        if (in.readBoolean()) {
+            SpanContext context = readSpanContext(in);
+            if (in.readBoolean()) {
+                context = SpanContext.createFromRemoteParent(context.getTraceId(), context.getSpanId(),
+                        context.getTraceFlags(), context.getTraceState());
+            }
+            parent = context;
+        }
+        String name = readString(in);
+        SpanKind kind = SPAN_KINDS[in.readByte()];
+        long start = in.readLong();
+        long end = in.readLong();
+        StatusData status = StatusData.create(STATUS_CODES[in.readByte()], readString(in));
+        Attributes attributes = readAttributes(in);
+        int totalAttributeCount = in.readInt();
+
+        int eventCount = in.readInt();
+        List<EventData> events = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            String eventName = readString(in);
+            long epochNanos = in.readLong();
+            events.add(EventData.create(epochNanos, eventName, readAttributes(in), in.readInt()));
+        }
+        int totalRecordedEvents = in.readInt();
+
+        int linkCount = in.readInt();
+        List<LinkData> links = new ArrayList<>(linkCount);
+        for (int i = 0; i < linkCount; i++) {
+            SpanContext linked = readSpanContext(in);
+            links.add(LinkData.create(linked, readAttributes(in), in.readInt()));
+        }
+        int totalRecordedLinks = in.readInt();
+
+        return new SpooledSpanData(name, kind, spanContext, parent, status, start, end, attributes, events, links,
+                totalRecordedEvents, totalRecordedLinks, totalAttributeCount, scope, resource);
+    }
+
+    private static void writeSpanContext(DataOutputStream out, SpanContext context) throws IOException {
+        writeString(out, context.getTraceId());
+        writeString(out, context.getSpanId());
+        out.writeByte(context.getTraceFlags().asByte());
+        Map<String, String> traceState = context.getTraceState().asMap();
+        out.writeShort(traceState.size());
+        for (Map.Entry<String, String> entry : traceState.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static SpanContext readSpanContext(DataInputStream in) throws IOException {
+        String traceId = readString(in);
+        String spanId = readString(in);
+        TraceFlags flags = TraceFlags.fromByte(in.readByte());
+        int entries = in.readShort();
+        TraceState traceState = TraceState.getDefault();
+        if (entries > 0) {
+            TraceStateBuilder builder = TraceState.builder();
+            for (int i = 0; i < entries; i++) {
+                builder.put(readString(in), readString(in));
+            }
+            traceState = builder.build();
+        }
+        return SpanContext.create(traceId, spanId, flags, traceState);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeAttributes(DataOutputStream out, Attributes attributes) throws IOException {
+        out.writeShort(attributes.size());
+        for (Map.Entry<AttributeKey<?>, Object> entry : attributes.asMap().entrySet()) {
+            AttributeKey<?> key = entry.getKey();
+            Object value = entry.getValue();
+            writeString(out, key.getKey());
+            out.writeByte(key.getType().ordinal());
+            switch (key.getType()) {
+                case STRING -> writeString(out, (String) value);
+                case BOOLEAN -> out.writeBoolean((Boolean) value);
+                case LONG -> out.writeLong((Long) value);
+                case DOUBLE -> out.writeDouble((Double) value);
+                case STRING_ARRAY -> {
+                    List<String> values = (List<String>) value;
+                    out.writeShort(values.size());
+                    for (String element : values) {
+                        writeString(out, element);
+                    }
+                }
+                case BOOLEAN_ARRAY -> {
+                    List<Boolean> values = (List<Boolean>) value;
+                    out.writeShort(values.size());
+                    for (Boolean element : values) {
+                        out.writeBoolean(element);
+                    }
+                }
+                case LONG_ARRAY -> {
+                    List<Long> values = (List<Long>) value;
+                    out.writeShort(values.size());
+                    for (Long element : values) {
+                        out.writeLong(element);
+                    }
+                }
+                case DOUBLE_ARRAY -> {
+                    List<Double> values = (List<Double>) value;
+                    out.writeShort(values.size());
+                    for (Double element : values) {
+                        out.writeDouble(element);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Attributes readAttributes(DataInputStream in) throws IOException {
+        int size = in.readShort();
+        if (size == 0) {
+            return Attributes.empty();
+        }
+        AttributesBuilder builder = Attributes.builder();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            switch (ATTRIBUTE_TYPES[in.readByte()]) {
+                case STRING -> builder.put(AttributeKey.stringKey(key), readString(in));
+                case BOOLEAN -> builder.put(AttributeKey.booleanKey(key), in.readBoolean());
+                case LONG -> builder.put(AttributeKey.longKey(key), in.readLong());
+                case DOUBLE -> builder.put(AttributeKey.doubleKey(key), in.readDouble());
+                case STRING_ARRAY -> {
+                    List<String> values = new ArrayList<>();
+                    for (int n = in.readShort(); n > 0; n--) {
+                        values.add(readString(in));
+                    }
+                    builder.put(AttributeKey.stringArrayKey(key), values);
+                }
+                case BOOLEAN_ARRAY -> {
+                    List<Boolean> values = new ArrayList<>();
+                    for (int n = in.readShort(); n > 0; n--) {
+                        values.add(in.readBoolean());
+                    }
+                    builder.put(AttributeKey.booleanArrayKey(key), values);
+                }
+                case LONG_ARRAY -> {
+                    List<Long> values = new ArrayList<>();
+                    for (int n = in.readShort(); n > 0; n--) {
+                        values.add(in.readLong());
+                    }
+                    builder.put(AttributeKey.longArrayKey(key), values);
+                }
+                case DOUBLE_ARRAY -> {
+                    List<Double> values = new ArrayList<>();
+                    for (int n = in.readShort(); n > 0; n--) {
+                        values.add(in.readDouble());
+                    }
+                    builder.put(AttributeKey.doubleArrayKey(key), values);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // Length-prefixed UTF-8 rather than writeUTF, which stops at 64 KB (exception stack traces can be longer)
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    private static final class SpooledSpanData implements SpanData {
+
+        private final String name;
+        private final SpanKind kind;
+        private final SpanContext spanContext;
+        private final SpanContext parentSpanContext;
+        private final StatusData status;
+        private final long startEpochNanos;
+        private final long endEpochNanos;
+        private final Attributes attributes;
+        private final List<EventData> events;
+        private final List<LinkData> links;
+        private final int totalRecordedEvents;
+        private final int totalRecordedLinks;
+        private final int totalAttributeCount;
+        private final InstrumentationScopeInfo scope;
+        private final Resource resource;
+
+        private SpooledSpanData(String name, SpanKind kind, SpanContext spanContext, SpanContext parentSpanContext,
+                                StatusData status, long startEpochNanos, long endEpochNanos, Attributes attributes,
+                                List<EventData> events, List<LinkData> links, int totalRecordedEvents,
+                                int totalRecordedLinks, int totalAttributeCount, InstrumentationScopeInfo scope,
+                                Resource resource) {
+            this.name = name;
+            this.kind = kind;
+            this.spanContext = spanContext;
+            this.parentSpanContext = parentSpanContext;
+            this.status = status;
+            this.startEpochNanos = startEpochNanos;
+            this.endEpochNanos = endEpochNanos;
+            this.attributes = attributes;
+            this.events = events;
+            this.links = links;
+            this.totalRecordedEvents = totalRecordedEvents;
+            this.totalRecordedLinks = totalRecordedLinks;
+            this.totalAttributeCount = totalAttributeCount;
+            this.scope = scope;
+            this.resource = resource;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public SpanKind getKind() {
+            return kind;
+        }
+
+        @Override
+        public SpanContext getSpanContext() {
+            return spanContext;
+        }
+
+        @Override
+        public SpanContext getParentSpanContext() {
+            return parentSpanContext;
+        }
+
+        @Override
+        public StatusData getStatus() {
+            return status;
+        }
+
+        @Override
+        public long getStartEpochNanos() {
+            return startEpochNanos;
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<EventData> getEvents() {
+            return events;
+        }
+
+        @Override
+        public List<LinkData> getLinks() {
+            return links;
+        }
+
+        @Override
+        public long getEndEpochNanos() {
+            return endEpochNanos;
+        }
+
+        @Override
+        public boolean hasEnded() {
+            return true;
+        }
+
+        @Override
+        public int getTotalRecordedEvents() {
+            return totalRecordedEvents;
+        }
+
+        @Override
+        public int getTotalRecordedLinks() {
+            return totalRecordedLinks;
+        }
+
+        @Override
+        public int getTotalAttributeCount() {
+            return totalAttributeCount;
+        }
+
+        @Override
+        @Deprecated
+        public InstrumentationLibraryInfo getInstrumentationLibraryInfo() {
+            return InstrumentationLibraryInfo.create(scope.getName(), scope.getVersion(), scope.getSchemaUrl());
+        }
+
+        @Override
+        public InstrumentationScopeInfo getInstrumentationScopeInfo() {
+            return scope;
+        }
+
+        @Override
+        public Resource getResource() {
+            return resource;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rate, error and duration (RED) metrics derived from every recorded span as it ends, per span
+ * name, kind, status and, for errors, {@code error.type}: {@code span.calls} and
+ * {@code span.duration}, recorded on the SDK meter provider only, aggregated there and exported on
+ * the metric reader interval. There is no Micrometer copy, so each series is exported once with or
+ * without the metrics-bridge profile. Span names past {@code maxSpanNames}, and error types past
+ * {@code maxErrorTypes} per name, are folded into {@code _OTHER}. The status is read from the span
+ * snapshot shared through {@link SharedSnapshotSpanProcessor}.
+ *
+ * <p>Replaces the hand-recorded outcome metrics: {@code order.processing.success},
+ * {@code order.processing.failure} and {@code order.processing.operations} are
+ * {@code span.calls{span.name="order.processing"}} by {@code status.code} and {@code error.type};
+ * {@code customer.enrichment.duration} is {@code span.duration{span.name="customer.enrichment"}},
+ * and {@code customer.enrichment.failure(s)} its {@code status.code="ERROR"} series.
+ */
+public class SpanMetricsProcessor implements SnapshotSpanProcessor {
+
+    static final AttributeKey<String> ERROR_TYPE = AttributeKey.stringKey("error.type");
+    // Overflow value for error.type in the OTel semantic conventions, reused for span names
+    static final String OTHER = "_OTHER";
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+    private static final AttributeKey<String> SPAN_NAME = AttributeKey.stringKey("span.name");
+    private static final AttributeKey<String> SPAN_KIND = AttributeKey.stringKey("span.kind");
+    private static final AttributeKey<String> STATUS_CODE = AttributeKey.stringKey("status.code");
+    private static final int STATUS_CODES = StatusCode.values().length;
+    private static final int SERIES_PER_NAME = SpanKind.values().length * STATUS_CODES;
+
+    private final String serviceName;
+    private final int maxSpanNames;
+    private final int maxErrorTypes;
+    private final LongCounter calls;
+    private final DoubleHistogram duration;
+    private final Map<String, SpanNameSeries> byName = new ConcurrentHashMap<>();
+
+    public SpanMetricsProcessor(Meter meter, String serviceName, int maxSpanNames, int maxErrorTypes) {
+        this.serviceName = serviceName;
+        this.maxSpanNames = maxSpanNames;
+        this.maxErrorTypes = maxErrorTypes;
+        this.calls = meter.counterBuilder("span.calls")
+                .setDescription("Ended spans by name, kind and status")
+                .setUnit("1")
+                .build();
+        this.duration = meter.histogramBuilder("span.duration")
+                .setDescription("Duration of ended spans by name, kind and status")
+                .setUnit("ms")
+                .build();
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span, SpanData snapshot) {
+        StatusCode status = snapshot.getStatus().getStatusCode();
+        SpanNameSeries names = seriesFor(span.getName());
+        Attributes series = status == StatusCode.ERROR
+                ? names.error(span.getKind(), span.getAttribute(ERROR_TYPE))
+                : names.get(span.getKind(), status);
+
+        calls.add(1, series);
+        duration.record(span.getLatencyNanos() / 1e6, series);
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    private SpanNameSeries seriesFor(String name) {
+        SpanNameSeries series = byName.get(name);
+        if (series != null) {
+            return series;
+        }
+        if (byName.size() >= maxSpanNames) {
+            name = OTHER;
+        }
+        return byName.computeIfAbsent(name, SpanNameSeries::new);
+    }
+
+    private Attributes newSeries(String name, SpanKind kind, StatusCode status, String errorType) {
+        AttributesBuilder attributes = Attributes.builder()
+                .put(SERVICE_NAME, serviceName)
+                .put(SPAN_NAME, name)
+                .put(SPAN_KIND, kind.name())
+                .put(STATUS_CODE, status.name());
+        if (errorType != null) {
+            attributes.put(ERROR_TYPE, errorType);
+        }
+        return attributes.build();
+    }
+
+    // Attribute sets for one span name: kind and status index an array, error types a capped map
+    private final class SpanNameSeries {
+
+        private final String name;
+        private final AtomicReferenceArray<Attributes> byKindAndStatus = new AtomicReferenceArray<>(SERIES_PER_NAME);
+        private final Map<String, Attributes> errors = new ConcurrentHashMap<>();
+
+        SpanNameSeries(String name) {
+            this.name = name;
+        }
+
+        Attributes get(SpanKind kind, StatusCode status) {
+            int index = kind.ordinal() * STATUS_CODES + status.ordinal();
+            Attributes series = byKindAndStatus.get(index);
+            if (series == null) {
+                byKindAndStatus.compareAndSet(index, null, newSeries(name, kind, status, null));
+                series = byKindAndStatus.get(index);
+            }
+            return series;
+        }
+
+        Attributes error(SpanKind kind, String errorType) {
+            if (errorType == null) {
+                return get(kind, StatusCode.ERROR);
+            }
+            String key = kind.name() + '/' + errorType;
+            Attributes series = errors.get(key);
+            if (series != null) {
+                return series;
+            }
+            if (errors.size() >= maxErrorTypes) {
+                errorType = OTHER;
+                key = kind.name() + '/' + OTHER;
+            }
+            String type = errorType;
+            return errors.computeIfAbsent(key, k -> newSeries(name, kind, StatusCode.ERROR, type));
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.observability.spike.order.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Span batches the exporter could not send, in fixed-size memory-mapped segment files.
+ *
+ * <p>Each segment starts with a header (magic, version, acked offset) followed by records of
+ * {@code length, crc32c, span count, timestamp, payload}. The length is written last, so a record
+ * torn by a crash reads as the end of the segment; writes land in the page cache and survive a
+ * process crash. Replayed records are acknowledged by moving the segment's acked offset, and a
+ * segment is deleted once everything in it is acknowledged. When the spool is full the oldest
+ * segment is discarded. Segments left by a previous run are recovered when the spool is created,
+ * so they are counted and replayed before anything new is spooled; the directory itself is only
+ * created on the first append.
+ */
+public class SpanSpool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpanSpool.class);
+
+    static final String DISCARD_CAPACITY = "capacity";
+    static final String DISCARD_CORRUPT = "corrupt";
+    static final String DISCARD_TOO_LARGE = "too_large";
+    static final String DISCARD_IO_ERROR = "io_error";
+
+    private static final int MAGIC = 0x53504F4C;
+    private static final int VERSION = 1;
+    private static final int ACKED_OFFSET_POSITION = 8;
+    private static final int SEGMENT_HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 20;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    // Oldest first; the last segment is the one being appended to
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<String, LongAdder> discardedSpans = new ConcurrentHashMap<>();
+    private final LongAdder spooledSpans = new LongAdder();
+    private final LongAdder replayedSpans = new LongAdder();
+    private long nextSequence;
+    private boolean opened;
+
+    public SpanSpool(SpanSpoolProperties properties) {
+        this.directory = properties.getDirectory();
+        this.segmentBytes = properties.getSegmentBytes();
+        this.maxSegments = (int) Math.max(1, properties.getMaxBytes() / segmentBytes);
+        if (properties.isEnabled()) {
+            openQuietly();
+        }
+    }
+
+    /** Appends one batch; false if it was discarded instead. */
+    synchronized boolean append(byte[] payload, int spanCount) {
+        int recordBytes = RECORD_HEADER_BYTES + payload.length;
+        if (SEGMENT_HEADER_BYTES + recordBytes > segmentBytes) {
+            logger.warn("Span batch of {} bytes does not fit in a {} byte spool segment, discarding", payload.length, segmentBytes);
+            discard(DISCARD_TOO_LARGE, spanCount);
+            return false;
+        }
+
+        try {
+            ensureOpen();
+            Segment current = segments.peekLast();
+            if (current == null || current.writeOffset + recordBytes > segmentBytes) {
+                while (segments.size() >= maxSegments) {
+                    Segment oldest = segments.removeFirst();
+                    logger.warn("Span spool full, discarding {} spans in {}", oldest.pendingSpans, oldest.path.getFileName());
+                    discard(DISCARD_CAPACITY, oldest.pendingSpans);
+                    delete(oldest);
+                }
+                current = createSegment();
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            MappedByteBuffer buffer = current.buffer;
+            int offset = current.writeOffset;
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            buffer.putInt(offset + 8, spanCount);
+            buffer.putLong(offset + 12, System.currentTimeMillis());
+            buffer.put(offset + RECORD_HEADER_BYTES, payload);
+            buffer.putInt(offset, payload.length);
+
+            current.writeOffset += recordBytes;
+            current.pendingSpans += spanCount;
+            spooledSpans.add(spanCount);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Could not write span batch to spool {}: {}", directory, e.getMessage());
+            discard(DISCARD_IO_ERROR, spanCount);
+            return false;
+        }
+    }
+
+    /**
+     * The oldest unacknowledged records, up to {@code maxSpans} spans (at least one record).
+     * Records failing their CRC are discarded along with the rest of their segment.
+     */
+    synchronized List<Record> peek(int maxSpans) {
+        // Retries a recovery that failed when the spool was created
+        if (!opened && !openQuietly()) {
+            return List.of();
+        }
+        List<Record> records = new ArrayList<>();
+        int spans = 0;
+        for (Segment segment : segments) {
+            int offset = segment.ackedOffset;
+            long segmentSpans = 0;
+            while (records.isEmpty() || spans < maxSpans) {
+                Record record = read(segment, offset);
+                if (record == null) {
+                    if (offset < segment.writeOffset) {
+                        truncate(segment, offset, segment.pendingSpans - segmentSpans);
+                        segment.pendingSpans = segmentSpans;
+                    }
+                    break;
+                }
+                records.add(record);
+                spans += record.spanCount;
+                segmentSpans += record.spanCount;
+                offset = record.nextOffset;
+            }
+            if (!records.isEmpty() && spans >= maxSpans) {
+                break;
+            }
+        }
+        return records;
+    }
+
+    /** Marks records as delivered and deletes segments with nothing left in them. */
+    synchronized void ack(List<Record> records) {
+        for (Record record : records) {
+            advance(record);
+            replayedSpans.add(record.spanCount);
+        }
+        removeAcknowledgedSegments();
+    }
+
+    /** Marks a record that cannot be delivered (e.g. undecodable) as done, counting it as discarded. */
+    synchronized void discard(Record record, String reason) {
+        advance(record);
+        discard(reason, record.spanCount);
+        removeAcknowledgedSegments();
+    }
+
+    synchronized long pendingBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.writeOffset - segment.ackedOffset;
+        }
+        return bytes;
+    }
+
+    synchronized long pendingSpans() {
+        long spans = 0;
+        for (Segment segment : segments) {
+            spans += segment.pendingSpans;
+        }
+        return spans;
+    }
+
+    /** Age of the oldest unacknowledged record, 0 when the spool is empty. */
+    synchronized long replayLagMillis() {
+        for (Segment segment : segments) {
+            if (segment.ackedOffset < segment.writeOffset) {
+                return Math.max(0, System.currentTimeMillis() - segment.buffer.getLong(segment.ackedOffset + 12));
+            }
+        }
+        return 0;
+    }
+
+    long spooledSpans() {
+        return spooledSpans.sum();
+    }
+
+    long replayedSpans() {
+        return replayedSpans.sum();
+    }
+
+    long discardedSpans(String reason) {
+        LongAdder discarded = discardedSpans.get(reason);
+        return discarded != null ? discarded.sum() : 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        segments.clear();
+        opened = false;
+    }
+
+    // The valid record at offset, or null at the end of the segment or a record failing its checks
+    private Record read(Segment segment, int offset) {
+        if (offset + RECORD_HEADER_BYTES > segment.writeOffset) {
+            return null;
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > segment.writeOffset - offset - RECORD_HEADER_BYTES) {
+            return null;
+        }
+
+        byte[] payload = new byte[length];
+        buffer.get(offset + RECORD_HEADER_BYTES, payload);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+            return null;
+        }
+        return new Record(segment, offset + RECORD_HEADER_BYTES + length, buffer.getInt(offset + 8), payload);
+    }
+
+    // Nothing after a bad record can be trusted: the rest of the segment is discarded
+    private void truncate(Segment segment, int offset, long discardedSpans) {
+        logger.warn("Corrupt record at offset {} of {}, discarding the rest of the segment", offset, segment.path.getFileName());
+        discard(DISCARD_CORRUPT, discardedSpans);
+        segment.writeOffset = offset;
+    }
+
+    private void advance(Record record) {
+        Segment segment = record.segment;
+        // The segment may have been discarded for capacity while the record was being replayed
+        if (!segments.contains(segment) || record.nextOffset <= segment.ackedOffset) {
+            return;
+        }
+        segment.ackedOffset = record.nextOffset;
+        segment.pendingSpans = Math.max(0, segment.pendingSpans - record.spanCount);
+        segment.buffer.putInt(ACKED_OFFSET_POSITION, segment.ackedOffset);
+    }
+
+    private void removeAcknowledgedSegments() {
+        segments.removeIf(segment -> {
+            if (segment.ackedOffset < segment.writeOffset) {
+                return false;
+            }
+            delete(segment);
+            return true;
+        });
+    }
+
+    private void discard(String reason, long spans) {
+        if (spans > 0) {
+            discardedSpans.computeIfAbsent(reason, key -> new LongAdder()).add(spans);
+        }
+    }
+
+    private boolean openQuietly() {
+        try {
+            ensureOpen();
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Could not recover span spool {}: {}", directory, e.getMessage());
+            return false;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (opened) {
+            return;
+        }
+        if (Files.isDirectory(directory)) {
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                        .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .sorted()
+                        .toList();
+            }
+            try {
+                for (Path file : files) {
+                    recover(file);
+                }
+            } catch (IOException | UncheckedIOException e) {
+                // Recovered segments are mapped again on the next attempt
+                segments.clear();
+                throw e;
+            }
+        }
+        opened = true;
+        if (!segments.isEmpty()) {
+            logger.info("Recovered {} spooled spans in {} segments from {}", pendingSpans(), segments.size(), directory);
+        }
+    }
+
+    // Picks up a segment left by a previous run: everything from its acked offset up to the first bad record
+    private void recover(Path file) throws IOException {
+        long sequence = sequenceOf(file);
+        nextSequence = Math.max(nextSequence, sequence + 1);
+        if (Files.size(file) != segmentBytes) {
+            logger.warn("Ignoring spool segment {} with a different segment size", file.getFileName());
+            return;
+        }
+
+        Segment segment = map(file);
+        MappedByteBuffer buffer = segment.buffer;
+        int acked = buffer.getInt(ACKED_OFFSET_POSITION);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || acked < SEGMENT_HEADER_BYTES || acked > segmentBytes) {
+            logger.warn("Deleting unreadable spool segment {}", file.getFileName());
+            Files.deleteIfExists(file);
+            return;
+        }
+
+        segment.ackedOffset = acked;
+        segment.writeOffset = segmentBytes;
+        int offset = acked;
+        Record record;
+        while ((record = read(segment, offset)) != null) {
+            segment.pendingSpans += record.spanCount;
+            offset = record.nextOffset;
+        }
+        if (offset + RECORD_HEADER_BYTES <= segmentBytes && buffer.getInt(offset) != 0) {
+            // Only the bad record's own span count is known; a torn header may not even have that
+            int spanCount = buffer.getInt(offset + 8);
+            truncate(segment, offset, spanCount > 0 && spanCount <= 1_000_000 ? spanCount : 0);
+        }
+        segment.writeOffset = offset;
+        if (offset + 4 <= segmentBytes) {
+            buffer.putInt(offset, 0);
+        }
+
+        if (segment.ackedOffset >= segment.writeOffset) {
+            delete(segment);
+        } else {
+            segments.addLast(segment);
+        }
+    }
+
+    private Segment createSegment() throws IOException {
+        Files.createDirectories(directory);
+        long sequence = nextSequence++;
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        Segment segment = map(file);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(4, VERSION);
+        segment.buffer.putInt(ACKED_OFFSET_POSITION, SEGMENT_HEADER_BYTES);
+        segment.ackedOffset = SEGMENT_HEADER_BYTES;
+        segment.writeOffset = SEGMENT_HEADER_BYTES;
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private Segment map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+        }
+    }
+
+    private void delete(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            logger.warn("Could not delete spool segment {}: {}", segment.path.getFileName(), e.getMessage());
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int ackedOffset;
+        private int writeOffset;
+        private long pendingSpans;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    record Record(Segment segment, int nextOffset, int spanCount, byte[] payload) {
+    }
+}
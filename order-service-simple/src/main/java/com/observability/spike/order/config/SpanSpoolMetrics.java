@@ -0,0 +1,98 @@
+package com.observability.spike.order.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+
+import java.util.List;
+
+/**
+ * Span spool state for Micrometer (as a {@link MeterBinder}) and OpenTelemetry: bytes and spans
+ * waiting for replay, replay lag (age of the oldest spooled span batch), and spans spooled,
+ * replayed and discarded by reason.
+ */
+class SpanSpoolMetrics implements MeterBinder {
+
+    private static final List<String> DISCARD_REASONS = List.of(SpanSpool.DISCARD_CAPACITY,
+            SpanSpool.DISCARD_CORRUPT, SpanSpool.DISCARD_TOO_LARGE, SpanSpool.DISCARD_IO_ERROR);
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+    private static final AttributeKey<String> REASON = AttributeKey.stringKey("reason");
+
+    private final SpanSpool spool;
+
+    SpanSpoolMetrics(SpanSpool spool) {
+        this.spool = spool;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("telemetry.spool.bytes", spool, SpanSpool::pendingBytes)
+                .description("Bytes of spooled span batches waiting for replay")
+                .baseUnit("bytes")
+                .tag("service", "order-service")
+                .register(registry);
+        Gauge.builder("telemetry.spool.spans", spool, SpanSpool::pendingSpans)
+                .description("Spooled spans waiting for replay")
+                .tag("service", "order-service")
+                .register(registry);
+        Gauge.builder("telemetry.spool.replay.lag", spool, s -> s.replayLagMillis() / 1000.0)
+                .description("Age of the oldest spooled span batch")
+                .baseUnit("seconds")
+                .tag("service", "order-service")
+                .register(registry);
+        FunctionCounter.builder("telemetry.spool.spooled", spool, SpanSpool::spooledSpans)
+                .description("Spans written to the spool after a failed or timed out export")
+                .tag("service", "order-service")
+                .register(registry);
+        FunctionCounter.builder("telemetry.spool.replayed", spool, SpanSpool::replayedSpans)
+                .description("Spooled spans delivered by replay")
+                .tag("service", "order-service")
+                .register(registry);
+        for (String reason : DISCARD_REASONS) {
+            FunctionCounter.builder("telemetry.spool.discarded", spool, s -> s.discardedSpans(reason))
+                    .description("Spans dropped by the spool")
+                    .tag("service", "order-service")
+                    .tag("reason", reason)
+                    .register(registry);
+        }
+    }
+
+    void bindTo(Meter meter, String serviceName) {
+        Attributes attributes = Attributes.of(SERVICE_NAME, serviceName);
+        meter.gaugeBuilder("telemetry.spool.bytes")
+                .setDescription("Bytes of spooled span batches waiting for replay")
+                .setUnit("By")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(spool.pendingBytes(), attributes));
+        meter.gaugeBuilder("telemetry.spool.spans")
+                .setDescription("Spooled spans waiting for replay")
+                .setUnit("1")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(spool.pendingSpans(), attributes));
+        meter.gaugeBuilder("telemetry.spool.replay.lag")
+                .setDescription("Age of the oldest spooled span batch")
+                .setUnit("s")
+                .buildWithCallback(measurement -> measurement.record(spool.replayLagMillis() / 1000.0, attributes));
+        meter.counterBuilder("telemetry.spool.spooled")
+                .setDescription("Spans written to the spool after a failed or timed out export")
+                .setUnit("1")
+                .buildWithCallback(measurement -> measurement.record(spool.spooledSpans(), attributes));
+        meter.counterBuilder("telemetry.spool.replayed")
+                .setDescription("Spooled spans delivered by replay")
+                .setUnit("1")
+                .buildWithCallback(measurement -> measurement.record(spool.replayedSpans(), attributes));
+        meter.counterBuilder("telemetry.spool.discarded")
+                .setDescription("Spans dropped by the spool")
+                .setUnit("1")
+                .buildWithCallback(measurement -> {
+                    for (String reason : DISCARD_REASONS) {
+                        measurement.record(spool.discardedSpans(reason), Attributes.of(SERVICE_NAME, serviceName, REASON, reason));
+                    }
+                });
+    }
+}
@@ -0,0 +1,95 @@
+package com.observability.spike.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Disk spool for spans the trace exporter cannot deliver, bound from {@code telemetry.spool.*}.
+ * Sizes are in bytes; the spool holds at most {@code maxBytes / segmentBytes} segments.
+ */
+@ConfigurationProperties(prefix = "telemetry.spool")
+public class SpanSpoolProperties {
+
+    private boolean enabled = true;
+
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "order-service-span-spool");
+
+    private int segmentBytes = 4 * 1024 * 1024;
+
+    private long maxBytes = 64L * 1024 * 1024;
+
+    // A batch the exporter has not finished within this long is spooled
+    private long exportTimeoutMs = 5000;
+
+    // After a failed export, batches go straight to the spool for this long
+    private long retryIntervalMs = 5000;
+
+    private int replaySpansPerSecond = 500;
+
+    private long replayIntervalMs = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public void setSegmentBytes(int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getExportTimeoutMs() {
+        return exportTimeoutMs;
+    }
+
+    public void setExportTimeoutMs(long exportTimeoutMs) {
+        this.exportTimeoutMs = exportTimeoutMs;
+    }
+
+    public long getRetryIntervalMs() {
+        return retryIntervalMs;
+    }
+
+    public void setRetryIntervalMs(long retryIntervalMs) {
+        this.retryIntervalMs = retryIntervalMs;
+    }
+
+    public int getReplaySpansPerSecond() {
+        return replaySpansPerSecond;
+    }
+
+    public void setReplaySpansPerSecond(int replaySpansPerSecond) {
+        this.replaySpansPerSecond = replaySpansPerSecond;
+    }
+
+    public long getReplayIntervalMs() {
+        return replayIntervalMs;
+    }
+
+    public void setReplayIntervalMs(long replayIntervalMs) {
+        this.replayIntervalMs = replayIntervalMs;
+    }
+}
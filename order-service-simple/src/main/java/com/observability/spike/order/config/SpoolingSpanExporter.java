@@ -0,0 +1,133 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sits between the batch span processor and the real exporter. A batch the exporter fails, or
+ * does not finish within the export timeout, goes to the {@link SpanSpool} and is reported as
+ * exported so the processor's queue keeps draining; for the retry interval after a failure,
+ * batches are spooled without trying the exporter. A background thread replays spooled spans at
+ * a limited rate whenever the exporter is available and acknowledges them once it accepts them.
+ * Delivery is at least once: a batch that timed out may still have reached the backend.
+ */
+class SpoolingSpanExporter implements SpanExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpoolingSpanExporter.class);
+
+    private final SpanExporter delegate;
+    private final SpanSpool spool;
+    private final long exportTimeoutMs;
+    private final long retryIntervalNanos;
+    private final int replaySpansPerTick;
+    private final ScheduledExecutorService replayer;
+    private volatile long unavailableUntilNanos = System.nanoTime();
+
+    SpoolingSpanExporter(SpanExporter delegate, SpanSpool spool, SpanSpoolProperties properties) {
+        this.delegate = delegate;
+        this.spool = spool;
+        this.exportTimeoutMs = properties.getExportTimeoutMs();
+        this.retryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getRetryIntervalMs());
+        this.replaySpansPerTick = (int) Math.max(1,
+                (long) properties.getReplaySpansPerSecond() * properties.getReplayIntervalMs() / 1000);
+        this.replayer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("span-spool-replay").daemon().factory());
+        replayer.scheduleWithFixedDelay(this::replay, properties.getReplayIntervalMs(),
+                properties.getReplayIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        if (!isAvailable()) {
+            return spool(spans);
+        }
+        if (exportNow(spans)) {
+            return CompletableResultCode.ofSuccess();
+        }
+        return spool(spans);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        // Whatever is still spooled is replayed by the next run
+        replayer.shutdownNow();
+        spool.close();
+        return delegate.shutdown();
+    }
+
+    private boolean isAvailable() {
+        return System.nanoTime() - unavailableUntilNanos >= 0;
+    }
+
+    private boolean exportNow(Collection<SpanData> spans) {
+        CompletableResultCode result;
+        try {
+            result = delegate.export(spans).join(exportTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            result = CompletableResultCode.ofFailure();
+        }
+        if (result.isSuccess()) {
+            return true;
+        }
+        if (isAvailable()) {
+            logger.warn("Span export failed, spooling to disk for at least {} ms", TimeUnit.NANOSECONDS.toMillis(retryIntervalNanos));
+        }
+        unavailableUntilNanos = System.nanoTime() + retryIntervalNanos;
+        return false;
+    }
+
+    private CompletableResultCode spool(Collection<SpanData> spans) {
+        return spool.append(SpanDataCodec.encode(spans), spans.size())
+                ? CompletableResultCode.ofSuccess()
+                : CompletableResultCode.ofFailure();
+    }
+
+    private void replay() {
+        try {
+            if (!isAvailable()) {
+                return;
+            }
+            List<SpanSpool.Record> records = spool.peek(replaySpansPerTick);
+            if (records.isEmpty()) {
+                return;
+            }
+
+            List<SpanSpool.Record> decoded = new ArrayList<>(records.size());
+            List<SpanData> spans = new ArrayList<>();
+            for (SpanSpool.Record record : records) {
+                try {
+                    spans.addAll(SpanDataCodec.decode(record.payload()));
+                    decoded.add(record);
+                } catch (IOException | RuntimeException e) {
+                    // Acks move forward in order, so a bad record is only dropped once it is the oldest
+                    if (decoded.isEmpty()) {
+                        logger.warn("Discarding undecodable spooled span batch: {}", e.toString());
+                        spool.discard(record, SpanSpool.DISCARD_CORRUPT);
+                    }
+                    break;
+                }
+            }
+            if (!spans.isEmpty() && exportNow(spans)) {
+                spool.ack(decoded);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Span spool replay failed", e);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationLibraryInfo;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.DelegatingSpanData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sits in front of the exporting span processor. Sampled spans pass straight through. Spans the
+ * head sampler only recorded are buffered per trace until the trace's local root ends; the trace
+ * is then exported if any of its spans has an ERROR status (as set by
+ * {@code OpenTelemetryService.setSpanError}) or is a slow {@code customer.enrichment}, and
+ * dropped otherwise. Kept traces are themselves rate-limited.
+ * <p>
+ * Some spans end after their local root, such as {@code customer.batch} and cancelled hedge
+ * attempts. The decision is remembered for a short while so these follow it instead of opening a
+ * new buffered trace; they can no longer change it. The decision is only local: the outgoing
+ * {@code traceparent} was sent unsampled, so customer-service does not record its side of a trace
+ * kept here.
+ */
+class TailSamplingSpanProcessor implements SnapshotSpanProcessor {
+
+    static final String RULE_ERROR = "error";
+    static final String RULE_SLOW_ENRICHMENT = "slow_enrichment";
+
+    private static final String ENRICHMENT_SPAN = "customer.enrichment";
+
+    private final SpanProcessor delegate;
+    private final TraceSamplingMetrics metrics;
+    private final long slowEnrichmentNanos;
+    private final TraceRateLimiter keptLimiter;
+    private final int maxBufferedTraces;
+    private final int maxSpansPerTrace;
+    private final long decisionWaitNanos;
+    private final long lateSpanWaitNanos;
+    private final Map<String, PendingTrace> pending = new ConcurrentHashMap<>();
+    // Decided traces by trace id, until late-span-wait-ms after the decision
+    private final Map<String, Decision> decided = new ConcurrentHashMap<>();
+    private volatile long lastSweepNanos = System.nanoTime();
+
+    TailSamplingSpanProcessor(SpanProcessor delegate, TraceSamplingProperties.Tail properties, TraceSamplingMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.slowEnrichmentNanos = TimeUnit.MILLISECONDS.toNanos(properties.getSlowEnrichmentMs());
+        this.keptLimiter = properties.getMaxKeptPerSecond() > 0 ? new TraceRateLimiter(properties.getMaxKeptPerSecond()) : null;
+        this.maxBufferedTraces = properties.getMaxBufferedTraces();
+        this.maxSpansPerTrace = properties.getMaxSpansPerTrace();
+        this.decisionWaitNanos = TimeUnit.MILLISECONDS.toNanos(properties.getDecisionWaitMs());
+        this.lateSpanWaitNanos = TimeUnit.MILLISECONDS.toNanos(properties.getLateSpanWaitMs());
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+        delegate.onStart(parentContext, span);
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return delegate.isStartRequired();
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        // Sampled spans need no snapshot here
+        if (span.getSpanContext().isSampled()) {
+            delegate.onEnd(span);
+            return;
+        }
+        onEnd(span, span.toSpanData());
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span, SpanData data) {
+        if (span.getSpanContext().isSampled()) {
+            delegate.onEnd(span);
+            return;
+        }
+
+        String rule = matchRule(data);
+        String traceId = data.getTraceId();
+        SpanContext parent = data.getParentSpanContext();
+
+        if (!parent.isValid() || parent.isRemote()) {
+            decide(traceId, data, rule);
+            sweepExpired();
+            return;
+        }
+
+        Decision decision = decided.get(traceId);
+        if (decision != null) {
+            endLate(data, decision.kept());
+            return;
+        }
+
+        PendingTrace trace = pending.get(traceId);
+        if (trace == null) {
+            if (pending.size() >= maxBufferedTraces) {
+                metrics.recordBufferOverflow();
+                return;
+            }
+            trace = pending.computeIfAbsent(traceId, id -> new PendingTrace());
+        }
+        switch (trace.add(data, rule, maxSpansPerTrace)) {
+            case FULL -> metrics.recordBufferOverflow();
+            case DECIDED -> endLate(data, trace.kept());
+            case BUFFERED -> {
+                // The root may have been decided since the lookup above
+                decision = decided.get(traceId);
+                if (decision != null && pending.remove(traceId, trace)) {
+                    endLate(trace, decision.kept());
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        pending.clear();
+        decided.clear();
+        return delegate.shutdown();
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return delegate.forceFlush();
+    }
+
+    private void decide(String traceId, SpanData root, String rootRule) {
+        PendingTrace trace = pending.remove(traceId);
+        boolean kept;
+        List<SpanData> buffered = List.of();
+        if (trace == null) {
+            kept = keep(rootRule);
+        } else {
+            // Spans still ending on other threads either make it into this decision or follow it
+            synchronized (trace) {
+                kept = keep(rootRule != null ? rootRule : trace.keptBy());
+                buffered = trace.close(kept);
+            }
+        }
+        decided.put(traceId, new Decision(kept, System.nanoTime()));
+
+        if (kept) {
+            for (SpanData span : buffered) {
+                delegate.onEnd(new KeptSpan(span));
+            }
+            delegate.onEnd(new KeptSpan(root));
+        }
+
+        // A span that ended while the root was being decided may have buffered a new trace
+        PendingTrace late = pending.remove(traceId);
+        if (late != null) {
+            endLate(late, kept);
+        }
+    }
+
+    private boolean keep(String keptBy) {
+        if (keptBy == null) {
+            metrics.record(TraceSamplingMetrics.DROPPED, "not_kept");
+            return false;
+        }
+        if (keptLimiter != null && !keptLimiter.tryAcquire()) {
+            metrics.record(TraceSamplingMetrics.DROPPED, "kept_limit");
+            return false;
+        }
+        metrics.record(TraceSamplingMetrics.KEPT_BY_RULE, keptBy);
+        return true;
+    }
+
+    // Late spans follow the decision already counted for their trace
+    private void endLate(PendingTrace trace, boolean kept) {
+        for (SpanData span : trace.close(kept)) {
+            endLate(span, kept);
+        }
+    }
+
+    private void endLate(SpanData span, boolean kept) {
+        if (kept) {
+            delegate.onEnd(new KeptSpan(span));
+        }
+    }
+
+    private String matchRule(SpanData span) {
+        if (span.getStatus().getStatusCode() == StatusCode.ERROR) {
+            return RULE_ERROR;
+        }
+        if (ENRICHMENT_SPAN.equals(span.getName())
+                && span.getEndEpochNanos() - span.getStartEpochNanos() >= slowEnrichmentNanos) {
+            return RULE_SLOW_ENRICHMENT;
+        }
+        return null;
+    }
+
+    // Forgets old decisions and drops traces whose local root never ended, at most once per
+    // late span wait
+    private void sweepExpired() {
+        long now = System.nanoTime();
+        if (now - lastSweepNanos < Math.min(lateSpanWaitNanos, decisionWaitNanos)) {
+            return;
+        }
+        lastSweepNanos = now;
+        decided.values().removeIf(decision -> now - decision.decidedNanos() > lateSpanWaitNanos);
+        pending.entrySet().removeIf(entry -> {
+            boolean expired = now - entry.getValue().createdNanos > decisionWaitNanos;
+            if (expired) {
+                metrics.record(TraceSamplingMetrics.DROPPED, "expired");
+            }
+            return expired;
+        });
+    }
+
+    private record Decision(boolean kept, long decidedNanos) {
+    }
+
+    private enum Added {
+        BUFFERED, FULL, DECIDED
+    }
+
+    private static final class PendingTrace {
+
+        private final long createdNanos = System.nanoTime();
+        private final List<SpanData> spans = new ArrayList<>();
+        private String keptBy;
+        private boolean closed;
+        private boolean kept;
+
+        synchronized Added add(SpanData span, String rule, int maxSpans) {
+            if (closed) {
+                return Added.DECIDED;
+            }
+            if (rule != null && keptBy == null) {
+                keptBy = rule;
+            }
+            if (spans.size() >= maxSpans) {
+                return Added.FULL;
+            }
+            spans.add(span);
+            return Added.BUFFERED;
+        }
+
+        synchronized String keptBy() {
+            return keptBy;
+        }
+
+        synchronized boolean kept() {
+            return kept;
+        }
+
+        // Spans added from now on are handed back as DECIDED, to follow this decision
+        synchronized List<SpanData> close(boolean kept) {
+            this.closed = true;
+            this.kept = kept;
+            List<SpanData> buffered = List.copyOf(spans);
+            spans.clear();
+            return buffered;
+        }
+    }
+
+    /**
+     * A recorded-only span handed to the exporting processor as sampled, since the batch
+     * processor ignores spans without the sampled flag.
+     */
+    private static final class KeptSpan implements ReadableSpan {
+
+        private final SpanData data;
+
+        private KeptSpan(SpanData span) {
+            SpanContext context = span.getSpanContext();
+            SpanContext sampled = SpanContext.create(context.getTraceId(), context.getSpanId(),
+                    TraceFlags.getSampled(), context.getTraceState());
+            this.data = new DelegatingSpanData(span) {
+                @Override
+                public SpanContext getSpanContext() {
+                    return sampled;
+                }
+            };
+        }
+
+        @Override
+        public SpanContext getSpanContext() {
+            return data.getSpanContext();
+        }
+
+        @Override
+        public SpanContext getParentSpanContext() {
+            return data.getParentSpanContext();
+        }
+
+        @Override
+        public String getName() {
+            return data.getName();
+        }
+
+        @Override
+        public SpanData toSpanData() {
+            return data;
+        }
+
+        @Override
+        @Deprecated
+        public InstrumentationLibraryInfo getInstrumentationLibraryInfo() {
+            return data.getInstrumentationLibraryInfo();
+        }
+
+        @Override
+        public InstrumentationScopeInfo getInstrumentationScopeInfo() {
+            return data.getInstrumentationScopeInfo();
+        }
+
+        @Override
+        public boolean hasEnded() {
+            return true;
+        }
+
+        @Override
+        public long getLatencyNanos() {
+            return data.getEndEpochNanos() - data.getStartEpochNanos();
+        }
+
+        @Override
+        public SpanKind getKind() {
+            return data.getKind();
+        }
+
+        @Override
+        public <T> T getAttribute(AttributeKey<T> key) {
+            return data.getAttributes().get(key);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.observability.spike.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * OTel SDK export pipeline, bound from {@code telemetry.export.*}: where spans and metrics go
+ * (Azure Monitor or OTLP), the batch span processor's queue and batching, and how often metrics
+ * are exported. Sizing defaults are the SDK's.
+ */
+@ConfigurationProperties(prefix = "telemetry.export")
+public class TelemetryExportProperties {
+
+    // azure (needs APPLICATIONINSIGHTS_CONNECTION_STRING) or otlp
+    private String exporter = "azure";
+
+    private final Otlp otlp = new Otlp();
+
+    // Spans waiting for export; spans ending while it is full are dropped
+    private int maxQueueSize = 2048;
+
+    private int maxExportBatchSize = 512;
+
+    // Longest a span waits before a partial batch is exported
+    private long scheduleDelayMs = 5000;
+
+    private long exportTimeoutMs = 30000;
+
+    private long metricIntervalMs = 30000;
+
+    public String getExporter() {
+        return exporter;
+    }
+
+    public void setExporter(String exporter) {
+        this.exporter = exporter;
+    }
+
+    public Otlp getOtlp() {
+        return otlp;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public int getMaxExportBatchSize() {
+        return maxExportBatchSize;
+    }
+
+    public void setMaxExportBatchSize(int maxExportBatchSize) {
+        this.maxExportBatchSize = maxExportBatchSize;
+    }
+
+    public long getScheduleDelayMs() {
+        return scheduleDelayMs;
+    }
+
+    public void setScheduleDelayMs(long scheduleDelayMs) {
+        this.scheduleDelayMs = scheduleDelayMs;
+    }
+
+    public long getExportTimeoutMs() {
+        return exportTimeoutMs;
+    }
+
+    public void setExportTimeoutMs(long exportTimeoutMs) {
+        this.exportTimeoutMs = exportTimeoutMs;
+    }
+
+    public long getMetricIntervalMs() {
+        return metricIntervalMs;
+    }
+
+    public void setMetricIntervalMs(long metricIntervalMs) {
+        this.metricIntervalMs = metricIntervalMs;
+    }
+
+    public static class Otlp {
+
+        // grpc or http/protobuf
+        private String protocol = "grpc";
+
+        // Defaults to http://localhost:4317 for grpc and http://localhost:4318 for http/protobuf
+        private String endpoint;
+
+        // gzip or none
+        private String compression = "gzip";
+
+        private long timeoutMs = 10000;
+
+        // Metric temporality: cumulative, delta or low-memory (delta for counters and histograms,
+        // cumulative for up-down counters); the Azure Monitor exporter picks its own
+        private String temporality = "cumulative";
+
+        private final Retry retry = new Retry();
+
+        public String getProtocol() {
+            return protocol;
+        }
+
+        public void setProtocol(String protocol) {
+            this.protocol = protocol;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public String getCompression() {
+            return compression;
+        }
+
+        public void setCompression(String compression) {
+            this.compression = compression;
+        }
+
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        public void setTimeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+
+        public String getTemporality() {
+            return temporality;
+        }
+
+        public void setTemporality(String temporality) {
+            this.temporality = temporality;
+        }
+
+        public Retry getRetry() {
+            return retry;
+        }
+    }
+
+    /** Retries of retryable OTLP failures (unavailable, throttled) with exponential backoff. */
+    public static class Retry {
+
+        private boolean enabled = true;
+
+        // Including the first attempt; the SDK allows 2 to 5
+        private int maxAttempts = 5;
+
+        private long initialBackoffMs = 1000;
+
+        private long maxBackoffMs = 5000;
+
+        private double backoffMultiplier = 1.5;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getInitialBackoffMs() {
+            return initialBackoffMs;
+        }
+
+        public void setInitialBackoffMs(long initialBackoffMs) {
+            this.initialBackoffMs = initialBackoffMs;
+        }
+
+        public long getMaxBackoffMs() {
+            return maxBackoffMs;
+        }
+
+        public void setMaxBackoffMs(long maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+        }
+
+        public double getBackoffMultiplier() {
+            return backoffMultiplier;
+        }
+
+        public void setBackoffMultiplier(double backoffMultiplier) {
+            this.backoffMultiplier = backoffMultiplier;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.observability.spike.order.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free limiter admitting at most {@code perSecond} calls per second, with up to one second
+ * of unused allowance as burst (generic cell rate algorithm).
+ */
+final class TraceRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    // Time at which the allowance is fully used up
+    private final AtomicLong theoreticalArrival;
+
+    TraceRateLimiter(double perSecond) {
+        if (perSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + perSecond);
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+        this.burstNanos = Math.max(intervalNanos, TimeUnit.SECONDS.toNanos(1));
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
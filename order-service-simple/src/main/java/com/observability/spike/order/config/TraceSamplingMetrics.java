@@ -0,0 +1,79 @@
+package com.observability.spike.order.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sampling decisions per trace, counted in Micrometer and in OpenTelemetry as
+ * {@code telemetry.sampling.traces} with a decision (sampled, kept_by_rule, dropped) and the reason
+ * for it, plus spans the tail buffer had no room for. The registry is looked up on first use: the
+ * SDK is built before Micrometer, which may itself be bridged into it.
+ */
+class TraceSamplingMetrics {
+
+    static final String SAMPLED = "sampled";
+    static final String KEPT_BY_RULE = "kept_by_rule";
+    static final String DROPPED = "dropped";
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+    private static final AttributeKey<String> DECISION = AttributeKey.stringKey("decision");
+    private static final AttributeKey<String> REASON = AttributeKey.stringKey("reason");
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final LongCounter tracesCounter;
+    private final LongCounter bufferOverflowCounter;
+    private final Attributes serviceAttributes = Attributes.of(SERVICE_NAME, "order-service");
+    // Decisions and reasons are a small fixed set, so both are cached per pair
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Attributes> attributes = new ConcurrentHashMap<>();
+    private volatile Counter bufferOverflow;
+
+    TraceSamplingMetrics(ObjectProvider<MeterRegistry> meterRegistry, Meter meter) {
+        this.meterRegistry = meterRegistry;
+        this.tracesCounter = meter.counterBuilder("telemetry.sampling.traces")
+                .setDescription("Traces by sampling decision")
+                .setUnit("1")
+                .build();
+        this.bufferOverflowCounter = meter.counterBuilder("telemetry.sampling.buffer.overflow")
+                .setDescription("Unsampled spans not buffered because the tail buffer was full")
+                .setUnit("1")
+                .build();
+    }
+
+    void record(String decision, String reason) {
+        String key = decision + '/' + reason;
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, k -> Counter.builder("telemetry.sampling.traces")
+                    .description("Traces by sampling decision")
+                    .tag("service", "order-service")
+                    .tag("decision", decision)
+                    .tag("reason", reason)
+                    .register(meterRegistry.getObject()));
+        }
+        counter.increment();
+        tracesCounter.add(1, attributes.computeIfAbsent(key, k -> Attributes.of(
+                SERVICE_NAME, "order-service", DECISION, decision, REASON, reason)));
+    }
+
+    void recordBufferOverflow() {
+        Counter counter = bufferOverflow;
+        if (counter == null) {
+            counter = Counter.builder("telemetry.sampling.buffer.overflow")
+                    .description("Unsampled spans not buffered because the tail buffer was full")
+                    .tag("service", "order-service")
+                    .register(meterRegistry.getObject());
+            bufferOverflow = counter;
+        }
+        counter.increment();
+        bufferOverflowCounter.add(1, serviceAttributes);
+    }
+}
@@ -0,0 +1,117 @@
+package com.observability.spike.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Trace sampling for the OpenTelemetry SDK, bound from {@code telemetry.sampling.*}: a
+ * parent-based head sampler capped at a number of new traces per second, and a tail buffer that
+ * keeps traces the head sampler passed on when they turn out to contain an error or a slow
+ * customer enrichment.
+ */
+@ConfigurationProperties(prefix = "telemetry.sampling")
+public class TraceSamplingProperties {
+
+    private boolean enabled = true;
+
+    // New (root) traces sampled per second; traces with a sampled parent always are
+    private double tracesPerSecond = 10;
+
+    private final Tail tail = new Tail();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getTracesPerSecond() {
+        return tracesPerSecond;
+    }
+
+    public void setTracesPerSecond(double tracesPerSecond) {
+        this.tracesPerSecond = tracesPerSecond;
+    }
+
+    public Tail getTail() {
+        return tail;
+    }
+
+    public static class Tail {
+
+        private boolean enabled = true;
+
+        // customer.enrichment spans at least this long keep their trace
+        private long slowEnrichmentMs = 500;
+
+        // Caps traces kept by rule too, so an outage cannot make export cost follow traffic (0 = no cap)
+        private double maxKeptPerSecond = 50;
+
+        private int maxBufferedTraces = 2048;
+
+        private int maxSpansPerTrace = 64;
+
+        // Buffered traces whose local root never ends are dropped after this long
+        private long decisionWaitMs = 30000;
+
+        // Spans of a decided trace that end within this long follow its decision
+        private long lateSpanWaitMs = 5000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getSlowEnrichmentMs() {
+            return slowEnrichmentMs;
+        }
+
+        public void setSlowEnrichmentMs(long slowEnrichmentMs) {
+            this.slowEnrichmentMs = slowEnrichmentMs;
+        }
+
+        public double getMaxKeptPerSecond() {
+            return maxKeptPerSecond;
+        }
+
+        public void setMaxKeptPerSecond(double maxKeptPerSecond) {
+            this.maxKeptPerSecond = maxKeptPerSecond;
+        }
+
+        public int getMaxBufferedTraces() {
+            return maxBufferedTraces;
+        }
+
+        public void setMaxBufferedTraces(int maxBufferedTraces) {
+            this.maxBufferedTraces = maxBufferedTraces;
+        }
+
+        public int getMaxSpansPerTrace() {
+            return maxSpansPerTrace;
+        }
+
+        public void setMaxSpansPerTrace(int maxSpansPerTrace) {
+            this.maxSpansPerTrace = maxSpansPerTrace;
+        }
+
+        public long getDecisionWaitMs() {
+            return decisionWaitMs;
+        }
+
+        public void setDecisionWaitMs(long decisionWaitMs) {
+            this.decisionWaitMs = decisionWaitMs;
+        }
+
+        public long getLateSpanWaitMs() {
+            return lateSpanWaitMs;
+        }
+
+        public void setLateSpanWaitMs(long lateSpanWaitMs) {
+            this.lateSpanWaitMs = lateSpanWaitMs;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.observability.spike.order.controller;
 
+import com.observability.spike.common.telemetry.TelemetryDispatcher;
 import com.observability.spike.order.model.Order;
+import com.observability.spike.order.service.Deadline;
 import com.observability.spike.order.service.OrderService;
-import com.microsoft.applicationinsights.TelemetryClient;
+import io.opentelemetry.context.Scope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -13,55 +17,66 @@ import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/orders")
+@Profile("!reactive")
 public class OrderController {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
     
     private final OrderService orderService;
-    private final TelemetryClient telemetryClient;
+    private final TelemetryDispatcher telemetryDispatcher;
+    private final long defaultDeadlineBudgetMs;
 
-    public OrderController(OrderService orderService, TelemetryClient telemetryClient) {
+    public OrderController(OrderService orderService, TelemetryDispatcher telemetryDispatcher,
+                           @Value("${deadline.default-budget-ms:0}") long defaultDeadlineBudgetMs) {
         this.orderService = orderService;
-        this.telemetryClient = telemetryClient;
+        this.telemetryDispatcher = telemetryDispatcher;
+        this.defaultDeadlineBudgetMs = defaultDeadlineBudgetMs;
     }
 
     @GetMapping("/{orderId}")
-    public ResponseEntity<Order> getOrder(@PathVariable("orderId") String orderId) {
-        logger.info("Received request to get order: {}", orderId);
+    public ResponseEntity<Order> getOrder(@PathVariable("orderId") String orderId,
+                                          @RequestHeader(name = Deadline.HEADER, required = false) Long timeoutMs) {
+        // Start the clock as soon as the request arrives
+        Deadline deadline = Deadline.fromBudget(timeoutMs, defaultDeadlineBudgetMs);
+
+        // Everything this request dispatches (including OrderService) is queued as one call
+        try (Scope telemetryBatch = telemetryDispatcher.openBatch()) {
+            logger.info("Received request to get order: {}", orderId);
         
-        // Track request event
-        telemetryClient.trackEvent("OrderRequest", Map.of("orderId", orderId), null);
+            // Track request event
+            telemetryDispatcher.dispatch(client -> client.trackEvent("OrderRequest", Map.of("orderId", orderId), null));
         
-        // Add request validation
-        if (orderId == null || orderId.trim().isEmpty()) {
-            logger.warn("Invalid order ID received: {}", orderId);
-            telemetryClient.trackEvent("InvalidOrderRequest", Map.of("orderId", String.valueOf(orderId)), null);
-            return ResponseEntity.badRequest().build();
-        }
+            // Add request validation
+            if (orderId == null || orderId.trim().isEmpty()) {
+                logger.warn("Invalid order ID received: {}", orderId);
+                telemetryDispatcher.dispatch(client -> client.trackEvent("InvalidOrderRequest", Map.of("orderId", String.valueOf(orderId)), null));
+                return ResponseEntity.badRequest().build();
+            }
 
-        Optional<Order> order = orderService.getOrderById(orderId);
+            Optional<Order> order = orderService.getOrderById(orderId, deadline);
         
-        if (order.isPresent()) {
-            Order foundOrder = order.get();
+            if (order.isPresent()) {
+                Order foundOrder = order.get();
             
-            // Track successful response
-            telemetryClient.trackEvent("OrderFound", 
-                Map.of("orderId", orderId, "customerId", foundOrder.getCustomerId()), 
-                Map.of("totalAmount", foundOrder.getTotalAmount().doubleValue()));
+                // Track successful response
+                telemetryDispatcher.dispatch(client -> client.trackEvent("OrderFound", 
+                    Map.of("orderId", orderId, "customerId", foundOrder.getCustomerId()), 
+                    Map.of("totalAmount", foundOrder.getTotalAmount().doubleValue())));
                 
-            logger.info("Successfully returned order: {} with total: {}", 
-                       orderId, foundOrder.getTotalAmount());
-            return ResponseEntity.ok(foundOrder);
-        } else {
-            logger.warn("Order not found: {}", orderId);
-            telemetryClient.trackEvent("OrderNotFound", Map.of("orderId", orderId), null);
-            return ResponseEntity.notFound().build();
+                logger.info("Successfully returned order: {} with total: {}", 
+                           orderId, foundOrder.getTotalAmount());
+                return ResponseEntity.ok(foundOrder);
+            } else {
+                // OrderService already tracks the OrderNotFound event
+                logger.warn("Order not found: {}", orderId);
+                return ResponseEntity.notFound().build();
+            }
         }
     }
 
     @GetMapping("/health")
     public ResponseEntity<String> health() {
-        telemetryClient.trackEvent("HealthCheck", Map.of("service", "order-service"), null);
+        telemetryDispatcher.dispatch(client -> client.trackEvent("HealthCheck", Map.of("service", "order-service"), null));
         return ResponseEntity.ok("Order Service is UP");
     }
 }
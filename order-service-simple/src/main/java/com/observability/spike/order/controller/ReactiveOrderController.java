@@ -0,0 +1,76 @@
+package com.observability.spike.order.controller;
+
+import com.observability.spike.common.telemetry.TelemetryDispatcher;
+import com.observability.spike.order.model.Order;
+import com.observability.spike.order.service.Deadline;
+import com.observability.spike.order.service.ReactiveOrderService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/orders")
+@Profile("reactive")
+public class ReactiveOrderController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveOrderController.class);
+
+    private final ReactiveOrderService orderService;
+    private final TelemetryDispatcher telemetryDispatcher;
+    private final long defaultDeadlineBudgetMs;
+
+    public ReactiveOrderController(ReactiveOrderService orderService, TelemetryDispatcher telemetryDispatcher,
+                                   @Value("${deadline.default-budget-ms:0}") long defaultDeadlineBudgetMs) {
+        this.orderService = orderService;
+        this.telemetryDispatcher = telemetryDispatcher;
+        this.defaultDeadlineBudgetMs = defaultDeadlineBudgetMs;
+    }
+
+    @GetMapping("/{orderId}")
+    public Mono<ResponseEntity<Order>> getOrder(@PathVariable("orderId") String orderId,
+                                                @RequestHeader(name = Deadline.HEADER, required = false) Long timeoutMs) {
+        // Start the clock as soon as the request arrives
+        Deadline deadline = Deadline.fromBudget(timeoutMs, defaultDeadlineBudgetMs);
+
+        logger.info("Received request to get order: {}", orderId);
+
+        // Track request event
+        telemetryDispatcher.dispatch(client -> client.trackEvent("OrderRequest", Map.of("orderId", orderId), null));
+
+        // Add request validation
+        if (orderId == null || orderId.trim().isEmpty()) {
+            logger.warn("Invalid order ID received: {}", orderId);
+            telemetryDispatcher.dispatch(client -> client.trackEvent("InvalidOrderRequest", Map.of("orderId", String.valueOf(orderId)), null));
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return orderService.getOrderById(orderId, deadline)
+                .map(foundOrder -> {
+                    // Track successful response
+                    telemetryDispatcher.dispatch(client -> client.trackEvent("OrderFound",
+                        Map.of("orderId", orderId, "customerId", foundOrder.getCustomerId()),
+                        Map.of("totalAmount", foundOrder.getTotalAmount().doubleValue())));
+
+                    logger.info("Successfully returned order: {} with total: {}",
+                               orderId, foundOrder.getTotalAmount());
+                    return ResponseEntity.ok(foundOrder);
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    // ReactiveOrderService already tracks the OrderNotFound event
+                    logger.warn("Order not found: {}", orderId);
+                    return ResponseEntity.notFound().build();
+                }));
+    }
+
+    @GetMapping("/health")
+    public Mono<ResponseEntity<String>> health() {
+        telemetryDispatcher.dispatch(client -> client.trackEvent("HealthCheck", Map.of("service", "order-service"), null));
+        return Mono.just(ResponseEntity.ok("Order Service is UP"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.observability.spike.order.repository;
+
+import com.observability.spike.order.model.Order;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+public class OrderRepository {
+
+    private final Map<String, Order> orderDatabase;
+
+    public OrderRepository() {
+        this.orderDatabase = initializeOrderData();
+    }
+
+    public Order findById(String orderId) {
+        return orderDatabase.get(orderId);
+    }
+
+    private Map<String, Order> initializeOrderData() {
+        Map<String, Order> data = new HashMap<>();
+        
+        data.put("ORD-001", new Order("ORD-001", "123", "Laptop Computer", 1, new BigDecimal("999.99")));
+        data.put("ORD-002", new Order("ORD-002", "456", "Wireless Mouse", 2, new BigDecimal("29.99")));
+        data.put("ORD-003", new Order("ORD-003", "789", "USB-C Cable", 3, new BigDecimal("19.99")));
+        data.put("ORD-004", new Order("ORD-004", "999", "External Monitor", 1, new BigDecimal("299.99")));
+        data.put("ORD-005", new Order("ORD-005", "123", "Mechanical Keyboard", 1, new BigDecimal("149.99")));
+        
+        return data;
+    }
+}
@@ -0,0 +1,197 @@
+package com.observability.spike.order.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.observability.spike.common.concurrent.ContextPropagatingExecutor;
+import com.observability.spike.order.model.Customer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bounded near-cache in front of customer-service. Concurrent misses for the same customer
+ * share a single load future; the load runs on a virtual thread of its own, so no cache lock
+ * is held while it waits on customer-service. A shared load runs without the {@link Deadline}
+ * of the read that started it, and each caller waits for it only until its own deadline.
+ * Hot entries are refreshed in the background before they expire. A refresh outlives the
+ * request whose read triggered it, so it runs in a trace of its own, linked to that request,
+ * and without its deadline.
+ */
+@Service
+public class CustomerCache {
+
+    private final CustomerServiceClient customerServiceClient;
+    private final MetricsService metricsService;
+    private final OpenTelemetryService openTelemetryService;
+    private final boolean enabled;
+    private final AsyncLoadingCache<String, Customer> cache;
+    // Loads block on the customer-service call; they carry the context and MDC of the missing read
+    private final Executor loadExecutor = new ContextPropagatingExecutor(
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("customer-cache-load-", 0).factory()));
+
+    public CustomerCache(CustomerServiceClient customerServiceClient,
+                         MetricsService metricsService,
+                         OpenTelemetryService openTelemetryService,
+                         @Value("${customer-service.cache.enabled:true}") boolean enabled,
+                         @Value("${customer-service.cache.max-size:10000}") long maxSize,
+                         @Value("${customer-service.cache.ttl-seconds:60}") long ttlSeconds,
+                         @Value("${customer-service.cache.refresh-after-seconds:45}") long refreshAfterSeconds) {
+        this.customerServiceClient = customerServiceClient;
+        this.metricsService = metricsService;
+        this.openTelemetryService = openTelemetryService;
+        this.enabled = enabled;
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats(() -> new TelemetryStatsCounter(metricsService, openTelemetryService));
+
+        // Refresh-ahead only applies to entries read after the refresh point, i.e. hot keys
+        if (refreshAfterSeconds > 0 && refreshAfterSeconds < ttlSeconds) {
+            builder.refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds));
+        }
+
+        this.cache = builder.buildAsync(new CustomerLoader());
+    }
+
+    public Customer get(String customerId) {
+        if (!enabled) {
+            return customerServiceClient.getCustomer(customerId);
+        }
+        Deadline deadline = Deadline.current();
+        CompletableFuture<Customer> load;
+        if (deadline != null && deadline.isExpired()) {
+            // The caller has already given up: serve a cached customer, but start no load for it
+            load = cache.getIfPresent(customerId);
+            if (load == null || !load.isDone()) {
+                recordDeadlineExceeded(Span.current(), "before_call");
+                throw new ResourceAccessException("Request deadline exceeded before calling customer service");
+            }
+        } else {
+            load = cache.get(customerId);
+        }
+
+        // Missing customers (null) are not cached
+        try {
+            // Giving up on a shared load leaves it running for the other callers
+            return deadline == null ? load.get() : load.get(deadline.remainingMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            recordDeadlineExceeded(Span.current(), "in_flight");
+            throw new ResourceAccessException("Request deadline exceeded while waiting for customer " + customerId);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for customer " + customerId);
+        }
+    }
+
+    private void recordDeadlineExceeded(Span span, String stage) {
+        metricsService.recordDeadlineExceeded(stage);
+        openTelemetryService.recordDeadlineExceeded(stage);
+        openTelemetryService.addSpanEvent(span, "deadline.exceeded", OpenTelemetryService.DEADLINE_STAGE, stage);
+    }
+
+    private Customer refresh(String customerId, SpanContext trigger) {
+        Span span = openTelemetryService.startCustomerCacheRefreshSpan(customerId, trigger);
+        try (Scope scope = Context.root().with(span).makeCurrent()) {
+            return customerServiceClient.getCustomer(customerId);
+        } catch (RuntimeException e) {
+            openTelemetryService.setSpanError(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private final class CustomerLoader implements AsyncCacheLoader<String, Customer> {
+
+        // Called on the reading thread under the cache's lock, so only hand the load off here.
+        // Later misses share the load, so it must not fail with this reader's deadline.
+        @Override
+        public CompletableFuture<Customer> asyncLoad(String customerId, Executor executor) {
+            try (Scope scope = Deadline.removeFrom(Context.current()).makeCurrent()) {
+                return CompletableFuture.supplyAsync(() -> customerServiceClient.getCustomer(customerId), loadExecutor);
+            }
+        }
+
+        // Called on the reading thread; the reload itself runs on Caffeine's executor
+        @Override
+        public CompletableFuture<Customer> asyncReload(String customerId, Customer oldValue, Executor executor) {
+            SpanContext trigger = Span.current().getSpanContext();
+            return CompletableFuture.supplyAsync(() -> refresh(customerId, trigger), executor);
+        }
+    }
+
+    private static class TelemetryStatsCounter implements StatsCounter {
+
+        private final ConcurrentStatsCounter delegate = new ConcurrentStatsCounter();
+        private final MetricsService metricsService;
+        private final OpenTelemetryService openTelemetryService;
+
+        TelemetryStatsCounter(MetricsService metricsService, OpenTelemetryService openTelemetryService) {
+            this.metricsService = metricsService;
+            this.openTelemetryService = openTelemetryService;
+        }
+
+        @Override
+        public void recordHits(int count) {
+            delegate.recordHits(count);
+            metricsService.recordCustomerCacheHits(count);
+            openTelemetryService.recordCustomerCacheHits(count);
+        }
+
+        @Override
+        public void recordMisses(int count) {
+            delegate.recordMisses(count);
+            metricsService.recordCustomerCacheMisses(count);
+            openTelemetryService.recordCustomerCacheMisses(count);
+        }
+
+        @Override
+        public void recordLoadSuccess(long loadTime) {
+            delegate.recordLoadSuccess(loadTime);
+            metricsService.recordCustomerCacheLoad(loadTime, true);
+            openTelemetryService.recordCustomerCacheLoad(TimeUnit.NANOSECONDS.toMillis(loadTime), true);
+        }
+
+        @Override
+        public void recordLoadFailure(long loadTime) {
+            delegate.recordLoadFailure(loadTime);
+            metricsService.recordCustomerCacheLoad(loadTime, false);
+            openTelemetryService.recordCustomerCacheLoad(TimeUnit.NANOSECONDS.toMillis(loadTime), false);
+        }
+
+        @Override
+        public void recordEviction(int weight, RemovalCause cause) {
+            delegate.recordEviction(weight, cause);
+            metricsService.recordCustomerCacheEviction(cause.name());
+            openTelemetryService.recordCustomerCacheEviction(cause.name());
+        }
+
+        @Override
+        public CacheStats snapshot() {
+            return delegate.snapshot();
+        }
+    }
+}
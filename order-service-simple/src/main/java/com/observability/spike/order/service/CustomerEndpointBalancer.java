@@ -0,0 +1,353 @@
+package com.observability.spike.order.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Spreads customer-service calls over the configured endpoints. Each call goes to the better of
+ * two randomly chosen endpoints, scored by outstanding requests times EWMA latency. Endpoints
+ * whose error rate or latency stands out from the rest are ejected for a growing period.
+ */
+@Service
+public class CustomerEndpointBalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerEndpointBalancer.class);
+
+    private static final double EWMA_WEIGHT = 0.3;
+    private static final int MAX_EJECTION_MULTIPLIER = 10;
+
+    private final List<Endpoint> endpoints;
+    private final MetricsService metricsService;
+    private final OpenTelemetryService openTelemetryService;
+    private final int outlierMinRequests;
+    private final double outlierErrorRate;
+    private final double outlierLatencyFactor;
+    private final long baseEjectionNanos;
+    private final int maxEjected;
+    private final ScheduledExecutorService outlierDetector;
+
+    public CustomerEndpointBalancer(MetricsService metricsService,
+                                    OpenTelemetryService openTelemetryService,
+                                    @Value("${customer-service.base-urls:${customer-service.base-url:http://localhost:8081}}") List<String> baseUrls,
+                                    @Value("${customer-service.load-balancer.outlier.interval-ms:1000}") long outlierIntervalMs,
+                                    @Value("${customer-service.load-balancer.outlier.min-requests:10}") int outlierMinRequests,
+                                    @Value("${customer-service.load-balancer.outlier.error-rate:0.5}") double outlierErrorRate,
+                                    @Value("${customer-service.load-balancer.outlier.latency-factor:3.0}") double outlierLatencyFactor,
+                                    @Value("${customer-service.load-balancer.outlier.base-ejection-ms:10000}") long baseEjectionMs,
+                                    @Value("${customer-service.load-balancer.outlier.max-ejection-percent:50}") int maxEjectionPercent) {
+        this.metricsService = metricsService;
+        this.openTelemetryService = openTelemetryService;
+        this.outlierMinRequests = outlierMinRequests;
+        this.outlierErrorRate = outlierErrorRate;
+        this.outlierLatencyFactor = outlierLatencyFactor;
+        this.baseEjectionNanos = TimeUnit.MILLISECONDS.toNanos(baseEjectionMs);
+
+        List<Endpoint> configured = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            if (!baseUrl.isBlank()) {
+                configured.add(new Endpoint(baseUrl.trim()));
+            }
+        }
+        this.endpoints = List.copyOf(configured);
+        // Never eject the last healthy endpoint
+        this.maxEjected = Math.min(endpoints.size() - 1, endpoints.size() * maxEjectionPercent / 100);
+
+        for (Endpoint endpoint : endpoints) {
+            metricsService.registerCustomerEndpointGauges(endpoint.name, endpoint,
+                    Endpoint::inFlight, Endpoint::ewmaLatencyMs, e -> e.isEjected() ? 1 : 0);
+            openTelemetryService.registerCustomerEndpointInFlightGauge(endpoint.name, endpoint, Endpoint::inFlight);
+        }
+
+        this.outlierDetector = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("customer-outlier-detector").daemon().factory());
+        if (endpoints.size() > 1) {
+            outlierDetector.scheduleAtFixedRate(this::detectOutliers, outlierIntervalMs, outlierIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        logger.info("Balancing customer-service calls over {} endpoint(s): {}", endpoints.size(), baseUrls);
+    }
+
+    // Runs the call against the chosen endpoint's base URL and records its outcome
+    public <T> T execute(Function<String, T> call) {
+        Endpoint endpoint = choose();
+        long startNanos = endpoint.begin();
+        try {
+            T result = call.apply(endpoint.baseUrl);
+            endpoint.end(startNanos, true);
+            return result;
+        } catch (RuntimeException e) {
+            if (isCancellation(e)) {
+                // The caller stopped waiting (a hedge loser or a timeout): says nothing about the endpoint
+                endpoint.release();
+            } else {
+                endpoint.end(startNanos, !isEndpointFailure(e));
+            }
+            throw e;
+        }
+    }
+
+    // Reactive equivalent of execute: rewrites the request to the chosen endpoint
+    public ExchangeFilterFunction exchangeFilter() {
+        return (request, next) -> {
+            Endpoint endpoint = choose();
+            URI target = UriComponentsBuilder.fromUri(request.url())
+                    .scheme(endpoint.uri.getScheme())
+                    .host(endpoint.uri.getHost())
+                    .port(endpoint.uri.getPort())
+                    .build(true)
+                    .toUri();
+            ClientRequest routed = ClientRequest.from(request).url(target).build();
+
+            AtomicLong startNanos = new AtomicLong();
+            AtomicBoolean finished = new AtomicBoolean();
+            return next.exchange(routed)
+                    .doOnSubscribe(subscription -> startNanos.set(endpoint.begin()))
+                    .doOnNext(response -> {
+                        if (finished.compareAndSet(false, true)) {
+                            // 504 means the propagated deadline ran out, not that the endpoint is unhealthy
+                            int status = response.statusCode().value();
+                            endpoint.end(startNanos.get(), status < 500 || status == 504);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (finished.compareAndSet(false, true)) {
+                            endpoint.end(startNanos.get(), false);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (finished.compareAndSet(false, true)) {
+                            endpoint.release();
+                        }
+                    });
+        };
+    }
+
+    Endpoint choose() {
+        int size = endpoints.size();
+        if (size == 1) {
+            return endpoints.get(0);
+        }
+
+        // Power of two choices over the endpoints that are not ejected
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Endpoint first = endpoints.get(random.nextInt(size));
+        Endpoint second = endpoints.get(random.nextInt(size - 1));
+        if (second == first) {
+            second = endpoints.get(size - 1);
+        }
+        if (first.isEjected()) {
+            return second.isEjected() ? firstAvailable() : second;
+        }
+        if (second.isEjected()) {
+            return first;
+        }
+        return first.score() <= second.score() ? first : second;
+    }
+
+    private Endpoint firstAvailable() {
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isEjected()) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(0);
+    }
+
+    private static boolean isEndpointFailure(RuntimeException e) {
+        if (e instanceof HttpServerErrorException.GatewayTimeout) {
+            // The propagated deadline ran out, not a sign the endpoint is unhealthy
+            return false;
+        }
+        return e instanceof HttpServerErrorException || e instanceof ResourceAccessException;
+    }
+
+    // A cancelled call is interrupted; the HTTP clients rethrow that as an I/O error (the JDK client
+    // keeps the interrupt flag set). A socket timeout is also an InterruptedIOException, but a real failure.
+    private static boolean isCancellation(RuntimeException e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof ClosedByInterruptException
+                    || (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void detectOutliers() {
+        try {
+            long now = System.nanoTime();
+            int ejected = 0;
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint.isEjected(now)) {
+                    ejected++;
+                }
+            }
+
+            for (Endpoint endpoint : endpoints) {
+                long requests = endpoint.intervalRequests.sumThenReset();
+                long failures = endpoint.intervalFailures.sumThenReset();
+
+                if (endpoint.isEjected(now)) {
+                    continue;
+                }
+                // Each endpoint is compared with the others; with two endpoints a median that includes
+                // the endpoint itself is the slower of the two, which can never stand out from itself
+                double peerLatencyMs = peerMedianLatencyMs(endpoint);
+                if (endpoint.ejectedUntilNanos != 0) {
+                    // Returning from ejection: start from the typical latency so it gets probed
+                    endpoint.ejectedUntilNanos = 0;
+                    endpoint.ewmaLatencyMicros.set(Math.round(peerLatencyMs * 1000));
+                    logger.info("Customer endpoint {} returned to rotation", endpoint.name);
+                    continue;
+                }
+
+                String reason = null;
+                if (requests >= outlierMinRequests && (double) failures / requests >= outlierErrorRate) {
+                    reason = "error_rate";
+                } else if (requests >= outlierMinRequests && peerLatencyMs > 0
+                        && endpoint.ewmaLatencyMs() > peerLatencyMs * outlierLatencyFactor) {
+                    reason = "latency";
+                }
+
+                if (reason == null) {
+                    endpoint.consecutiveEjections = Math.max(0, endpoint.consecutiveEjections - 1);
+                } else if (ejected < maxEjected) {
+                    eject(endpoint, reason, now);
+                    ejected++;
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Customer endpoint outlier detection failed: {}", e.getMessage());
+        }
+    }
+
+    private void eject(Endpoint endpoint, String reason, long now) {
+        endpoint.consecutiveEjections = Math.min(MAX_EJECTION_MULTIPLIER, endpoint.consecutiveEjections + 1);
+        long ejectionNanos = baseEjectionNanos * endpoint.consecutiveEjections;
+        endpoint.ejectedUntilNanos = now + ejectionNanos;
+
+        metricsService.recordCustomerEndpointEjection(endpoint.name, reason);
+        openTelemetryService.recordCustomerEndpointEjection(endpoint.name, reason);
+        logger.warn("Ejecting customer endpoint {} for {} ms ({})",
+                endpoint.name, TimeUnit.NANOSECONDS.toMillis(ejectionNanos), reason);
+    }
+
+    private double peerMedianLatencyMs(Endpoint excluded) {
+        double[] latencies = endpoints.stream()
+                .filter(endpoint -> endpoint != excluded)
+                .mapToDouble(Endpoint::ewmaLatencyMs)
+                .filter(latency -> latency > 0)
+                .sorted()
+                .toArray();
+        int n = latencies.length;
+        if (n == 0) {
+            return 0;
+        }
+        return n % 2 == 1 ? latencies[n / 2] : (latencies[n / 2 - 1] + latencies[n / 2]) / 2;
+    }
+
+    List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        outlierDetector.shutdownNow();
+    }
+
+    final class Endpoint {
+
+        private final String baseUrl;
+        private final URI uri;
+        private final String name;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // 0 until the first call completes
+        private final AtomicLong ewmaLatencyMicros = new AtomicLong();
+        private final LongAdder intervalRequests = new LongAdder();
+        private final LongAdder intervalFailures = new LongAdder();
+
+        // Written by the outlier detector only
+        private volatile long ejectedUntilNanos;
+        private int consecutiveEjections;
+
+        private Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+            this.uri = URI.create(baseUrl);
+            this.name = uri.getAuthority();
+        }
+
+        long begin() {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        void end(long startNanos, boolean success) {
+            long durationNanos = System.nanoTime() - startNanos;
+            inFlight.decrementAndGet();
+            intervalRequests.increment();
+            if (!success) {
+                intervalFailures.increment();
+            }
+
+            long sampleMicros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+            ewmaLatencyMicros.getAndUpdate(current -> current == 0
+                    ? sampleMicros
+                    : Math.round(current + EWMA_WEIGHT * (sampleMicros - current)));
+
+            metricsService.recordCustomerEndpointCall(name, durationNanos, success);
+            openTelemetryService.recordCustomerEndpointCall(name, TimeUnit.NANOSECONDS.toMillis(durationNanos), success);
+        }
+
+        // Cancelled calls free their slot without counting as an outcome
+        void release() {
+            inFlight.decrementAndGet();
+        }
+
+        long score() {
+            return (inFlight.get() + 1L) * Math.max(1, ewmaLatencyMicros.get());
+        }
+
+        boolean isEjected() {
+            return isEjected(System.nanoTime());
+        }
+
+        boolean isEjected(long now) {
+            long until = ejectedUntilNanos;
+            return until != 0 && until - now > 0;
+        }
+
+        int inFlight() {
+            return inFlight.get();
+        }
+
+        double ewmaLatencyMs() {
+            return ewmaLatencyMicros.get() / 1000.0;
+        }
+    }
+}
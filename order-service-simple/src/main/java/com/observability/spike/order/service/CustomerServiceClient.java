@@ -0,0 +1,444 @@
+package com.observability.spike.order.service;
+
+import com.observability.spike.common.concurrent.ContextPropagatingExecutor;
+import com.observability.spike.order.model.Customer;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.RequestEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client for customer-service lookups. When batching is enabled, concurrent single-customer
+ * lookups arriving within the batch window are coalesced into one multi-get call, traced as a
+ * {@code customer.batch} span in the first caller's trace with links to the other callers' spans.
+ * Calls are bounded by a timeout derived from observed latency (p99 x factor) and can be
+ * hedged with a second request after the observed p95, within a hedge budget. A request
+ * {@link Deadline} in the caller's context further caps the timeout and is propagated downstream.
+ * A call the caller stopped waiting for is cancelled. Off virtual threads, calls run on at most
+ * {@code customer-service.dispatch.max-threads} platform threads.
+ */
+@Service
+public class CustomerServiceClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerServiceClient.class);
+
+    private static final AttributeKey<Long> DELAY_MS = AttributeKey.longKey("hedge.delay.ms");
+    private static final AttributeKey<Long> TIMEOUT_MS = AttributeKey.longKey("timeout.ms");
+    private static final AttributeKey<String> DEADLINE_STAGE = AttributeKey.stringKey("deadline.stage");
+
+    // Hedge budget is tracked in thousandths of a hedge request
+    private static final long HEDGE_TOKEN = 1000;
+    private static final long MAX_HEDGE_TOKENS = 10 * HEDGE_TOKEN;
+
+    private final RestTemplate restTemplate;
+    private final MetricsService metricsService;
+    private final OpenTelemetryService openTelemetryService;
+    private final CustomerEndpointBalancer balancer;
+    private final boolean batchEnabled;
+    private final long batchWindowMs;
+    private final int batchMaxSize;
+    private final boolean adaptiveTimeoutEnabled;
+    private final double timeoutFactor;
+    private final long timeoutMinMs;
+    private final long timeoutMaxMs;
+    private final long timeoutDefaultMs;
+    private final boolean hedgeEnabled;
+    private final long hedgeMinDelayMs;
+    private final long hedgeTokensPerRequest;
+    private final LatencyTracker latencyTracker;
+    private final AtomicLong hedgeTokens = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService dispatcherThreads;
+    // Carries the submitting thread's OTel Context and MDC onto the dispatcher threads
+    private final Executor dispatcher;
+
+    // Guards pendingBatch, pendingDeadline, pendingContexts and pendingFlush
+    private final ReentrantLock batchLock = new ReentrantLock();
+    private Map<String, CompletableFuture<Customer>> pendingBatch = new LinkedHashMap<>();
+    private Deadline pendingDeadline;
+    private List<Context> pendingContexts = new ArrayList<>();
+    private ScheduledFuture<?> pendingFlush;
+
+    public CustomerServiceClient(RestTemplate restTemplate,
+                                 MetricsService metricsService,
+                                 OpenTelemetryService openTelemetryService,
+                                 CustomerEndpointBalancer balancer,
+                                 @Value("${customer-service.batch.enabled:true}") boolean batchEnabled,
+                                 @Value("${customer-service.batch.window-ms:5}") long batchWindowMs,
+                                 @Value("${customer-service.batch.max-size:50}") int batchMaxSize,
+                                 @Value("${customer-service.timeout.adaptive:true}") boolean adaptiveTimeoutEnabled,
+                                 @Value("${customer-service.timeout.p99-factor:2.0}") double timeoutFactor,
+                                 @Value("${customer-service.timeout.min-ms:50}") long timeoutMinMs,
+                                 @Value("${customer-service.timeout.max-ms:2000}") long timeoutMaxMs,
+                                 @Value("${customer-service.timeout.default-ms:1000}") long timeoutDefaultMs,
+                                 @Value("${customer-service.hedge.enabled:false}") boolean hedgeEnabled,
+                                 @Value("${customer-service.hedge.min-delay-ms:10}") long hedgeMinDelayMs,
+                                 @Value("${customer-service.hedge.budget-percent:5}") double hedgeBudgetPercent,
+                                 @Value("${customer-service.latency.window-size:1024}") int latencyWindowSize,
+                                 @Value("${customer-service.dispatch.max-threads:${customer-service.http.max-connections:200}}") int dispatchMaxThreads,
+                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.restTemplate = restTemplate;
+        this.metricsService = metricsService;
+        this.openTelemetryService = openTelemetryService;
+        this.balancer = balancer;
+        this.batchEnabled = batchEnabled;
+        this.batchWindowMs = batchWindowMs;
+        this.batchMaxSize = batchMaxSize;
+        this.adaptiveTimeoutEnabled = adaptiveTimeoutEnabled;
+        this.timeoutFactor = timeoutFactor;
+        this.timeoutMinMs = timeoutMinMs;
+        this.timeoutMaxMs = timeoutMaxMs;
+        this.timeoutDefaultMs = timeoutDefaultMs;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeMinDelayMs = hedgeMinDelayMs;
+        this.hedgeTokensPerRequest = Math.round(hedgeBudgetPercent / 100.0 * HEDGE_TOKEN);
+        this.latencyTracker = new LatencyTracker(latencyWindowSize, 100);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("customer-client-scheduler").daemon().factory());
+        this.dispatcherThreads = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("customer-client-dispatch-", 0).factory())
+                : boundedDispatcher(dispatchMaxThreads);
+        this.dispatcher = new ContextPropagatingExecutor(dispatcherThreads);
+
+        scheduler.scheduleAtFixedRate(latencyTracker::recompute, 1, 1, TimeUnit.SECONDS);
+        metricsService.registerCustomerCallTimeoutGauge(this, CustomerServiceClient::currentTimeoutMs);
+    }
+
+    // More platform threads than pooled connections would only wait for a lease; excess calls queue instead
+    private static ExecutorService boundedDispatcher(int maxThreads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), Thread.ofPlatform().name("customer-client-dispatch-", 0).daemon().factory());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    // Relative to the customer-service endpoint chosen by the balancer
+    private String customerPath(String customerId) {
+        return "/api/customers/" + customerId;
+    }
+
+    public Customer getCustomer(String customerId) {
+        // Capture the caller's context before the call moves to other threads
+        Context context = Context.current();
+        Span span = Span.fromContext(context);
+        Deadline deadline = Deadline.fromContext(context);
+
+        if (deadline != null && deadline.isExpired()) {
+            // The caller has already given up, so skip the downstream call entirely
+            recordDeadlineExceeded(span, "before_call");
+            throw new ResourceAccessException("Request deadline exceeded before calling customer service");
+        }
+
+        if (!batchEnabled && !adaptiveTimeoutEnabled && !hedgeEnabled && deadline == null) {
+            return balancer.execute(baseUrl -> restTemplate.getForObject(baseUrl + customerPath(customerId), Customer.class));
+        }
+
+        long startTime = System.nanoTime();
+        long timeoutMs = currentTimeoutMs();
+        long remainingMs = deadline != null ? deadline.remainingMs() : Long.MAX_VALUE;
+        boolean deadlineBound = remainingMs < timeoutMs;
+        if (deadlineBound) {
+            timeoutMs = remainingMs;
+        }
+
+        CompletableFuture<Customer> call = hedgeEnabled ? hedgedFetch(customerId, context) : fetch(customerId, context);
+
+        try {
+            Customer customer = call.get(timeoutMs, TimeUnit.MILLISECONDS);
+            latencyTracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            return customer;
+        } catch (TimeoutException e) {
+            // Nobody waits for the call any more: interrupt it, or drop it if it is still queued
+            call.cancel(true);
+            if (deadlineBound) {
+                // A wait cut short by the caller's deadline says nothing about customer-service latency
+                recordDeadlineExceeded(span, "in_flight");
+                throw new ResourceAccessException("Request deadline exceeded after waiting " + timeoutMs + " ms for customer service");
+            }
+            // Count timeouts as observed latency so the distribution reflects them
+            latencyTracker.record(timeoutMs);
+            metricsService.recordCustomerCallTimeout();
+            openTelemetryService.recordCustomerCallTimeout();
+            openTelemetryService.addSpanEvent(span, "customer.call.timeout", TIMEOUT_MS, timeoutMs);
+            throw new ResourceAccessException("Customer service call timed out after " + timeoutMs + " ms");
+        } catch (ExecutionException e) {
+            if (deadline != null && e.getCause() instanceof HttpServerErrorException.GatewayTimeout) {
+                // customer-service shed the request because the propagated deadline ran out
+                recordDeadlineExceeded(span, "downstream");
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while calling customer service");
+        }
+    }
+
+    long currentTimeoutMs() {
+        if (!adaptiveTimeoutEnabled) {
+            return timeoutMaxMs;
+        }
+        long p99 = latencyTracker.p99Ms();
+        if (p99 < 0) {
+            return timeoutDefaultMs;
+        }
+        return Math.max(timeoutMinMs, Math.min(timeoutMaxMs, Math.round(p99 * timeoutFactor)));
+    }
+
+    private CompletableFuture<Customer> fetch(String customerId, Context context) {
+        Deadline deadline = Deadline.fromContext(context);
+        if (batchEnabled) {
+            return enqueue(customerId, context, deadline);
+        }
+        CompletableFuture<Customer> result = new CompletableFuture<>();
+        // Keep the outbound call parented on the caller's span, also when a hedge fires from the scheduler
+        Future<?> task = dispatcherThreads.submit(ContextPropagatingExecutor.wrap(context.wrap(() -> {
+            try {
+                result.complete(balancer.execute(
+                        baseUrl -> get(RequestEntity.get(baseUrl + customerPath(customerId)), Customer.class, deadline)));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        })));
+        // Cancelling the result interrupts the request (the JDK client aborts the exchange) or unqueues it
+        result.whenComplete((customer, error) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    // Sends the remaining deadline budget so customer-service can shed work the caller no longer waits for
+    private <T> T get(RequestEntity.HeadersBuilder<?> request, Class<T> responseType, Deadline deadline) {
+        if (deadline != null) {
+            request.header(Deadline.HEADER, String.valueOf(deadline.remainingMs()));
+        }
+        return restTemplate.exchange(request.build(), responseType).getBody();
+    }
+
+    private void recordDeadlineExceeded(Span span, String stage) {
+        metricsService.recordDeadlineExceeded(stage);
+        openTelemetryService.recordDeadlineExceeded(stage);
+        openTelemetryService.addSpanEvent(span, "deadline.exceeded", DEADLINE_STAGE, stage);
+    }
+
+    private CompletableFuture<Customer> hedgedFetch(String customerId, Context context) {
+        Span span = Span.fromContext(context);
+        hedgeTokens.getAndUpdate(tokens -> Math.min(MAX_HEDGE_TOKENS, tokens + hedgeTokensPerRequest));
+
+        CompletableFuture<Customer> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        attempt(fetch(customerId, context), result, outstanding, false, span);
+
+        long p95 = latencyTracker.p95Ms();
+        if (p95 < 0) {
+            // No latency distribution yet to derive a hedge delay from
+            return result;
+        }
+
+        long delayMs = Math.max(hedgeMinDelayMs, p95);
+        ScheduledFuture<?> hedge = scheduler.schedule(() -> {
+            if (result.isDone() || !tryAcquireHedgeToken()) {
+                return;
+            }
+            outstanding.incrementAndGet();
+            metricsService.recordCustomerHedge("sent");
+            openTelemetryService.recordCustomerHedge("sent");
+            openTelemetryService.addSpanEvent(span, "customer.hedge.sent", DELAY_MS, delayMs);
+            attempt(fetch(customerId, context), result, outstanding, true, span);
+        }, delayMs, TimeUnit.MILLISECONDS);
+
+        result.whenComplete((customer, error) -> hedge.cancel(false));
+        return result;
+    }
+
+    // First successful attempt wins; the call only fails once every attempt has failed
+    private void attempt(CompletableFuture<Customer> call, CompletableFuture<Customer> result,
+                         AtomicInteger outstanding, boolean hedged, Span span) {
+        // Once the result is settled (or the caller gave up) a still-running attempt is cancelled
+        result.whenComplete((customer, error) -> call.cancel(true));
+        call.whenComplete((customer, error) -> {
+            if (error == null) {
+                if (result.complete(customer) && hedged) {
+                    metricsService.recordCustomerHedge("won");
+                    openTelemetryService.recordCustomerHedge("won");
+                    openTelemetryService.addSpanEvent(span, "customer.hedge.won", Attributes.empty());
+                }
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        });
+    }
+
+    private boolean tryAcquireHedgeToken() {
+        while (true) {
+            long tokens = hedgeTokens.get();
+            if (tokens < HEDGE_TOKEN) {
+                metricsService.recordCustomerHedge("budget_exhausted");
+                openTelemetryService.recordCustomerHedge("budget_exhausted");
+                return false;
+            }
+            if (hedgeTokens.compareAndSet(tokens, tokens - HEDGE_TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    private CompletableFuture<Customer> enqueue(String customerId, Context context, Deadline deadline) {
+        PendingBatch fullBatch = null;
+        CompletableFuture<Customer> future;
+
+        batchLock.lock();
+        try {
+            // The batch is worth running for as long as any of its callers still waits
+            pendingDeadline = pendingBatch.isEmpty() ? deadline : Deadline.latest(pendingDeadline, deadline);
+            // Every caller's context, including callers that share a pending customer, for the batch span
+            pendingContexts.add(context);
+
+            // Concurrent lookups for the same customer share one pending result
+            future = pendingBatch.get(customerId);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                pendingBatch.put(customerId, future);
+
+                if (pendingBatch.size() >= batchMaxSize) {
+                    fullBatch = drainPendingBatch();
+                } else if (pendingBatch.size() == 1) {
+                    pendingFlush = scheduler.schedule(this::flush, batchWindowMs, TimeUnit.MILLISECONDS);
+                }
+            }
+        } finally {
+            batchLock.unlock();
+        }
+
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+        // A caller that times out cancels its own copy, not the result other callers share
+        return future.copy();
+    }
+
+    private void flush() {
+        PendingBatch batch;
+
+        batchLock.lock();
+        try {
+            batch = drainPendingBatch();
+        } finally {
+            batchLock.unlock();
+        }
+
+        if (!batch.futures().isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    // Must be called while holding batchLock
+    private PendingBatch drainPendingBatch() {
+        PendingBatch batch = new PendingBatch(pendingBatch, pendingDeadline, pendingContexts);
+        pendingBatch = new LinkedHashMap<>();
+        pendingDeadline = null;
+        pendingContexts = new ArrayList<>();
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(PendingBatch batch) {
+        Map<String, CompletableFuture<Customer>> futures = batch.futures();
+        // The batch call runs under the first caller's context, so its client span and traceparent
+        // continue that trace; the other callers' spans are linked from the batch span
+        List<Context> contexts = batch.contexts();
+        Context parent = contexts.get(0);
+        List<SpanContext> links = new ArrayList<>(contexts.size() - 1);
+        for (int i = 1; i < contexts.size(); i++) {
+            SpanContext linked = Span.fromContext(contexts.get(i)).getSpanContext();
+            if (linked.isValid() && !links.contains(linked)) {
+                links.add(linked);
+            }
+        }
+        dispatcher.execute(() -> {
+            Span batchSpan = openTelemetryService.startCustomerBatchSpan(parent, links, futures.size());
+            try (Scope scope = parent.with(batchSpan).makeCurrent()) {
+                logger.debug("Dispatching customer batch of size {}", futures.size());
+                Customer[] customers = balancer.execute(baseUrl -> {
+                    URI uri = UriComponentsBuilder.fromHttpUrl(baseUrl)
+                            .path("/api/customers")
+                            .queryParam("ids", futures.keySet().toArray())
+                            .encode()
+                            .build()
+                            .toUri();
+                    return get(RequestEntity.get(uri), Customer[].class, batch.deadline());
+                });
+
+                Map<String, Customer> found = new HashMap<>();
+                if (customers != null) {
+                    for (Customer customer : customers) {
+                        found.put(customer.getCustomerId(), customer);
+                    }
+                }
+
+                openTelemetryService.setSpanSuccess(batchSpan);
+                // Customers missing from the batch response complete with null
+                futures.forEach((customerId, future) -> future.complete(found.get(customerId)));
+            } catch (Exception e) {
+                logger.warn("Customer batch of size {} failed: {}", futures.size(), e.getMessage());
+                openTelemetryService.setSpanError(batchSpan, e);
+                futures.values().forEach(future -> future.completeExceptionally(e));
+            } finally {
+                batchSpan.end();
+            }
+        });
+    }
+
+    private record PendingBatch(Map<String, CompletableFuture<Customer>> futures, Deadline deadline,
+                                List<Context> contexts) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        dispatcherThreads.shutdownNow();
+    }
+}
@@ -0,0 +1,71 @@
+package com.observability.spike.order.service;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.ImplicitContextKeyed;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which the caller of an order request stops waiting. Carried in the OTel
+ * context so it follows customer lookups through the cache and onto client threads, and sent
+ * downstream as the remaining budget in {@link #HEADER}.
+ */
+public final class Deadline implements ImplicitContextKeyed {
+
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    private static final ContextKey<Deadline> KEY = ContextKey.named("request-deadline");
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(long budgetMs) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs));
+    }
+
+    // The header budget takes precedence; a default of 0 or less means no deadline
+    public static Deadline fromBudget(Long headerBudgetMs, long defaultBudgetMs) {
+        if (headerBudgetMs != null) {
+            return after(headerBudgetMs);
+        }
+        return defaultBudgetMs > 0 ? after(defaultBudgetMs) : null;
+    }
+
+    public static Deadline fromContext(Context context) {
+        return context.get(KEY);
+    }
+
+    public static Deadline current() {
+        return fromContext(Context.current());
+    }
+
+    // For work shared by several callers, each of which bounds its own wait
+    public static Context removeFrom(Context context) {
+        return context.with(KEY, null);
+    }
+
+    // The later of two deadlines, where null means no deadline
+    public static Deadline latest(Deadline first, Deadline second) {
+        if (first == null || second == null) {
+            return null;
+        }
+        return first.expiresAtNanos - second.expiresAtNanos >= 0 ? first : second;
+    }
+
+    public long remainingMs() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public Context storeInContext(Context context) {
+        return context.with(KEY, this);
+    }
+}
@@ -0,0 +1,54 @@
+package com.observability.spike.order.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sliding window over the most recent call latencies. Percentiles are recomputed periodically
+ * by {@link #recompute()} so readers on the request path only see two volatile reads.
+ */
+public class LatencyTracker {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final int minSamples;
+
+    private volatile long p95Ms = -1;
+    private volatile long p99Ms = -1;
+
+    public LatencyTracker(int windowSize, int minSamples) {
+        this.samples = new AtomicLongArray(windowSize);
+        this.minSamples = minSamples;
+    }
+
+    public void record(long durationMs) {
+        long index = sampleCount.getAndIncrement();
+        samples.set((int) (index % samples.length()), durationMs);
+    }
+
+    public void recompute() {
+        int size = (int) Math.min(sampleCount.get(), samples.length());
+        if (size < minSamples) {
+            return;
+        }
+
+        long[] window = new long[size];
+        for (int i = 0; i < size; i++) {
+            window[i] = samples.get(i);
+        }
+        Arrays.sort(window);
+
+        p95Ms = window[(int) Math.ceil(0.95 * size) - 1];
+        p99Ms = window[(int) Math.ceil(0.99 * size) - 1];
+    }
+
+    // -1 until the window holds minSamples latencies
+    public long p95Ms() {
+        return p95Ms;
+    }
+
+    public long p99Ms() {
+        return p99Ms;
+    }
+}
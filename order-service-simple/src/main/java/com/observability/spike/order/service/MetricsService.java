@@ -1,58 +1,175 @@
 package com.observability.spike.order.service;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
 @Service
 public class MetricsService {
     
+    // Bounds each per-tag-value meter cache; values past it still record, through a registry lookup
+    private static final int MAX_CACHED_TAG_VALUES = 256;
+    
     private final MeterRegistry meterRegistry;
-    private final Counter orderProcessingSuccessCounter;
+    private final Counter customerCacheHitCounter;
+    private final Counter customerCacheMissCounter;
+    private final Timer customerCacheLoadSuccessTimer;
+    private final Timer customerCacheLoadFailureTimer;
+    private final Counter customerCallTimeoutCounter;
+    
+    // Meters with a dynamic tag, registered on first use of each tag value and reused after that
+    private final Map<String, Counter> customerCacheEvictionCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> customerHedgeCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> deadlineExceededCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> customerEndpointSuccessTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> customerEndpointFailureTimers = new ConcurrentHashMap<>();
     
     public MetricsService(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
         
-        // Initialize counters with tags for better dimensional analysis
-        this.orderProcessingSuccessCounter = Counter.builder("order.processing.success")
-                .description("Count of successful order processing operations")
+        this.customerCacheHitCounter = Counter.builder("customer.cache.requests")
+                .description("Count of customer cache lookups")
+                .tag("service", "order-service")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        
+        this.customerCacheMissCounter = Counter.builder("customer.cache.requests")
+                .description("Count of customer cache lookups")
                 .tag("service", "order-service")
+                .tag("result", "miss")
                 .register(meterRegistry);
+        
+        this.customerCacheLoadSuccessTimer = Timer.builder("customer.cache.load.duration")
+                .description("Duration of customer cache loads from customer-service")
+                .tag("service", "order-service")
+                .tag("success", "true")
+                .register(meterRegistry);
+        
+        this.customerCacheLoadFailureTimer = Timer.builder("customer.cache.load.duration")
+                .description("Duration of customer cache loads from customer-service")
+                .tag("service", "order-service")
+                .tag("success", "false")
+                .register(meterRegistry);
+        
+        this.customerCallTimeoutCounter = Counter.builder("customer.call.timeouts")
+                .description("Count of customer-service calls that exceeded the adaptive timeout")
+                .tag("service", "order-service")
+                .register(meterRegistry);
+    }
+    
+    public void recordCustomerCacheHits(int count) {
+        customerCacheHitCounter.increment(count);
+    }
+    
+    public void recordCustomerCacheMisses(int count) {
+        customerCacheMissCounter.increment(count);
+    }
+    
+    public void recordCustomerCacheLoad(long durationNanos, boolean success) {
+        Timer timer = success ? customerCacheLoadSuccessTimer : customerCacheLoadFailureTimer;
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
     }
     
-    public void recordOrderProcessingSuccess() {
-        orderProcessingSuccessCounter.increment();
+    public void recordCustomerCacheEviction(String cause) {
+        Counter counter = customerCacheEvictionCounters.get(cause);
+        if (counter == null) {
+            counter = cache(customerCacheEvictionCounters, cause, Counter.builder("customer.cache.evictions")
+                    .tag("service", "order-service")
+                    .tag("cause", cause)
+                    .register(meterRegistry));
+        }
+        counter.increment();
     }
     
-    public void recordOrderProcessingFailure(String failureType) {
-        // Create counter with dynamic tags
-        Counter.builder("order.processing.failure")
+    public <T> void registerCustomerCallTimeoutGauge(T stateObject, ToDoubleFunction<T> timeoutMs) {
+        Gauge.builder("customer.call.timeout", stateObject, timeoutMs)
+                .description("Current adaptive timeout for customer-service calls")
                 .tag("service", "order-service")
-                .tag("failure_type", failureType)
-                .register(meterRegistry)
-                .increment();
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+    
+    public void recordCustomerCallTimeout() {
+        customerCallTimeoutCounter.increment();
     }
     
-    public void recordCustomerEnrichmentFailure(String orderId, String errorType) {
-        // Create counter with dynamic tags for failures
-        Counter.builder("customer.enrichment.failure")
+    public void recordCustomerHedge(String outcome) {
+        // Outcomes: sent, won, budget_exhausted
+        Counter counter = customerHedgeCounters.get(outcome);
+        if (counter == null) {
+            counter = cache(customerHedgeCounters, outcome, Counter.builder("customer.hedge.requests")
+                    .tag("service", "order-service")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+        counter.increment();
+    }
+    
+    public void recordDeadlineExceeded(String stage) {
+        // Stages: before_call, in_flight, downstream
+        Counter counter = deadlineExceededCounters.get(stage);
+        if (counter == null) {
+            counter = cache(deadlineExceededCounters, stage, Counter.builder("deadline.exceeded")
+                    .tag("service", "order-service")
+                    .tag("stage", stage)
+                    .register(meterRegistry));
+        }
+        counter.increment();
+    }
+    
+    public <T> void registerCustomerEndpointGauges(String endpoint, T stateObject, ToDoubleFunction<T> inFlight,
+                                                   ToDoubleFunction<T> ewmaLatencyMs, ToDoubleFunction<T> ejected) {
+        Gauge.builder("customer.endpoint.in_flight", stateObject, inFlight)
+                .description("Outstanding requests per customer-service endpoint")
                 .tag("service", "order-service")
-                .tag("operation", "customer_enrichment")
-                .tag("error_type", errorType)
-                .tag("order_id", orderId)
-                .register(meterRegistry)
-                .increment();
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        Gauge.builder("customer.endpoint.latency.ewma", stateObject, ewmaLatencyMs)
+                .description("EWMA latency per customer-service endpoint used for balancing")
+                .tag("service", "order-service")
+                .tag("endpoint", endpoint)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("customer.endpoint.ejected", stateObject, ejected)
+                .description("Whether the customer-service endpoint is currently ejected (1) or in rotation (0)")
+                .tag("service", "order-service")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
     }
     
-    public Timer.Sample startCustomerEnrichmentTimer() {
-        return Timer.start(meterRegistry);
+    public void recordCustomerEndpointCall(String endpoint, long durationNanos, boolean success) {
+        Map<String, Timer> timers = success ? customerEndpointSuccessTimers : customerEndpointFailureTimers;
+        Timer timer = timers.get(endpoint);
+        if (timer == null) {
+            timer = cache(timers, endpoint, Timer.builder("customer.endpoint.duration")
+                    .tag("service", "order-service")
+                    .tag("endpoint", endpoint)
+                    .tag("success", String.valueOf(success))
+                    .register(meterRegistry));
+        }
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
     }
     
-    public void recordCustomerEnrichmentDuration(Timer.Sample sample, boolean success) {
-        sample.stop(Timer.builder("customer.enrichment.duration")
+    public void recordCustomerEndpointEjection(String endpoint, String reason) {
+        Counter.builder("customer.endpoint.ejections")
                 .tag("service", "order-service")
-                .tag("success", String.valueOf(success))
-                .register(meterRegistry));
+                .tag("endpoint", endpoint)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+    
+    private static <M> M cache(Map<String, M> meters, String tagValue, M meter) {
+        if (meters.size() < MAX_CACHED_TAG_VALUES) {
+            meters.putIfAbsent(tagValue, meter);
+        }
+        return meter;
     }
 }
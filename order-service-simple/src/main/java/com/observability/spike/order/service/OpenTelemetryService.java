@@ -1,60 +1,178 @@
 package com.observability.spike.order.service;
 
+import com.observability.spike.order.config.MetricCardinalityGuard;
+import com.observability.spike.order.config.MetricCardinalityProperties;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.LongCounter;
 import io.opentelemetry.api.metrics.LongHistogram;
 import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
 import io.opentelemetry.context.Scope;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
 @Service
 public class OpenTelemetryService {
 
     private final Tracer tracer;
     private final Meter meter;
-    private final LongCounter orderProcessingCounter;
-    private final LongCounter customerEnrichmentFailureCounter;
-    private final LongHistogram customerEnrichmentDuration;
+    private final LongCounter customerCacheRequestCounter;
+    private final LongCounter customerCacheEvictionCounter;
+    private final LongHistogram customerCacheLoadDuration;
+    private final LongCounter customerCallTimeoutCounter;
+    private final LongCounter customerHedgeCounter;
+    private final LongCounter deadlineExceededCounter;
+    private final LongHistogram customerEndpointDuration;
+    private final LongCounter customerEndpointEjectionCounter;
+    private final LongCounter droppedAttributesCounter;
+    private final LongCounter overflowCounter;
+    private final MetricCardinalityGuard cardinalityGuard;
+
+    // Attribute sets are immutable, so the hot path reuses them instead of building one per recording
+    private final Attributes serviceAttributes;
+    private final Attributes cacheHitAttributes;
+    private final Attributes cacheMissAttributes;
+    private final Attributes cacheLoadSuccessAttributes;
+    private final Attributes cacheLoadFailureAttributes;
+    private final BoundAttributes evictionAttributes;
+    private final BoundAttributes hedgeAttributes;
+    private final BoundAttributes deadlineAttributes;
+    private final BoundAttributes endpointSuccessAttributes;
+    private final BoundAttributes endpointFailureAttributes;
 
     // Attribute keys for consistent metadata
     private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
     private static final AttributeKey<String> ORDER_ID = AttributeKey.stringKey("order.id");
-    private static final AttributeKey<String> CUSTOMER_ID = AttributeKey.stringKey("customer.id");
+    public static final AttributeKey<String> CUSTOMER_ID = AttributeKey.stringKey("customer.id");
     private static final AttributeKey<String> OPERATION = AttributeKey.stringKey("operation");
     private static final AttributeKey<String> ERROR_TYPE = AttributeKey.stringKey("error.type");
     private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+    private static final AttributeKey<String> CACHE_RESULT = AttributeKey.stringKey("cache.result");
+    private static final AttributeKey<String> EVICTION_CAUSE = AttributeKey.stringKey("eviction.cause");
+    private static final AttributeKey<String> HEDGE_OUTCOME = AttributeKey.stringKey("hedge.outcome");
+    public static final AttributeKey<String> DEADLINE_STAGE = AttributeKey.stringKey("deadline.stage");
+    private static final AttributeKey<String> ENDPOINT = AttributeKey.stringKey("endpoint");
+    private static final AttributeKey<String> EJECTION_REASON = AttributeKey.stringKey("ejection.reason");
+    public static final AttributeKey<Long> DURATION_MS = AttributeKey.longKey("duration.ms");
+    public static final AttributeKey<Long> DEADLINE_REMAINING_MS = AttributeKey.longKey("deadline.remaining.ms");
+    private static final AttributeKey<Long> BATCH_SIZE = AttributeKey.longKey("batch.size");
+    // The outbound customer lookup, described by its route rather than a per-customer URL
+    public static final Attributes CUSTOMER_REQUEST_ATTRIBUTES = Attributes.of(
+            AttributeKey.stringKey("http.method"), "GET",
+            AttributeKey.stringKey("url.template"), "/api/customers/{customerId}");
+    private static final AttributeKey<String> INSTRUMENT = AttributeKey.stringKey("instrument");
+    // Overflow series marker from the OTel metrics SDK specification
+    private static final Attributes OVERFLOW_ATTRIBUTES =
+            Attributes.of(AttributeKey.booleanKey("otel.metric.overflow"), true);
 
-    public OpenTelemetryService(Tracer otelTracer, Meter otelMeter) {
+    public OpenTelemetryService(Tracer otelTracer, Meter otelMeter, MetricCardinalityProperties cardinalityProperties) {
         this.tracer = otelTracer;
         this.meter = otelMeter;
+        this.cardinalityGuard = new MetricCardinalityGuard(cardinalityProperties);
 
         // Initialize metrics
-        this.orderProcessingCounter = meter
-                .counterBuilder("order.processing.operations")
-                .setDescription("Count of order processing operations")
+        this.customerCacheRequestCounter = meter
+                .counterBuilder("customer.cache.requests")
+                .setDescription("Count of customer cache lookups")
+                .setUnit("1")
+                .build();
+
+        this.customerCacheEvictionCounter = meter
+                .counterBuilder("customer.cache.evictions")
+                .setDescription("Count of customer cache evictions")
+                .setUnit("1")
+                .build();
+
+        this.customerCacheLoadDuration = meter
+                .histogramBuilder("customer.cache.load.duration")
+                .setDescription("Duration of customer cache loads from customer-service")
+                .setUnit("ms")
+                .ofLongs()
+                .build();
+
+        this.customerCallTimeoutCounter = meter
+                .counterBuilder("customer.call.timeouts")
+                .setDescription("Count of customer-service calls that exceeded the adaptive timeout")
                 .setUnit("1")
                 .build();
 
-        this.customerEnrichmentFailureCounter = meter
-                .counterBuilder("customer.enrichment.failures")
-                .setDescription("Count of customer enrichment failures")
+        this.customerHedgeCounter = meter
+                .counterBuilder("customer.hedge.requests")
+                .setDescription("Count of hedged customer-service requests by outcome")
                 .setUnit("1")
                 .build();
 
-        this.customerEnrichmentDuration = meter
-                .histogramBuilder("customer.enrichment.duration")
-                .setDescription("Duration of customer enrichment operations")
+        this.deadlineExceededCounter = meter
+                .counterBuilder("deadline.exceeded")
+                .setDescription("Count of customer-service calls abandoned because the request deadline passed")
+                .setUnit("1")
+                .build();
+
+        this.customerEndpointDuration = meter
+                .histogramBuilder("customer.endpoint.duration")
+                .setDescription("Duration of calls per customer-service endpoint")
                 .setUnit("ms")
                 .ofLongs()
                 .build();
+
+        this.customerEndpointEjectionCounter = meter
+                .counterBuilder("customer.endpoint.ejections")
+                .setDescription("Count of customer-service endpoints ejected by outlier detection")
+                .setUnit("1")
+                .build();
+
+        this.droppedAttributesCounter = meter
+                .counterBuilder("metrics.cardinality.dropped.attributes")
+                .setDescription("Count of attributes stripped from application metric recordings")
+                .setUnit("1")
+                .build();
+
+        this.overflowCounter = meter
+                .counterBuilder("metrics.cardinality.overflow")
+                .setDescription("Count of application metric recordings folded into the overflow series")
+                .setUnit("1")
+                .build();
+
+        this.serviceAttributes = Attributes.of(SERVICE_NAME, "order-service");
+        this.cacheHitAttributes = limit("customer.cache.requests",
+                Attributes.of(SERVICE_NAME, "order-service", CACHE_RESULT, "hit"));
+        this.cacheMissAttributes = limit("customer.cache.requests",
+                Attributes.of(SERVICE_NAME, "order-service", CACHE_RESULT, "miss"));
+        this.cacheLoadSuccessAttributes = limit("customer.cache.load.duration",
+                Attributes.of(SERVICE_NAME, "order-service", OUTCOME, "success"));
+        this.cacheLoadFailureAttributes = limit("customer.cache.load.duration",
+                Attributes.of(SERVICE_NAME, "order-service", OUTCOME, "failure"));
+
+        this.evictionAttributes = new BoundAttributes("customer.cache.evictions", cause ->
+                Attributes.of(SERVICE_NAME, "order-service", EVICTION_CAUSE, cause));
+        this.hedgeAttributes = new BoundAttributes("customer.hedge.requests", outcome ->
+                Attributes.of(SERVICE_NAME, "order-service", HEDGE_OUTCOME, outcome));
+        this.deadlineAttributes = new BoundAttributes("deadline.exceeded", stage ->
+                Attributes.of(SERVICE_NAME, "order-service", DEADLINE_STAGE, stage));
+        this.endpointSuccessAttributes = new BoundAttributes("customer.endpoint.duration", endpoint ->
+                Attributes.of(SERVICE_NAME, "order-service", ENDPOINT, endpoint, OUTCOME, "success"));
+        this.endpointFailureAttributes = new BoundAttributes("customer.endpoint.duration", endpoint ->
+                Attributes.of(SERVICE_NAME, "order-service", ENDPOINT, endpoint, OUTCOME, "failure"));
     }
 
     public Span startOrderProcessingSpan(String orderId) {
+        return startOrderProcessingSpan(orderId, Context.current());
+    }
+
+    public Span startOrderProcessingSpan(String orderId, Context parentContext) {
         return tracer.spanBuilder("order.processing")
+                .setParent(parentContext)
                 .setSpanKind(io.opentelemetry.api.trace.SpanKind.INTERNAL)
                 .setAttribute(SERVICE_NAME, "order-service")
                 .setAttribute(ORDER_ID, orderId)
@@ -63,7 +181,12 @@ public class OpenTelemetryService {
     }
 
     public Span startCustomerEnrichmentSpan(String orderId, String customerId) {
+        return startCustomerEnrichmentSpan(orderId, customerId, Context.current());
+    }
+
+    public Span startCustomerEnrichmentSpan(String orderId, String customerId, Context parentContext) {
         return tracer.spanBuilder("customer.enrichment")
+                .setParent(parentContext)
                 .setSpanKind(io.opentelemetry.api.trace.SpanKind.CLIENT)
                 .setAttribute(SERVICE_NAME, "order-service")
                 .setAttribute(ORDER_ID, orderId)
@@ -72,47 +195,129 @@ public class OpenTelemetryService {
                 .startSpan();
     }
 
-    public void recordOrderProcessingSuccess(String orderId) {
-        orderProcessingCounter.add(1, Attributes.of(
-                SERVICE_NAME, "order-service",
-                ORDER_ID, orderId,
-                OUTCOME, "success"
-        ));
+    // One span per batched customer call: parented on the first caller, linked to the other callers' spans
+    public Span startCustomerBatchSpan(Context parentContext, List<SpanContext> linkedRequests, int batchSize) {
+        SpanBuilder builder = tracer.spanBuilder("customer.batch")
+                .setParent(parentContext)
+                .setSpanKind(io.opentelemetry.api.trace.SpanKind.INTERNAL)
+                .setAttribute(SERVICE_NAME, "order-service")
+                .setAttribute(BATCH_SIZE, (long) batchSize);
+        for (SpanContext linked : linkedRequests) {
+            builder.addLink(linked);
+        }
+        return builder.startSpan();
     }
 
-    public void recordOrderProcessingFailure(String orderId, String failureType) {
-        orderProcessingCounter.add(1, Attributes.of(
-                SERVICE_NAME, "order-service",
-                ORDER_ID, orderId,
-                OUTCOME, "failure",
-                ERROR_TYPE, failureType
-        ));
+    // Refresh-ahead reload: a trace of its own, linked to the request whose read triggered it
+    public Span startCustomerCacheRefreshSpan(String customerId, SpanContext trigger) {
+        SpanBuilder builder = tracer.spanBuilder("customer.cache.refresh")
+                .setNoParent()
+                .setSpanKind(io.opentelemetry.api.trace.SpanKind.INTERNAL)
+                .setAttribute(SERVICE_NAME, "order-service")
+                .setAttribute(CUSTOMER_ID, customerId);
+        if (trigger.isValid()) {
+            builder.addLink(trigger);
+        }
+        return builder.startSpan();
     }
 
-    public void recordCustomerEnrichmentFailure(String orderId, String customerId, String errorType) {
-        customerEnrichmentFailureCounter.add(1, Attributes.of(
-                SERVICE_NAME, "order-service",
-                ORDER_ID, orderId,
-                CUSTOMER_ID, customerId,
-                ERROR_TYPE, errorType
-        ));
+    public void recordCustomerCacheHits(long count) {
+        customerCacheRequestCounter.add(count, cacheHitAttributes);
+    }
+
+    public void recordCustomerCacheMisses(long count) {
+        customerCacheRequestCounter.add(count, cacheMissAttributes);
+    }
+
+    public void recordCustomerCacheLoad(long durationMs, boolean success) {
+        customerCacheLoadDuration.record(durationMs, success ? cacheLoadSuccessAttributes : cacheLoadFailureAttributes);
+    }
+
+    public void recordCustomerCacheEviction(String cause) {
+        customerCacheEvictionCounter.add(1, evictionAttributes.get(cause));
+    }
+
+    public void recordCustomerCallTimeout() {
+        customerCallTimeoutCounter.add(1, serviceAttributes);
+    }
+
+    public void recordCustomerHedge(String outcome) {
+        customerHedgeCounter.add(1, hedgeAttributes.get(outcome));
+    }
+
+    public void recordDeadlineExceeded(String stage) {
+        deadlineExceededCounter.add(1, deadlineAttributes.get(stage));
+    }
+
+    public <T> void registerCustomerEndpointInFlightGauge(String endpoint, T stateObject, ToLongFunction<T> inFlight) {
+        Attributes attributes = Attributes.of(SERVICE_NAME, "order-service", ENDPOINT, endpoint);
+        meter.gaugeBuilder("customer.endpoint.in_flight")
+                .setDescription("Outstanding requests per customer-service endpoint")
+                .setUnit("1")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(inFlight.applyAsLong(stateObject), attributes));
+    }
+
+    public void recordCustomerEndpointCall(String endpoint, long durationMs, boolean success) {
+        BoundAttributes attributes = success ? endpointSuccessAttributes : endpointFailureAttributes;
+        customerEndpointDuration.record(durationMs, attributes.get(endpoint));
     }
 
-    public void recordCustomerEnrichmentDuration(long durationMs, String orderId, String customerId, boolean success) {
-        customerEnrichmentDuration.record(durationMs, Attributes.of(
+    // Rare enough to build its attributes per call
+    public void recordCustomerEndpointEjection(String endpoint, String reason) {
+        customerEndpointEjectionCounter.add(1, limit("customer.endpoint.ejections", Attributes.of(
                 SERVICE_NAME, "order-service",
-                ORDER_ID, orderId,
-                CUSTOMER_ID, customerId,
-                OUTCOME, success ? "success" : "failure"
-        ));
+                ENDPOINT, endpoint,
+                EJECTION_REASON, reason
+        )));
+    }
+
+    // Strips attributes the guard does not allow and folds series past the cap into the overflow series
+    private Attributes limit(String instrument, Attributes attributes) {
+        if (!cardinalityGuard.isGuarded(instrument)) {
+            return attributes;
+        }
+
+        Attributes kept = attributes.toBuilder()
+                .removeIf(key -> !cardinalityGuard.isTagAllowed(instrument, key.getKey()))
+                .build();
+        int dropped = attributes.size() - kept.size();
+        if (dropped > 0) {
+            droppedAttributesCounter.add(dropped, Attributes.of(INSTRUMENT, instrument));
+        }
+
+        if (!cardinalityGuard.admitSeries(instrument, kept)) {
+            overflowCounter.add(1, Attributes.of(INSTRUMENT, instrument));
+            return OVERFLOW_ATTRIBUTES;
+        }
+        return kept;
     }
 
     public void addSpanEvent(Span span, String eventName, Attributes attributes) {
         span.addEvent(eventName, attributes);
     }
 
+    // Typed single-attribute events; nothing is built for spans that are not recording
+    public void addSpanEvent(Span span, String eventName, AttributeKey<Long> key, long value) {
+        if (span.isRecording()) {
+            span.addEvent(eventName, Attributes.of(key, value));
+        }
+    }
+
+    public void addSpanEvent(Span span, String eventName, AttributeKey<String> key, String value) {
+        if (span.isRecording()) {
+            span.addEvent(eventName, Attributes.of(key, value));
+        }
+    }
+
     public void setSpanError(Span span, Throwable throwable) {
+        setSpanError(span, throwable, throwable.getClass().getSimpleName());
+    }
+
+    // error.type becomes a dimension of the span-derived metrics, so it must stay low-cardinality
+    public void setSpanError(Span span, Throwable throwable, String errorType) {
         span.setStatus(StatusCode.ERROR, throwable.getMessage());
+        span.setAttribute(ERROR_TYPE, errorType);
         span.recordException(throwable);
     }
 
@@ -120,23 +325,32 @@ public class OpenTelemetryService {
         span.setStatus(StatusCode.OK);
     }
 
-    // Utility method to create attributes
-    public static Attributes createAttributes(String key1, String value1) {
-        return Attributes.of(AttributeKey.stringKey(key1), value1);
-    }
+    /**
+     * Attribute sets for one instrument keyed by a single low-cardinality value, built and passed
+     * through the cardinality guard once per value rather than on every recording.
+     */
+    private final class BoundAttributes {
 
-    public static Attributes createAttributes(String key1, String value1, String key2, String value2) {
-        return Attributes.of(
-                AttributeKey.stringKey(key1), value1,
-                AttributeKey.stringKey(key2), value2
-        );
-    }
+        private final String instrument;
+        private final Function<String, Attributes> factory;
+        private final Map<String, Attributes> byValue = new ConcurrentHashMap<>();
+
+        private BoundAttributes(String instrument, Function<String, Attributes> factory) {
+            this.instrument = instrument;
+            this.factory = factory;
+        }
 
-    public static Attributes createAttributes(String key1, String value1, String key2, String value2, String key3, String value3) {
-        return Attributes.of(
-                AttributeKey.stringKey(key1), value1,
-                AttributeKey.stringKey(key2), value2,
-                AttributeKey.stringKey(key3), value3
-        );
+        Attributes get(String value) {
+            Attributes attributes = byValue.get(value);
+            if (attributes != null) {
+                return attributes;
+            }
+            attributes = limit(instrument, factory.apply(value));
+            // Overflowed values are not cached, so the map stays within the guard's series cap
+            if (attributes != OVERFLOW_ATTRIBUTES && byValue.size() < cardinalityGuard.maxSeriesPerMeter()) {
+                byValue.putIfAbsent(value, attributes);
+            }
+            return attributes;
+        }
     }
 }
@@ -1,18 +1,15 @@
 package com.observability.spike.order.service;
 
+import com.observability.spike.common.telemetry.TelemetryDispatcher;
 import com.observability.spike.order.model.Customer;
 import com.observability.spike.order.model.Order;
-import com.microsoft.applicationinsights.TelemetryClient;
+import com.observability.spike.order.repository.OrderRepository;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.context.Scope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -21,46 +18,49 @@ public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
     
-    private final RestTemplate restTemplate;
-    private final TelemetryClient telemetryClient;
-    private final MetricsService metricsService;
+    private final CustomerServiceClient customerServiceClient;
+    private final CustomerCache customerCache;
+    private final TelemetryDispatcher telemetryDispatcher;
     private final OpenTelemetryService openTelemetryService;
-    private final String customerServiceBaseUrl;
-    private final Map<String, Order> orderDatabase;
+    private final OrderRepository orderRepository;
 
-    public OrderService(RestTemplate restTemplate, 
-                       TelemetryClient telemetryClient,
-                       MetricsService metricsService,
+    public OrderService(CustomerServiceClient customerServiceClient,
+                       CustomerCache customerCache,
+                       TelemetryDispatcher telemetryDispatcher,
                        OpenTelemetryService openTelemetryService,
-                       @Value("${customer-service.base-url:http://localhost:8081}") String customerServiceBaseUrl) {
-        this.restTemplate = restTemplate;
-        this.telemetryClient = telemetryClient;
-        this.metricsService = metricsService;
+                       OrderRepository orderRepository) {
+        this.customerServiceClient = customerServiceClient;
+        this.customerCache = customerCache;
+        this.telemetryDispatcher = telemetryDispatcher;
         this.openTelemetryService = openTelemetryService;
-        this.customerServiceBaseUrl = customerServiceBaseUrl;
-        this.orderDatabase = initializeOrderData();
+        this.orderRepository = orderRepository;
     }
 
-    public Optional<Order> getOrderById(String orderId) {
+    public Optional<Order> getOrderById(String orderId, Deadline deadline) {
         logger.info("Looking up order with ID: {}", orderId);
         
         // Start OpenTelemetry span for order processing
         Span orderProcessingSpan = openTelemetryService.startOrderProcessingSpan(orderId);
+        if (deadline != null) {
+            orderProcessingSpan.setAttribute(OpenTelemetryService.DEADLINE_REMAINING_MS, deadline.remainingMs());
+        }
         
-        try (Scope scope = orderProcessingSpan.makeCurrent()) {
+        // The deadline rides along in the context so customer lookups can honor it
+        try (Scope scope = orderProcessingSpan.makeCurrent();
+             Scope deadlineScope = deadline != null ? deadline.makeCurrent() : Scope.noop()) {
             // Track custom event (Application Insights)
-            telemetryClient.trackEvent("OrderLookup", Map.of("orderId", orderId), Map.of("orderLookupCount", 1.0));
+            telemetryDispatcher.dispatch(client -> client.trackEvent("OrderLookup", Map.of("orderId", orderId), Map.of("orderLookupCount", 1.0)));
 
             // Simulate order lookup
-            Order order = orderDatabase.get(orderId);
+            Order order = orderRepository.findById(orderId);
             
             if (order == null) {
                 logger.warn("Order not found for ID: {}", orderId);
-                telemetryClient.trackEvent("OrderNotFound", Map.of("orderId", orderId), null);
+                telemetryDispatcher.dispatch(client -> client.trackEvent("OrderNotFound", Map.of("orderId", orderId), null));
                 
-                // Record failure in OpenTelemetry
-                openTelemetryService.recordOrderProcessingFailure(orderId, "order_not_found");
-                openTelemetryService.setSpanError(orderProcessingSpan, new IllegalArgumentException("Order not found"));
+                // Counted from the span status by the span metrics processor
+                openTelemetryService.setSpanError(orderProcessingSpan, new IllegalArgumentException("Order not found"),
+                    "order_not_found");
                 
                 return Optional.empty();
             }
@@ -68,16 +68,14 @@ public class OrderService {
             logger.info("Order found, enriching with customer data for customer: {}", order.getCustomerId());
             
             // Add span event for successful order lookup
-            openTelemetryService.addSpanEvent(orderProcessingSpan, "order.found", 
-                OpenTelemetryService.createAttributes("order.id", orderId, "customer.id", order.getCustomerId()));
+            openTelemetryService.addSpanEvent(orderProcessingSpan, "order.found",
+                OpenTelemetryService.CUSTOMER_ID, order.getCustomerId());
             
             // Enrich order with customer information
             Order enrichedOrder = enrichOrderWithCustomerData(order, orderProcessingSpan);
             
             logger.info("Successfully processed order: {} for customer: {}", orderId, order.getCustomerId());
             
-            // Record success in OpenTelemetry
-            openTelemetryService.recordOrderProcessingSuccess(orderId);
             openTelemetryService.setSpanSuccess(orderProcessingSpan);
             
             return Optional.of(enrichedOrder);
@@ -86,10 +84,8 @@ public class OrderService {
             logger.error("Unexpected error processing order: {}", orderId, e);
             
             // Track exception in Application Insights
-            telemetryClient.trackException(e);
+            telemetryDispatcher.dispatch(client -> client.trackException(e));
             
-            // Record failure in OpenTelemetry
-            openTelemetryService.recordOrderProcessingFailure(orderId, "unexpected_error");
             openTelemetryService.setSpanError(orderProcessingSpan, e);
             
             throw e;
@@ -107,55 +103,44 @@ public class OrderService {
             
             // Track dependency call
             long startTime = System.currentTimeMillis();
-            String url = customerServiceBaseUrl + "/api/customers/" + order.getCustomerId();
             
             // Add span event for outbound call
-            openTelemetryService.addSpanEvent(customerEnrichmentSpan, "http.request.start", 
-                OpenTelemetryService.createAttributes("http.url", url, "http.method", "GET"));
+            openTelemetryService.addSpanEvent(customerEnrichmentSpan, "http.request.start",
+                OpenTelemetryService.CUSTOMER_REQUEST_ATTRIBUTES);
             
-            Customer customer = restTemplate.getForObject(url, Customer.class);
+            Customer customer = customerCache.get(order.getCustomerId());
             
             long duration = System.currentTimeMillis() - startTime;
             
             // Track dependency telemetry (Application Insights)
-            telemetryClient.trackDependency("HTTP", "customer-service", 
-                new com.microsoft.applicationinsights.telemetry.Duration(duration), true);
+            telemetryDispatcher.dispatch(client -> client.trackDependency("HTTP", "customer-service", 
+                new com.microsoft.applicationinsights.telemetry.Duration(duration), true));
             
             if (customer != null) {
                 order.setCustomer(customer);
                 
                 // Application Insights telemetry
-                telemetryClient.trackEvent("CustomerEnrichmentSuccess", 
+                telemetryDispatcher.dispatch(client -> client.trackEvent("CustomerEnrichmentSuccess", 
                     Map.of("orderId", order.getOrderId(), "customerId", order.getCustomerId()), 
-                    Map.of("enrichmentDuration", (double) duration));
-                
-                // Track success metric (Application Insights)
-                telemetryClient.trackMetric("customer_enrichment_success", 1.0);
-                telemetryClient.trackMetric("customer_enrichment_duration_ms", (double) duration);
-                
-                // Track success using Micrometer
-                metricsService.recordOrderProcessingSuccess();
+                    Map.of("enrichmentDuration", (double) duration)));
                 
-                // Track success using OpenTelemetry
-                openTelemetryService.recordCustomerEnrichmentDuration(duration, order.getOrderId(), order.getCustomerId(), true);
+                // Rate and duration come from the span (span.duration, status OK)
                 openTelemetryService.setSpanSuccess(customerEnrichmentSpan);
                 
                 // Add span event for successful enrichment
-                openTelemetryService.addSpanEvent(customerEnrichmentSpan, "customer.enrichment.success", 
-                    OpenTelemetryService.createAttributes("customer.name", customer.getFirstName() + " " + customer.getLastName(), 
-                                                        "duration.ms", String.valueOf(duration)));
+                openTelemetryService.addSpanEvent(customerEnrichmentSpan, "customer.enrichment.success",
+                    OpenTelemetryService.DURATION_MS, duration);
                 
                 logger.info("Order enriched with customer data: {} {}", 
                            customer.getFirstName(), customer.getLastName());
             } else {
                 // Application Insights telemetry
-                telemetryClient.trackEvent("CustomerEnrichmentEmpty", 
-                    Map.of("orderId", order.getOrderId(), "customerId", order.getCustomerId()), null);
+                telemetryDispatcher.dispatch(client -> client.trackEvent("CustomerEnrichmentEmpty", 
+                    Map.of("orderId", order.getOrderId(), "customerId", order.getCustomerId()), null));
                 
-                // OpenTelemetry telemetry
-                openTelemetryService.recordCustomerEnrichmentDuration(duration, order.getOrderId(), order.getCustomerId(), false);
-                openTelemetryService.addSpanEvent(customerEnrichmentSpan, "customer.enrichment.empty_response", 
-                    OpenTelemetryService.createAttributes("duration.ms", String.valueOf(duration)));
+                // The span keeps an UNSET status, which span metrics report apart from OK
+                openTelemetryService.addSpanEvent(customerEnrichmentSpan, "customer.enrichment.empty_response",
+                    OpenTelemetryService.DURATION_MS, duration);
                 
                 logger.warn("Customer service returned null for order {}, returning order without customer data", 
                            order.getOrderId());
@@ -166,27 +151,14 @@ public class OrderService {
         } catch (Exception e) {
             logger.error("Error enriching order with customer data: {}", order.getOrderId(), e);
             
-            // Track exception (Application Insights)
-            telemetryClient.trackException(e);
-            telemetryClient.trackEvent("CustomerEnrichmentFailure", 
-                Map.of("orderId", order.getOrderId(), "customerId", order.getCustomerId(), "error", e.getMessage()), null);
-            
-            // Track custom metric for failure count (Application Insights way)
-            telemetryClient.trackMetric("customer_enrichment_failures", 1.0);
-            
-            // Track more detailed failure metrics with dimensions using MetricTelemetry
-            com.microsoft.applicationinsights.telemetry.MetricTelemetry failureMetric = 
-                new com.microsoft.applicationinsights.telemetry.MetricTelemetry("order_processing_failures", 1.0);
-            failureMetric.getProperties().put("failure_type", "customer_enrichment");
-            failureMetric.getProperties().put("service", "order-service");
-            failureMetric.getProperties().put("order_id", order.getOrderId());
-            telemetryClient.track(failureMetric);
+            telemetryDispatcher.dispatch(client -> {
+                // Track exception (Application Insights)
+                client.trackException(e);
+                client.trackEvent("CustomerEnrichmentFailure", 
+                    Map.of("orderId", order.getOrderId(), "customerId", order.getCustomerId(), "error", String.valueOf(e.getMessage())), null);
+            });
             
-            // Track failure using Micrometer (alternative approach)
-            metricsService.recordCustomerEnrichmentFailure(order.getOrderId(), e.getClass().getSimpleName());
-            
-            // Track failure using OpenTelemetry
-            openTelemetryService.recordCustomerEnrichmentFailure(order.getOrderId(), order.getCustomerId(), e.getClass().getSimpleName());
+            // Failures are counted from the span, by error.type (the exception class)
             openTelemetryService.setSpanError(customerEnrichmentSpan, e);
             
             // Return order without customer data rather than failing completely
@@ -195,16 +167,4 @@ public class OrderService {
             customerEnrichmentSpan.end();
         }
     }
-
-    private Map<String, Order> initializeOrderData() {
-        Map<String, Order> data = new HashMap<>();
-        
-        data.put("ORD-001", new Order("ORD-001", "123", "Laptop Computer", 1, new BigDecimal("999.99")));
-        data.put("ORD-002", new Order("ORD-002", "456", "Wireless Mouse", 2, new BigDecimal("29.99")));
-        data.put("ORD-003", new Order("ORD-003", "789", "USB-C Cable", 3, new BigDecimal("19.99")));
-        data.put("ORD-004", new Order("ORD-004", "999", "External Monitor", 1, new BigDecimal("299.99")));
-        data.put("ORD-005", new Order("ORD-005", "123", "Mechanical Keyboard", 1, new BigDecimal("149.99")));
-        
-        return data;
-    }
 }
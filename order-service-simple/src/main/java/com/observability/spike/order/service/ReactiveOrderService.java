@@ -0,0 +1,218 @@
+package com.observability.spike.order.service;
+
+import com.observability.spike.common.telemetry.TelemetryDispatcher;
+import com.observability.spike.order.model.Customer;
+import com.observability.spike.order.model.Order;
+import com.observability.spike.order.repository.OrderRepository;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.reactor.v3_1.ContextPropagationOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking counterpart of {@link OrderService}, active with the reactive profile. Produces
+ * the same order.processing / customer.enrichment span structure, with parents passed
+ * explicitly through the Reactor context instead of thread-local scopes.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveOrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveOrderService.class);
+
+    private final WebClient customerServiceWebClient;
+    private final TelemetryDispatcher telemetryDispatcher;
+    private final MetricsService metricsService;
+    private final OpenTelemetryService openTelemetryService;
+    private final OrderRepository orderRepository;
+
+    public ReactiveOrderService(WebClient customerServiceWebClient,
+                                TelemetryDispatcher telemetryDispatcher,
+                                MetricsService metricsService,
+                                OpenTelemetryService openTelemetryService,
+                                OrderRepository orderRepository) {
+        this.customerServiceWebClient = customerServiceWebClient;
+        this.telemetryDispatcher = telemetryDispatcher;
+        this.metricsService = metricsService;
+        this.openTelemetryService = openTelemetryService;
+        this.orderRepository = orderRepository;
+    }
+
+    public Mono<Order> getOrderById(String orderId, Deadline deadline) {
+        return Mono.deferContextual(reactorContext -> {
+            logger.info("Looking up order with ID: {}", orderId);
+
+            // Parent the span on the server span carried in the Reactor context
+            Context serverContext = ContextPropagationOperator.getOpenTelemetryContext(
+                    reactor.util.context.Context.of(reactorContext), Context.current());
+            Context parentContext = deadline != null ? serverContext.with(deadline) : serverContext;
+            Span orderProcessingSpan = openTelemetryService.startOrderProcessingSpan(orderId, parentContext);
+            if (deadline != null) {
+                orderProcessingSpan.setAttribute(OpenTelemetryService.DEADLINE_REMAINING_MS, deadline.remainingMs());
+            }
+
+            // Track custom event (Application Insights)
+            telemetryDispatcher.dispatch(parentContext, client -> client.trackEvent("OrderLookup", Map.of("orderId", orderId), Map.of("orderLookupCount", 1.0)));
+
+            // Simulate order lookup
+            Order order = orderRepository.findById(orderId);
+
+            if (order == null) {
+                logger.warn("Order not found for ID: {}", orderId);
+                telemetryDispatcher.dispatch(parentContext, client -> client.trackEvent("OrderNotFound", Map.of("orderId", orderId), null));
+
+                // Counted from the span status by the span metrics processor
+                openTelemetryService.setSpanError(orderProcessingSpan, new IllegalArgumentException("Order not found"),
+                    "order_not_found");
+                orderProcessingSpan.end();
+
+                return Mono.empty();
+            }
+
+            logger.info("Order found, enriching with customer data for customer: {}", order.getCustomerId());
+
+            // Add span event for successful order lookup
+            openTelemetryService.addSpanEvent(orderProcessingSpan, "order.found",
+                OpenTelemetryService.CUSTOMER_ID, order.getCustomerId());
+
+            return enrichOrderWithCustomerData(order, parentContext.with(orderProcessingSpan))
+                    .doOnSuccess(enrichedOrder -> {
+                        logger.info("Successfully processed order: {} for customer: {}", orderId, order.getCustomerId());
+
+                        openTelemetryService.setSpanSuccess(orderProcessingSpan);
+                    })
+                    .doOnError(e -> {
+                        logger.error("Unexpected error processing order: {}", orderId, e);
+
+                        // Track exception in Application Insights
+                        telemetryDispatcher.dispatch(parentContext.with(orderProcessingSpan),
+                            client -> client.trackException(e instanceof Exception ex ? ex : new RuntimeException(e)));
+
+                        openTelemetryService.setSpanError(orderProcessingSpan, e);
+                    })
+                    .doFinally(signalType -> orderProcessingSpan.end());
+        });
+    }
+
+    private Mono<Order> enrichOrderWithCustomerData(Order order, Context parentContext) {
+        return Mono.defer(() -> {
+            // Start OpenTelemetry span for customer enrichment
+            Span customerEnrichmentSpan = openTelemetryService.startCustomerEnrichmentSpan(
+                    order.getOrderId(), order.getCustomerId(), parentContext);
+            Context enrichmentContext = parentContext.with(customerEnrichmentSpan);
+
+            logger.info("Calling customer service for customer ID: {}", order.getCustomerId());
+
+            long startTime = System.currentTimeMillis();
+
+            // Add span event for outbound call
+            openTelemetryService.addSpanEvent(customerEnrichmentSpan, "http.request.start",
+                OpenTelemetryService.CUSTOMER_REQUEST_ATTRIBUTES);
+
+            return customerCall(order.getCustomerId(), Deadline.fromContext(parentContext), customerEnrichmentSpan)
+                    .map(customer -> {
+                        long duration = System.currentTimeMillis() - startTime;
+
+                        order.setCustomer(customer);
+
+                        // Application Insights dependency and event
+                        telemetryDispatcher.dispatch(enrichmentContext, client -> {
+                            client.trackDependency("HTTP", "customer-service",
+                                new com.microsoft.applicationinsights.telemetry.Duration(duration), true);
+                            client.trackEvent("CustomerEnrichmentSuccess",
+                                Map.of("orderId", order.getOrderId(), "customerId", order.getCustomerId()),
+                                Map.of("enrichmentDuration", (double) duration));
+                        });
+
+                        // Rate and duration come from the span (span.duration, status OK)
+                        openTelemetryService.setSpanSuccess(customerEnrichmentSpan);
+
+                        // Add span event for successful enrichment
+                        openTelemetryService.addSpanEvent(customerEnrichmentSpan, "customer.enrichment.success",
+                            OpenTelemetryService.DURATION_MS, duration);
+
+                        logger.info("Order enriched with customer data: {} {}",
+                                   customer.getFirstName(), customer.getLastName());
+                        return order;
+                    })
+                    .switchIfEmpty(Mono.fromSupplier(() -> {
+                        long duration = System.currentTimeMillis() - startTime;
+
+                        // Application Insights telemetry
+                        telemetryDispatcher.dispatch(enrichmentContext, client -> client.trackEvent("CustomerEnrichmentEmpty",
+                            Map.of("orderId", order.getOrderId(), "customerId", order.getCustomerId()), null));
+
+                        // The span keeps an UNSET status, which span metrics report apart from OK
+                        openTelemetryService.addSpanEvent(customerEnrichmentSpan, "customer.enrichment.empty_response",
+                            OpenTelemetryService.DURATION_MS, duration);
+
+                        logger.warn("Customer service returned null for order {}, returning order without customer data",
+                                   order.getOrderId());
+                        return order;
+                    }))
+                    .onErrorResume(e -> {
+                        if (e instanceof TimeoutException) {
+                            recordDeadlineExceeded(customerEnrichmentSpan, "in_flight");
+                        } else if (e instanceof WebClientResponseException.GatewayTimeout
+                                && Deadline.fromContext(parentContext) != null) {
+                            recordDeadlineExceeded(customerEnrichmentSpan, "downstream");
+                        }
+                        logger.error("Error enriching order with customer data: {}", order.getOrderId(), e);
+
+                        // Track exception (Application Insights)
+                        telemetryDispatcher.dispatch(enrichmentContext, client -> {
+                            client.trackException(e instanceof Exception ex ? ex : new RuntimeException(e));
+                            client.trackEvent("CustomerEnrichmentFailure",
+                                Map.of("orderId", order.getOrderId(), "customerId", order.getCustomerId(), "error", String.valueOf(e.getMessage())), null);
+                        });
+
+                        // Failures are counted from the span, by error.type (the exception class)
+                        openTelemetryService.setSpanError(customerEnrichmentSpan, e);
+
+                        // Return order without customer data rather than failing completely
+                        return Mono.just(order);
+                    })
+                    .doFinally(signalType -> customerEnrichmentSpan.end())
+                    // Outbound HTTP instrumentation picks its parent from the Reactor context
+                    .contextWrite(reactorContext -> ContextPropagationOperator.storeOpenTelemetryContext(reactorContext, enrichmentContext));
+        });
+    }
+
+    private Mono<Customer> customerCall(String customerId, Deadline deadline, Span span) {
+        if (deadline == null) {
+            return customerServiceWebClient.get()
+                    .uri("/api/customers/{customerId}", customerId)
+                    .retrieve()
+                    .bodyToMono(Customer.class);
+        }
+        if (deadline.isExpired()) {
+            // The caller has already given up, so skip the downstream call entirely
+            recordDeadlineExceeded(span, "before_call");
+            return Mono.error(new IllegalStateException("Request deadline exceeded before calling customer service"));
+        }
+
+        long remainingMs = deadline.remainingMs();
+        return customerServiceWebClient.get()
+                .uri("/api/customers/{customerId}", customerId)
+                .header(Deadline.HEADER, String.valueOf(remainingMs))
+                .retrieve()
+                .bodyToMono(Customer.class)
+                .timeout(Duration.ofMillis(remainingMs));
+    }
+
+    private void recordDeadlineExceeded(Span span, String stage) {
+        metricsService.recordDeadlineExceeded(stage);
+        openTelemetryService.recordDeadlineExceeded(stage);
+        openTelemetryService.addSpanEvent(span, "deadline.exceeded", OpenTelemetryService.DEADLINE_STAGE, stage);
+    }
+}
@@ -0,0 +1,127 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentTraceBufferTest {
+
+    private static final int WRITERS = 4;
+    private static final int TRACES_PER_WRITER = 2_000;
+
+    @Test
+    void queriesStayConsistentWhileSpansAreAddedAndEvicted() throws Exception {
+        // Small enough that spans are evicted while the queries run
+        RecentTraceBuffer buffer = new RecentTraceBuffer(256 * 1024);
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(new RecentTraceProcessor(buffer))
+                .build();
+        Tracer tracer = tracerProvider.get("test");
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Queue<String> violations = new ConcurrentLinkedQueue<>();
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < TRACES_PER_WRITER; i++) {
+                        endTrace(tracer, "ORD-" + (i % 10), "CUST-" + writer, i % 7 == 0);
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readers = List.of(
+                    executor.submit(() -> query(buffer, start, writing, violations, false)),
+                    executor.submit(() -> query(buffer, start, writing, violations, true)));
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            tracerProvider.close();
+        }
+
+        assertThat(violations).isEmpty();
+        assertThat(buffer.estimatedBytes()).isPositive().isLessThanOrEqualTo(256 * 1024);
+        List<RecentTraceBuffer.TraceSummary> all = buffer.traces(null, null, null, false, Integer.MAX_VALUE);
+        assertThat(all).isNotEmpty().isSortedAccordingTo(
+                Comparator.comparing(RecentTraceBuffer.TraceSummary::start).reversed());
+        assertThat(all).allSatisfy(summary -> assertThat(summary.spanCount()).isBetween(1, 2));
+    }
+
+    private static void endTrace(Tracer tracer, String orderId, String customerId, boolean error) {
+        Span root = tracer.spanBuilder("order.processing")
+                .setAttribute(RecentTraceBuffer.ORDER_ID, orderId)
+                .startSpan();
+        Span child = tracer.spanBuilder("customer.enrichment")
+                .setParent(Context.root().with(root))
+                .setAttribute(RecentTraceBuffer.CUSTOMER_ID, customerId)
+                .startSpan();
+        if (error) {
+            child.setStatus(StatusCode.ERROR);
+        }
+        child.end();
+        root.end();
+    }
+
+    private static Void query(RecentTraceBuffer buffer, CountDownLatch start, AtomicBoolean writing,
+                              Queue<String> violations, boolean slowest) throws InterruptedException {
+        start.await();
+        Comparator<RecentTraceBuffer.TraceSummary> order = slowest
+                ? Comparator.comparingDouble(RecentTraceBuffer.TraceSummary::durationMs).reversed()
+                : Comparator.comparing(RecentTraceBuffer.TraceSummary::start).reversed();
+        while (writing.get()) {
+            List<RecentTraceBuffer.TraceSummary> recent = buffer.traces(null, null, null, slowest, 20);
+            check(recent, order, 20, violations);
+
+            List<RecentTraceBuffer.TraceSummary> failed = buffer.traces("ORD-0", "CUST-1", true, slowest, 50);
+            check(failed, order, 50, violations);
+            for (RecentTraceBuffer.TraceSummary summary : failed) {
+                if (!summary.error() || !summary.orderIds().contains("ORD-0") || !summary.customerIds().contains("CUST-1")) {
+                    violations.add("filter mismatch: " + summary);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void check(List<RecentTraceBuffer.TraceSummary> summaries,
+                              Comparator<RecentTraceBuffer.TraceSummary> order, int limit, Queue<String> violations) {
+        if (summaries.size() > limit) {
+            violations.add("more than " + limit + " summaries: " + summaries.size());
+        }
+        for (int i = 1; i < summaries.size(); i++) {
+            if (order.compare(summaries.get(i - 1), summaries.get(i)) > 0) {
+                violations.add("out of order at " + i + ": " + summaries);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpanMetricsProcessorTest {
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+    private static final AttributeKey<String> SPAN_NAME = AttributeKey.stringKey("span.name");
+    private static final AttributeKey<String> STATUS_CODE = AttributeKey.stringKey("status.code");
+
+    private final List<MetricData> exported = new CopyOnWriteArrayList<>();
+    private final List<SpanData> snapshots = new CopyOnWriteArrayList<>();
+    private SdkMeterProvider meterProvider;
+    private SdkTracerProvider tracerProvider;
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+        meterProvider.close();
+    }
+
+    @Test
+    void spansAreCountedAndTimedByNameStatusAndErrorType() {
+        Tracer tracer = tracer(new SpanMetricsProcessor(meter(), "order-service-test", 100, 20));
+
+        Span order = tracer.spanBuilder("order.processing").startSpan();
+        Span enrichment = tracer.spanBuilder("customer.enrichment").setParent(Context.root().with(order))
+                .setSpanKind(SpanKind.CLIENT)
+                .startSpan();
+        enrichment.setStatus(StatusCode.OK);
+        enrichment.end();
+        order.setStatus(StatusCode.ERROR);
+        order.setAttribute(SpanMetricsProcessor.ERROR_TYPE, "order_not_found");
+        order.end();
+        tracer.spanBuilder("order.processing").startSpan().end();
+
+        Map<Attributes, Long> calls = calls();
+        assertThat(calls).containsEntry(series("customer.enrichment", "CLIENT", "OK", null), 1L)
+                .containsEntry(series("order.processing", "INTERNAL", "ERROR", "order_not_found"), 1L)
+                .containsEntry(series("order.processing", "INTERNAL", "UNSET", null), 1L)
+                .hasSize(3);
+        assertThat(calls.keySet()).allMatch(attributes -> "order-service-test".equals(attributes.get(SERVICE_NAME)));
+        assertThat(metric("span.duration").getHistogramData().getPoints()).hasSize(3);
+    }
+
+    @Test
+    void extraSpanNamesAndErrorTypesAreFoldedIntoOther() {
+        Tracer tracer = tracer(new SpanMetricsProcessor(meter(), "order-service-test", 1, 1));
+
+        for (String errorType : List.of("timeout", "not_found", "refused")) {
+            Span span = tracer.spanBuilder("order.processing").startSpan();
+            span.setStatus(StatusCode.ERROR);
+            span.setAttribute(SpanMetricsProcessor.ERROR_TYPE, errorType);
+            span.end();
+        }
+        tracer.spanBuilder("customer.enrichment").startSpan().end();
+
+        assertThat(calls())
+                .containsEntry(series("order.processing", "INTERNAL", "ERROR", "timeout"), 1L)
+                .containsEntry(series("order.processing", "INTERNAL", "ERROR", SpanMetricsProcessor.OTHER), 2L)
+                .containsEntry(series(SpanMetricsProcessor.OTHER, "INTERNAL", "UNSET", null), 1L)
+                .hasSize(3);
+    }
+
+    @Test
+    void processorsRegisteredTogetherShareOneSnapshot() {
+        Tracer tracer = tracer(new SharedSnapshotSpanProcessor(List.of(
+                new SpanMetricsProcessor(meter(), "order-service-test", 100, 20),
+                new CapturingProcessor(),
+                new CapturingProcessor())));
+
+        Span span = tracer.spanBuilder("order.processing").startSpan();
+        span.setStatus(StatusCode.ERROR);
+        span.end();
+
+        assertThat(snapshots).hasSize(2);
+        assertThat(snapshots.get(0)).isSameAs(snapshots.get(1));
+        assertThat(calls()).containsEntry(series("order.processing", "INTERNAL", "ERROR", null), 1L);
+    }
+
+    private Meter meter() {
+        meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(PeriodicMetricReader.builder(new CollectingExporter())
+                        .setInterval(Duration.ofHours(1))
+                        .build())
+                .build();
+        return meterProvider.get("test");
+    }
+
+    private Tracer tracer(SpanProcessor processor) {
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+        return tracerProvider.get("test");
+    }
+
+    private Map<Attributes, Long> calls() {
+        return metric("span.calls").getLongSumData().getPoints().stream()
+                .collect(Collectors.toMap(LongPointData::getAttributes, LongPointData::getValue));
+    }
+
+    private MetricData metric(String name) {
+        exported.clear();
+        meterProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        return exported.stream().filter(metric -> metric.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static Attributes series(String spanName, String kind, String status, String errorType) {
+        var builder = Attributes.builder()
+                .put(SERVICE_NAME, "order-service-test")
+                .put(SPAN_NAME, spanName)
+                .put(AttributeKey.stringKey("span.kind"), kind)
+                .put(STATUS_CODE, status);
+        if (errorType != null) {
+            builder.put(SpanMetricsProcessor.ERROR_TYPE, errorType);
+        }
+        return builder.build();
+    }
+
+    private final class CapturingProcessor implements SnapshotSpanProcessor {
+
+        @Override
+        public void onStart(Context parentContext, ReadWriteSpan span) {
+        }
+
+        @Override
+        public boolean isStartRequired() {
+            return false;
+        }
+
+        @Override
+        public void onEnd(ReadableSpan span, SpanData snapshot) {
+            snapshots.add(snapshot);
+        }
+
+        @Override
+        public boolean isEndRequired() {
+            return true;
+        }
+    }
+
+    private final class CollectingExporter implements MetricExporter {
+
+        @Override
+        public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+            return AggregationTemporality.CUMULATIVE;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<MetricData> metrics) {
+            exported.addAll(metrics);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
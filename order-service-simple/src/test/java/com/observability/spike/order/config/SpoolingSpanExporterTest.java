@@ -0,0 +1,130 @@
+package com.observability.spike.order.config;
+
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpoolingSpanExporterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void spansSpooledBeforeARestartAreReplayedOnceTheExporterRecovers() throws InterruptedException {
+        SpanSpoolProperties properties = properties();
+        List<SpanData> spans = spans(3);
+
+        SpanSpool spool = new SpanSpool(properties);
+        SpoolingSpanExporter exporter = new SpoolingSpanExporter(new StubExporter(Integer.MAX_VALUE), spool, properties);
+        assertThat(exporter.export(spans).isSuccess()).isTrue();
+        assertThat(spool.spooledSpans()).isEqualTo(3);
+        exporter.shutdown();
+
+        // Recovered when the spool is created, before anything new is appended
+        SpanSpool restarted = new SpanSpool(properties);
+        assertThat(restarted.pendingSpans()).isEqualTo(3);
+        assertThat(restarted.pendingBytes()).isPositive();
+        assertThat(restarted.replayLagMillis()).isGreaterThanOrEqualTo(0);
+
+        StubExporter recovering = new StubExporter(2);
+        SpoolingSpanExporter replaying = new SpoolingSpanExporter(recovering, restarted, properties);
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (restarted.pendingSpans() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertThat(recovering.failedCalls()).isEqualTo(2);
+            assertThat(recovering.exported()).extracting(SpanData::getName)
+                    .containsExactly("span-0", "span-1", "span-2");
+            assertThat(restarted.pendingSpans()).isZero();
+            assertThat(restarted.replayedSpans()).isEqualTo(3);
+            assertThat(restarted.replayLagMillis()).isZero();
+        } finally {
+            replaying.shutdown();
+        }
+    }
+
+    private SpanSpoolProperties properties() {
+        SpanSpoolProperties properties = new SpanSpoolProperties();
+        properties.setDirectory(directory);
+        properties.setSegmentBytes(64 * 1024);
+        properties.setMaxBytes(256 * 1024);
+        properties.setExportTimeoutMs(1000);
+        properties.setRetryIntervalMs(20);
+        properties.setReplayIntervalMs(10);
+        return properties;
+    }
+
+    private static List<SpanData> spans(int count) {
+        List<SpanData> ended = new ArrayList<>();
+        try (SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(new StubExporter(0) {
+                    @Override
+                    public CompletableResultCode export(Collection<SpanData> spans) {
+                        ended.addAll(spans);
+                        return CompletableResultCode.ofSuccess();
+                    }
+                }))
+                .build()) {
+            Tracer tracer = tracerProvider.get("test");
+            for (int i = 0; i < count; i++) {
+                tracer.spanBuilder("span-" + i).startSpan().end();
+            }
+        }
+        return ended;
+    }
+
+    // Fails the first calls, then accepts everything
+    private static class StubExporter implements SpanExporter {
+
+        private final int failures;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final List<SpanData> exported = new CopyOnWriteArrayList<>();
+
+        StubExporter(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            if (calls.getAndIncrement() < failures) {
+                return CompletableResultCode.ofFailure();
+            }
+            exported.addAll(spans);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        int failedCalls() {
+            return Math.min(calls.get(), failures);
+        }
+
+        List<SpanData> exported() {
+            return exported;
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
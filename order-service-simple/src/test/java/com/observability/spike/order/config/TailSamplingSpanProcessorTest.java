@@ -0,0 +1,187 @@
+package com.observability.spike.order.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TailSamplingSpanProcessorTest {
+
+    private static final long WAIT_MS = 50;
+
+    private final List<SpanData> exported = new CopyOnWriteArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", meterRegistry);
+        TraceSamplingMetrics metrics = new TraceSamplingMetrics(beanFactory.getBeanProvider(MeterRegistry.class),
+                MeterProvider.noop().get("test"));
+
+        TraceSamplingProperties.Tail properties = new TraceSamplingProperties.Tail();
+        properties.setMaxKeptPerSecond(0);
+        properties.setSlowEnrichmentMs(500);
+        properties.setDecisionWaitMs(WAIT_MS);
+        properties.setLateSpanWaitMs(WAIT_MS);
+
+        tracerProvider = SdkTracerProvider.builder()
+                // Every trace is recorded but unsampled, as when the head sampler's rate is used up
+                .setSampler(new RecordOnlySampler())
+                .addSpanProcessor(new TailSamplingSpanProcessor(
+                        SimpleSpanProcessor.create(new CollectingExporter()), properties, metrics))
+                .build();
+        tracer = tracerProvider.get("test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+        meterRegistry.close();
+    }
+
+    @Test
+    void tracesWithAnErrorOrASlowEnrichmentAreExportedAsSampled() {
+        Span root = tracer.spanBuilder("order.request").startSpan();
+        Span failed = tracer.spanBuilder("customer.fetch").setParent(Context.root().with(root)).startSpan();
+        failed.setStatus(StatusCode.ERROR);
+        failed.end();
+        root.end();
+
+        long start = System.currentTimeMillis();
+        Span slowRoot = tracer.spanBuilder("order.request").startSpan();
+        Span enrichment = tracer.spanBuilder("customer.enrichment").setParent(Context.root().with(slowRoot))
+                .setStartTimestamp(start, TimeUnit.MILLISECONDS)
+                .startSpan();
+        enrichment.end(start + 600, TimeUnit.MILLISECONDS);
+        slowRoot.end();
+
+        assertThat(exported).extracting(SpanData::getName)
+                .containsExactly("customer.fetch", "order.request", "customer.enrichment", "order.request");
+        assertThat(exported).allMatch(span -> span.getSpanContext().isSampled());
+        assertThat(count("kept_by_rule", TailSamplingSpanProcessor.RULE_ERROR)).isEqualTo(1);
+        assertThat(count("kept_by_rule", TailSamplingSpanProcessor.RULE_SLOW_ENRICHMENT)).isEqualTo(1);
+    }
+
+    @Test
+    void tracesWithoutARuleAreDropped() {
+        Span root = tracer.spanBuilder("order.request").startSpan();
+        tracer.spanBuilder("customer.fetch").setParent(Context.root().with(root)).startSpan().end();
+        root.end();
+
+        assertThat(exported).isEmpty();
+        assertThat(count("dropped", "not_kept")).isEqualTo(1);
+    }
+
+    @Test
+    void spansEndingAfterTheRootFollowTheDecisionAndAreNotCountedAgain() throws InterruptedException {
+        Span kept = tracer.spanBuilder("order.request").startSpan();
+        Span keptBatch = tracer.spanBuilder("customer.batch").setParent(Context.root().with(kept)).startSpan();
+        kept.setStatus(StatusCode.ERROR);
+        kept.end();
+        keptBatch.end();
+
+        Span dropped = tracer.spanBuilder("order.request").startSpan();
+        Span droppedHedge = tracer.spanBuilder("customer.fetch").setParent(Context.root().with(dropped)).startSpan();
+        dropped.end();
+        // Fails after the root, but the trace is already dropped
+        droppedHedge.setStatus(StatusCode.ERROR);
+        droppedHedge.end();
+
+        // Lets the decisions age out, then ends another root to sweep
+        Thread.sleep(WAIT_MS * 3);
+        tracer.spanBuilder("order.request").startSpan().end();
+
+        assertThat(exported).extracting(SpanData::getName).containsExactly("order.request", "customer.batch");
+        assertThat(count("kept_by_rule", TailSamplingSpanProcessor.RULE_ERROR)).isEqualTo(1);
+        assertThat(count("dropped", "not_kept")).isEqualTo(2);
+        assertThat(count("dropped", "expired")).isZero();
+    }
+
+    @Test
+    void tracesWhoseRootNeverEndsExpire() throws InterruptedException {
+        Span root = tracer.spanBuilder("order.request").startSpan();
+        Span failed = tracer.spanBuilder("customer.fetch").setParent(Context.root().with(root)).startSpan();
+        failed.setStatus(StatusCode.ERROR);
+        failed.end();
+
+        Thread.sleep(WAIT_MS * 3);
+        tracer.spanBuilder("order.request").startSpan().end();
+        // The expired trace's root no longer finds its buffered spans
+        root.end();
+
+        assertThat(exported).isEmpty();
+        assertThat(count("dropped", "expired")).isEqualTo(1);
+        assertThat(count("dropped", "not_kept")).isEqualTo(2);
+    }
+
+    private double count(String decision, String reason) {
+        Counter counter = meterRegistry.find("telemetry.sampling.traces")
+                .tag("decision", decision)
+                .tag("reason", reason)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static final class RecordOnlySampler implements Sampler {
+
+        @Override
+        public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                                           Attributes attributes, List<LinkData> parentLinks) {
+            return SamplingResult.create(SamplingDecision.RECORD_ONLY);
+        }
+
+        @Override
+        public String getDescription() {
+            return "RecordOnly";
+        }
+    }
+
+    private final class CollectingExporter implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            exported.addAll(spans);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.observability.spike.order.service;
+
+import com.observability.spike.order.model.Customer;
+import io.opentelemetry.context.Scope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerCacheTest {
+
+    private final RecordingTelemetry telemetry = new RecordingTelemetry();
+    private final CustomerEndpointBalancer balancer = new CustomerEndpointBalancer(
+            telemetry.metricsService(), telemetry.openTelemetryService(),
+            List.of("http://customer-service"), 1000, 10, 0.5, 3.0, 10000, 50);
+    private final StubCustomerServiceClient client = new StubCustomerServiceClient();
+    private final CustomerCache cache = new CustomerCache(client, telemetry.metricsService(),
+            telemetry.openTelemetryService(), true, 100, 60, 0);
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        balancer.shutdown();
+        telemetry.close();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoadWithoutHoldingUpOtherCustomers() throws Exception {
+        CompletableFuture<Customer> slow = client.respondWith("1");
+        client.respondWith("2").complete(new Customer("2", "Ada", "Lovelace", "ada@example.com", "ACTIVE"));
+
+        CompletableFuture<Customer> first = CompletableFuture.supplyAsync(() -> cache.get("1"));
+        CompletableFuture<Customer> second = CompletableFuture.supplyAsync(() -> cache.get("1"));
+        // While customer 1 is loading, a miss for another customer goes through on its own
+        assertThat(CompletableFuture.supplyAsync(() -> cache.get("2")).get(1, TimeUnit.SECONDS).getCustomerId())
+                .isEqualTo("2");
+
+        slow.complete(new Customer("1", "Grace", "Hopper", "grace@example.com", "ACTIVE"));
+        assertThat(first.get(1, TimeUnit.SECONDS).getCustomerId()).isEqualTo("1");
+        assertThat(second.get(1, TimeUnit.SECONDS).getCustomerId()).isEqualTo("1");
+        assertThat(client.calls("1")).isEqualTo(1);
+    }
+
+    @Test
+    void callerWhoseDeadlinePassesDoesNotFailOthersWaitingOnTheSameLoad() throws Exception {
+        CompletableFuture<Customer> slow = client.respondWith("1");
+
+        CompletableFuture<Customer> patient = CompletableFuture.supplyAsync(() -> {
+            try (Scope deadline = Deadline.after(0).makeCurrent()) {
+                // Already expired: no load is started for this caller
+                assertThatThrownBy(() -> cache.get("1")).isInstanceOf(ResourceAccessException.class);
+            }
+            try (Scope deadline = Deadline.after(50).makeCurrent()) {
+                assertThatThrownBy(() -> cache.get("1"))
+                        .isInstanceOf(ResourceAccessException.class)
+                        .hasMessageContaining("deadline");
+            }
+            return cache.get("1");
+        });
+        Thread.sleep(200);
+        slow.complete(new Customer("1", "Grace", "Hopper", "grace@example.com", "ACTIVE"));
+
+        assertThat(patient.get(1, TimeUnit.SECONDS).getCustomerId()).isEqualTo("1");
+        assertThat(client.calls("1")).isEqualTo(1);
+        // The shared load carried no caller's deadline
+        assertThat(client.deadlines).containsExactly(false);
+        assertThat(deadlineExceeded("before_call")).isEqualTo(1);
+        assertThat(deadlineExceeded("in_flight")).isEqualTo(1);
+    }
+
+    private double deadlineExceeded(String stage) {
+        return telemetry.meterRegistry().get("deadline.exceeded").tag("stage", stage).counter().count();
+    }
+
+    // Answers each customer with a future the test completes, counting the calls
+    private final class StubCustomerServiceClient extends CustomerServiceClient {
+
+        private final Map<String, CompletableFuture<Customer>> responses = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        private final Queue<Boolean> deadlines = new ConcurrentLinkedQueue<>();
+
+        StubCustomerServiceClient() {
+            super(new RestTemplate(), telemetry.metricsService(), telemetry.openTelemetryService(), balancer,
+                    false, 5, 50, false, 2.0, 50, 2000, 1000, false, 10, 5, 1024, 10, true);
+        }
+
+        CompletableFuture<Customer> respondWith(String customerId) {
+            return responses.computeIfAbsent(customerId, id -> new CompletableFuture<>());
+        }
+
+        int calls(String customerId) {
+            return calls.getOrDefault(customerId, new AtomicInteger()).get();
+        }
+
+        @Override
+        public Customer getCustomer(String customerId) {
+            calls.computeIfAbsent(customerId, id -> new AtomicInteger()).incrementAndGet();
+            deadlines.add(Deadline.current() != null);
+            return respondWith(customerId).join();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.observability.spike.order.service;
+
+import io.micrometer.core.instrument.Counter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerEndpointBalancerTest {
+
+    private final RecordingTelemetry telemetry = new RecordingTelemetry();
+    // Outlier detection is driven by the tests, not the scheduler
+    private final CustomerEndpointBalancer balancer = new CustomerEndpointBalancer(
+            telemetry.metricsService(), telemetry.openTelemetryService(),
+            List.of("http://customer-a:8081", "http://customer-b:8081"), 3_600_000, 10, 0.5, 3.0, 10000, 50);
+
+    @AfterEach
+    void tearDown() {
+        balancer.shutdown();
+        telemetry.close();
+    }
+
+    @Test
+    void slowEndpointIsEjectedAgainstItsPeer() {
+        CustomerEndpointBalancer.Endpoint fast = balancer.endpoints().get(0);
+        CustomerEndpointBalancer.Endpoint slow = balancer.endpoints().get(1);
+        for (int i = 0; i < 10; i++) {
+            complete(fast, 5);
+            complete(slow, 50);
+        }
+
+        balancer.detectOutliers();
+
+        assertThat(slow.isEjected()).isTrue();
+        assertThat(fast.isEjected()).isFalse();
+        assertThat(ejections("customer-b:8081", "latency")).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledCallsAreNotCountedAsFailures() {
+        for (int i = 0; i < 20; i++) {
+            // What a hedge loser sees once the client cancels it: an interrupt surfacing as an I/O error
+            assertThatThrownBy(() -> balancer.execute(baseUrl -> {
+                Thread.currentThread().interrupt();
+                throw new ResourceAccessException("I/O error", new IOException("Request was interrupted"));
+            })).isInstanceOf(ResourceAccessException.class);
+            Thread.interrupted();
+        }
+
+        balancer.detectOutliers();
+
+        assertThat(balancer.endpoints()).noneMatch(CustomerEndpointBalancer.Endpoint::isEjected)
+                .allMatch(endpoint -> endpoint.inFlight() == 0);
+    }
+
+    @Test
+    void connectionFailuresAreCountedAsFailures() {
+        for (int i = 0; i < 40; i++) {
+            assertThatThrownBy(() -> balancer.execute(baseUrl -> {
+                throw new ResourceAccessException("I/O error", new IOException("Connection refused"));
+            })).isInstanceOf(ResourceAccessException.class);
+        }
+
+        balancer.detectOutliers();
+
+        // The other endpoint stays in rotation: never more than half are ejected
+        assertThat(balancer.endpoints()).filteredOn(CustomerEndpointBalancer.Endpoint::isEjected).hasSize(1);
+    }
+
+    private static void complete(CustomerEndpointBalancer.Endpoint endpoint, long latencyMs) {
+        endpoint.begin();
+        endpoint.end(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(latencyMs), true);
+    }
+
+    private double ejections(String endpoint, String reason) {
+        Counter counter = telemetry.meterRegistry().find("customer.endpoint.ejections")
+                .tag("endpoint", endpoint)
+                .tag("reason", reason)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,90 @@
+package com.observability.spike.order.service;
+
+import com.observability.spike.order.model.Customer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.hamcrest.Matchers.startsWith;
+
+class CustomerServiceClientBatchTest {
+
+    private final RecordingTelemetry telemetry = new RecordingTelemetry();
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final AtomicReference<SpanContext> callSpan = new AtomicReference<>();
+    private CustomerEndpointBalancer balancer;
+    private CustomerServiceClient client;
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        balancer.shutdown();
+        telemetry.close();
+    }
+
+    @Test
+    void batchedCallContinuesFirstCallersTraceAndLinksTheOthers() throws Exception {
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(once(), requestTo(startsWith("http://customer-service/api/customers?ids=")))
+                .andRespond(withSuccess("[{\"customerId\":\"1\"},{\"customerId\":\"2\"}]", MediaType.APPLICATION_JSON));
+        // Sees the context the HTTP call runs under, as the RestTemplate tracing interceptor would
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            callSpan.set(Span.current().getSpanContext());
+            return execution.execute(request, body);
+        });
+        client = newClient(false);
+
+        Span first = telemetry.tracer().spanBuilder("order-1").startSpan();
+        Span second = telemetry.tracer().spanBuilder("order-2").startSpan();
+        CompletableFuture<Customer> firstLookup = lookupUnder(first, "1");
+        Thread.sleep(20);
+        CompletableFuture<Customer> secondLookup = lookupUnder(second, "2");
+
+        assertThat(firstLookup.get().getCustomerId()).isEqualTo("1");
+        assertThat(secondLookup.get().getCustomerId()).isEqualTo("2");
+        server.verify();
+
+        // The batch span ends on the batch thread after the callers' futures complete
+        long waitUntil = System.currentTimeMillis() + 2000;
+        while (telemetry.spans("customer.batch").isEmpty() && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(5);
+        }
+        List<SpanData> batches = telemetry.spans("customer.batch");
+        assertThat(batches).hasSize(1);
+        SpanData batch = batches.get(0);
+        assertThat(batch.getTraceId()).isEqualTo(first.getSpanContext().getTraceId());
+        assertThat(batch.getParentSpanId()).isEqualTo(first.getSpanContext().getSpanId());
+        assertThat(batch.getLinks()).extracting(LinkData::getSpanContext).containsExactly(second.getSpanContext());
+        assertThat(callSpan.get().getSpanId()).isEqualTo(batch.getSpanId());
+    }
+
+    private CompletableFuture<Customer> lookupUnder(Span span, String customerId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Scope scope = span.makeCurrent()) {
+                return client.getCustomer(customerId);
+            }
+        });
+    }
+
+    private CustomerServiceClient newClient(boolean virtualThreads) {
+        balancer = new CustomerEndpointBalancer(telemetry.metricsService(), telemetry.openTelemetryService(),
+                List.of("http://customer-service"), 1000, 10, 0.5, 3.0, 10000, 50);
+        return new CustomerServiceClient(restTemplate, telemetry.metricsService(), telemetry.openTelemetryService(),
+                balancer, true, 200, 50, false, 2.0, 50, 2000, 1000, false, 10, 5, 1024, 10, virtualThreads);
+    }
+}
@@ -0,0 +1,117 @@
+package com.observability.spike.order.service;
+
+import com.observability.spike.order.model.Customer;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.ExpectedCount.manyTimes;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * The customer call leaves the request thread. On the dispatcher the span and MDC seen where the
+ * HTTP request executes must still be the caller's; a Caffeine refresh-ahead runs in its own trace.
+ */
+class CustomerServiceClientContextTest {
+
+    private final RecordingTelemetry telemetry = new RecordingTelemetry();
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final Queue<Observed> calls = new ConcurrentLinkedQueue<>();
+    private CustomerEndpointBalancer balancer;
+    private CustomerServiceClient client;
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        balancer.shutdown();
+        telemetry.close();
+        MDC.clear();
+    }
+
+    @Test
+    void dispatchedCallOnVirtualThreadKeepsCallersSpanAndMdc() {
+        client = newClient();
+        Span caller = telemetry.tracer().spanBuilder("order").startSpan();
+
+        assertThat(getUnder(caller, "order-1", () -> client.getCustomer("1")).getCustomerId()).isEqualTo("1");
+
+        Observed call = calls.poll();
+        assertThat(call.virtual()).isTrue();
+        assertThat(call.spanId()).isEqualTo(caller.getSpanContext().getSpanId());
+        assertThat(call.orderId()).isEqualTo("order-1");
+    }
+
+    @Test
+    void refreshAheadLoadRunsInItsOwnTraceLinkedToTheTriggeringRequest() throws Exception {
+        client = newClient();
+        CustomerCache cache = new CustomerCache(client, telemetry.metricsService(), telemetry.openTelemetryService(),
+                true, 100, 60, 1);
+        Span first = telemetry.tracer().spanBuilder("order-1").startSpan();
+        Span second = telemetry.tracer().spanBuilder("order-2").startSpan();
+
+        getUnder(first, "order-1", () -> cache.get("1"));
+        Thread.sleep(1100);
+        // Served from the cache by a request whose deadline has passed; the reload runs on Caffeine's executor
+        try (Scope deadline = Deadline.after(0).makeCurrent()) {
+            getUnder(second, "order-2", () -> cache.get("1"));
+        }
+        long waitUntil = System.currentTimeMillis() + 2000;
+        while (telemetry.spans("customer.cache.refresh").isEmpty() && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+
+        assertThat(calls).hasSize(2);
+        Observed call = List.copyOf(calls).get(1);
+        SpanData refresh = telemetry.spans("customer.cache.refresh").get(0);
+        assertThat(refresh.getStatus().getStatusCode()).isNotEqualTo(StatusCode.ERROR);
+        assertThat(refresh.getParentSpanContext().isValid()).isFalse();
+        assertThat(refresh.getTraceId()).isNotEqualTo(second.getSpanContext().getTraceId());
+        assertThat(refresh.getLinks()).extracting(LinkData::getSpanContext).containsExactly(second.getSpanContext());
+        assertThat(call.spanId()).isEqualTo(refresh.getSpanId());
+        assertThat(call.orderId()).isNull();
+        assertThat(telemetry.meterRegistry().find("deadline.exceeded").counter()).isNull();
+    }
+
+    private <T> T getUnder(Span span, String orderId, Supplier<T> call) {
+        MDC.put("order_id", orderId);
+        try (Scope scope = span.makeCurrent()) {
+            return call.get();
+        } finally {
+            MDC.remove("order_id");
+        }
+    }
+
+    private CustomerServiceClient newClient() {
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(manyTimes(), requestTo("http://customer-service/api/customers/1"))
+                .andRespond(withSuccess("{\"customerId\":\"1\"}", MediaType.APPLICATION_JSON));
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            calls.add(new Observed(Thread.currentThread().isVirtual(),
+                    Span.current().getSpanContext().getSpanId(), MDC.get("order_id")));
+            return execution.execute(request, body);
+        });
+        balancer = new CustomerEndpointBalancer(telemetry.metricsService(), telemetry.openTelemetryService(),
+                List.of("http://customer-service"), 1000, 10, 0.5, 3.0, 10000, 50);
+        // Adaptive timeouts on and batching off: every call goes through the dispatcher on its own
+        return new CustomerServiceClient(restTemplate, telemetry.metricsService(), telemetry.openTelemetryService(),
+                balancer, false, 5, 50, true, 2.0, 50, 2000, 1000, false, 10, 5, 1024, 10, true);
+    }
+
+    private record Observed(boolean virtual, String spanId, String orderId) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.observability.spike.order.service;
+
+import com.observability.spike.order.model.Customer;
+import io.opentelemetry.context.Scope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.ExpectedCount.manyTimes;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.hamcrest.Matchers.startsWith;
+
+class CustomerServiceClientTimeoutTest {
+
+    private final RecordingTelemetry telemetry = new RecordingTelemetry();
+    private final RestTemplate restTemplate = new RestTemplate();
+    private CustomerEndpointBalancer balancer;
+    private CustomerServiceClient client;
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        balancer.shutdown();
+        telemetry.close();
+    }
+
+    @Test
+    void timedOutCallIsInterrupted() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        stubCustomerService("{\"customerId\":\"1\"}");
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return execution.execute(request, body);
+        });
+        client = newClient(false, 100);
+
+        assertThatThrownBy(() -> client.getCustomer("1"))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasMessageContaining("timed out");
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void timedOutBatchCallerDoesNotCancelOtherCallersOfTheSameCustomer() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        stubCustomerService("[{\"customerId\":\"1\"}]");
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return execution.execute(request, body);
+        });
+        client = newClient(true, 1000);
+
+        // The first caller gives up when its request deadline runs out, while the batch is in flight
+        CompletableFuture<Throwable> first = CompletableFuture.supplyAsync(() -> {
+            try (Scope scope = Deadline.after(150).makeCurrent()) {
+                client.getCustomer("1");
+                return null;
+            } catch (RuntimeException e) {
+                return e;
+            }
+        });
+        // The second caller joins the same pending customer and waits up to the default timeout
+        CompletableFuture<Customer> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return client.getCustomer("1");
+        });
+
+        assertThat(first.get(2, TimeUnit.SECONDS)).isInstanceOf(ResourceAccessException.class);
+        release.countDown();
+        assertThat(second.get(2, TimeUnit.SECONDS).getCustomerId()).isEqualTo("1");
+    }
+
+    private void stubCustomerService(String body) {
+        MockRestServiceServer.bindTo(restTemplate).build()
+                .expect(manyTimes(), requestTo(startsWith("http://customer-service/api/customers")))
+                .andRespond(withSuccess(body, MediaType.APPLICATION_JSON));
+    }
+
+    private CustomerServiceClient newClient(boolean batch, long timeoutDefaultMs) {
+        balancer = new CustomerEndpointBalancer(telemetry.metricsService(), telemetry.openTelemetryService(),
+                List.of("http://customer-service"), 1000, 10, 0.5, 3.0, 10000, 50);
+        // No latency observed yet, so calls get the default timeout
+        return new CustomerServiceClient(restTemplate, telemetry.metricsService(), telemetry.openTelemetryService(),
+                balancer, batch, 100, 50, true, 2.0, 50, 2000, timeoutDefaultMs, false, 10, 5, 1024, 2, false);
+    }
+}
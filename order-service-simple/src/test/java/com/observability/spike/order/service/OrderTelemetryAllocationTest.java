@@ -0,0 +1,233 @@
+package com.observability.spike.order.service;
+
+import ch.qos.logback.classic.Level;
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.observability.spike.common.telemetry.TelemetryDispatcher;
+import com.observability.spike.order.config.MetricCardinalityProperties;
+import com.observability.spike.order.model.Order;
+import com.observability.spike.order.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.springframework.test.web.client.ExpectedCount.manyTimes;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Bytes allocated on the request thread by order telemetry, measured with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} against a real OTel SDK
+ * (recording spans, as in the shipped config) and a Micrometer registry.
+ */
+class OrderTelemetryAllocationTest {
+
+    private static final int WARMUP_ORDERS = 20_000;
+    private static final int MEASURED_ORDERS = 10_000;
+    // Near zero: leaves room for an occasional resize inside the SDK or Micrometer, not a per-call allocation
+    private static final long MAX_METRIC_BYTES_PER_ORDER = 16;
+    // Two recording spans with their attributes, three events and the context scopes, plus the
+    // dispatcher's request batch and captured lambdas; measured at about 2 KB, so this catches a
+    // regression such as an extra span snapshot per order
+    private static final long MAX_ORDER_BYTES_PER_ORDER = 3 * 1024;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private SdkMeterProvider meterProvider;
+    private SdkTracerProvider tracerProvider;
+    private SimpleMeterRegistry meterRegistry;
+    private OpenTelemetryService openTelemetryService;
+    private MetricsService metricsService;
+    private TelemetryDispatcher telemetryDispatcher;
+    private CustomerEndpointBalancer balancer;
+    private CustomerServiceClient customerServiceClient;
+    private Level orderServiceLogLevel;
+
+    @BeforeEach
+    void setUp() {
+        assumeThat(threads.isThreadAllocatedMemorySupported()).isTrue();
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(PeriodicMetricReader.builder(new DiscardingMetricExporter())
+                        .setInterval(Duration.ofHours(1))
+                        .build())
+                .build();
+        // Every span records and is handed to the export queue
+        tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(BatchSpanProcessor.builder(new DiscardingSpanExporter()).build())
+                .build();
+        meterRegistry = new SimpleMeterRegistry();
+        openTelemetryService = new OpenTelemetryService(tracerProvider.get("test"),
+                meterProvider.get("test"), new MetricCardinalityProperties());
+        metricsService = new MetricsService(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (customerServiceClient != null) {
+            customerServiceClient.shutdown();
+            balancer.shutdown();
+        }
+        if (telemetryDispatcher != null) {
+            telemetryDispatcher.shutdown();
+            orderServiceLogger().setLevel(orderServiceLogLevel);
+        }
+        if (meterProvider != null) {
+            tracerProvider.close();
+            meterProvider.close();
+            meterRegistry.close();
+        }
+    }
+
+    @Test
+    void perOrderMetricCallsDoNotAllocate() {
+        long allocated = measure(this::recordOrderMetrics);
+
+        assertThat(allocated / MEASURED_ORDERS)
+                .as("bytes allocated per order (%d in total)", allocated)
+                .isLessThanOrEqualTo(MAX_METRIC_BYTES_PER_ORDER);
+    }
+
+    @Test
+    void orderLookupWithRecordingSpansStaysWithinBudget() {
+        OrderService orderService = newOrderService();
+        Runnable order = () -> {
+            // As OrderController does: the request's dispatches are queued as one batch
+            try (Scope batch = telemetryDispatcher.openBatch()) {
+                orderService.getOrderById("ORD-001", null);
+            }
+        };
+        // The measured orders are enriched from the cache, under spans that record
+        assertThat(orderService.getOrderById("ORD-001", null)).get()
+                .extracting(Order::getCustomer).isNotNull();
+        Span probe = openTelemetryService.startOrderProcessingSpan("probe");
+        assertThat(probe.isRecording()).isTrue();
+        probe.end();
+
+        long allocated = measure(order);
+
+        assertThat(allocated / MEASURED_ORDERS)
+                .as("bytes allocated per order (%d in total)", allocated)
+                .isLessThanOrEqualTo(MAX_ORDER_BYTES_PER_ORDER);
+    }
+
+    private long measure(Runnable order) {
+        for (int i = 0; i < WARMUP_ORDERS; i++) {
+            order.run();
+        }
+
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ORDERS; i++) {
+            order.run();
+        }
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    // The metric calls of one order that misses the cache: its load and the customer-service call
+    private void recordOrderMetrics() {
+        metricsService.recordCustomerCacheMisses(1);
+        openTelemetryService.recordCustomerCacheMisses(1);
+        metricsService.recordCustomerCacheLoad(12_000_000L, true);
+        openTelemetryService.recordCustomerCacheLoad(12L, true);
+        metricsService.recordCustomerEndpointCall("localhost:8081", 12_000_000L, true);
+        openTelemetryService.recordCustomerEndpointCall("localhost:8081", 12L, true);
+        metricsService.recordCustomerHedge("sent");
+        openTelemetryService.recordCustomerHedge("sent");
+    }
+
+    // The customer is loaded once; every measured order is then a cache hit
+    private OrderService newOrderService() {
+        // Logging is not part of the telemetry being measured
+        orderServiceLogLevel = orderServiceLogger().getLevel();
+        orderServiceLogger().setLevel(Level.WARN);
+
+        telemetryDispatcher = new TelemetryDispatcher(new TelemetryClient(), "order-service", true, 1024,
+                "drop-oldest", 256);
+        telemetryDispatcher.start();
+
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(manyTimes(), requestTo("http://customer-service/api/customers/123"))
+                .andRespond(withSuccess("{\"customerId\":\"123\"}", MediaType.APPLICATION_JSON));
+        balancer = new CustomerEndpointBalancer(metricsService, openTelemetryService,
+                List.of("http://customer-service"), 1000, 10, 0.5, 3.0, 10000, 50);
+        customerServiceClient = new CustomerServiceClient(restTemplate, metricsService, openTelemetryService,
+                balancer, false, 5, 50, true, 2.0, 50, 2000, 1000, false, 10, 5, 1024, 10, false);
+        CustomerCache customerCache = new CustomerCache(customerServiceClient, metricsService, openTelemetryService,
+                true, 100, 3600, 0);
+        return new OrderService(customerServiceClient, customerCache, telemetryDispatcher, openTelemetryService,
+                new OrderRepository());
+    }
+
+    private static ch.qos.logback.classic.Logger orderServiceLogger() {
+        return (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(OrderService.class);
+    }
+
+    private static final class DiscardingSpanExporter implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+
+    private static final class DiscardingMetricExporter implements MetricExporter {
+
+        @Override
+        public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+            return AggregationTemporality.CUMULATIVE;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<MetricData> metrics) {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.observability.spike.order.service;
+
+import com.observability.spike.order.config.MetricCardinalityProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Telemetry services for tests: an SDK tracer whose ended spans are kept in memory, no-op OTel
+ * metrics and a simple Micrometer registry.
+ */
+final class RecordingTelemetry implements AutoCloseable {
+
+    private final List<SpanData> spans = new CopyOnWriteArrayList<>();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(new SpanExporter() {
+                @Override
+                public CompletableResultCode export(Collection<SpanData> batch) {
+                    spans.addAll(batch);
+                    return CompletableResultCode.ofSuccess();
+                }
+
+                @Override
+                public CompletableResultCode flush() {
+                    return CompletableResultCode.ofSuccess();
+                }
+
+                @Override
+                public CompletableResultCode shutdown() {
+                    return CompletableResultCode.ofSuccess();
+                }
+            }))
+            .build();
+    private final Tracer tracer = tracerProvider.get("test");
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OpenTelemetryService openTelemetryService = new OpenTelemetryService(
+            tracer, MeterProvider.noop().get("test"), new MetricCardinalityProperties());
+    private final MetricsService metricsService = new MetricsService(meterRegistry);
+
+    Tracer tracer() {
+        return tracer;
+    }
+
+    SimpleMeterRegistry meterRegistry() {
+        return meterRegistry;
+    }
+
+    OpenTelemetryService openTelemetryService() {
+        return openTelemetryService;
+    }
+
+    MetricsService metricsService() {
+        return metricsService;
+    }
+
+    List<SpanData> spans(String name) {
+        return spans.stream().filter(span -> span.getName().equals(name)).toList();
+    }
+
+    @Override
+    public void close() {
+        tracerProvider.close();
+    }
+}
@@ -0,0 +1,18 @@
+#!/bin/bash
+
+# Run the JMH benchmarks for the order request hot path and telemetry APIs
+# Results go to benchmarks/target/jmh-result.json (JSON, with gc.alloc.rate.norm per benchmark)
+# unless -rf/-rff are given; any JMH option can be passed through.
+#
+# Usage: ./run-benchmarks.sh                                     (everything)
+#        ./run-benchmarks.sh OpenTelemetryServiceBenchmark -p telemetry=enabled
+#        ./run-benchmarks.sh -wi 1 -i 3 -rff results/$(git rev-parse --short HEAD).json
+
+set -e
+
+echo "📦 Building benchmarks..."
+mvn -q -B -pl benchmarks -am install -DskipTests
+
+echo "⏱️  Running JMH $*"
+mvn -q -B -pl benchmarks exec:exec \
+    -Dexec.args="-classpath %classpath com.observability.spike.benchmarks.BenchmarkMain $*"
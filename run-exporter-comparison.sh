@@ -0,0 +1,17 @@
+#!/bin/bash
+
+# Compare bytes on the wire and export CPU per 1,000 spans for the Azure Monitor and OTLP span
+# exporters, against an in-process receiver. The table is printed and written to
+# benchmarks/target/exporter-comparison.md unless --output is given.
+#
+# Usage: ./run-exporter-comparison.sh
+#        ./run-exporter-comparison.sh --spans=100000 --batch-size=512 --exporters=otlp-grpc-gzip,otlp-http-gzip
+
+set -e
+
+echo "📦 Building benchmarks..."
+mvn -q -B -pl benchmarks -am install -DskipTests
+
+echo "📡 Comparing span exporters $*"
+mvn -q -B -pl benchmarks exec:exec \
+    -Dexec.args="-classpath %classpath com.observability.spike.benchmarks.ExporterComparison --output=target/exporter-comparison.md $*"
@@ -0,0 +1,73 @@
+#!/bin/bash
+
+# Open-model load test against both services on localhost (no Application Insights agent)
+# Starts customer-service and order-service, drives /api/orders/{id} at a constant arrival rate
+# with the load-generator module, prints p50/p99/p99.9 and throughput per run, then stops both.
+# Any load-generator option can be passed through.
+#
+# Usage: ./run-load-test.sh                                        (100 req/s for 30s)
+#        ./run-load-test.sh --rate=50,100,200 --duration-seconds=60
+#        ./run-load-test.sh --mix=existing=70,missing=10,slow=20 --hgrm-dir=load-generator/target/hgrm
+#        PROFILE=reactive ./run-load-test.sh
+
+PROFILE=${PROFILE:-default}
+
+# The near-cache would turn every repeat order into a cache hit, hiding slow customers, and the
+# load-test profile only delays single lookups, so batching is off too.
+# Override with ORDER_RUN_ARGUMENTS="" to measure with the cache and batching on.
+ORDER_RUN_ARGUMENTS=${ORDER_RUN_ARGUMENTS---customer-service.cache.enabled=false --customer-service.batch.enabled=false}
+CUSTOMER_RUN_ARGUMENTS=${CUSTOMER_RUN_ARGUMENTS:-}
+
+wait_for() {
+    local url=$1
+    for i in $(seq 1 60); do
+        if curl -s -f "$url" > /dev/null 2>&1; then
+            return 0
+        fi
+        sleep 1
+    done
+    return 1
+}
+
+stop_services() {
+    kill $ORDER_PID $CUSTOMER_PID 2>/dev/null
+    pkill -f "order-service-simple" 2>/dev/null
+    pkill -f "customer-service-simple" 2>/dev/null
+}
+
+echo "📦 Building services and load generator..."
+mvn -q -B install -DskipTests || exit 1
+
+echo "🔧 Starting services in $PROFILE mode..."
+cd customer-service-simple
+# load-test delays customer 999, the slow orders' customer
+mvn -q spring-boot:run -Dspring-boot.run.profiles="$PROFILE,load-test" \
+  -Dspring-boot.run.arguments="$CUSTOMER_RUN_ARGUMENTS" \
+  > ../customer-service-load.log 2>&1 &
+CUSTOMER_PID=$!
+cd ..
+
+cd order-service-simple
+mvn -q spring-boot:run -Dspring-boot.run.profiles="$PROFILE" \
+  -Dspring-boot.run.arguments="$ORDER_RUN_ARGUMENTS" \
+  > ../order-service-load.log 2>&1 &
+ORDER_PID=$!
+cd ..
+
+trap stop_services EXIT
+
+if ! wait_for http://localhost:8081/api/customers/health; then
+    echo "❌ Customer service did not start, see customer-service-load.log"
+    exit 1
+fi
+if ! wait_for http://localhost:8080/api/orders/health; then
+    echo "❌ Order service did not start, see order-service-load.log"
+    exit 1
+fi
+
+echo "🚀 Running load generator $*"
+mvn -q -B -pl load-generator exec:exec \
+    -Dexec.args="-classpath %classpath com.observability.spike.loadgen.LoadGeneratorMain $*"
+
+echo ""
+echo "📝 Service logs: customer-service-load.log, order-service-load.log"
@@ -0,0 +1,49 @@
+package com.observability.spike.common.concurrent;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import org.slf4j.MDC;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs each task with the OpenTelemetry {@link Context} and MDC of the thread that submitted it.
+ * Both are thread-locals, so without this a task handed to a pool (or to a new virtual thread)
+ * loses the caller's span and MDC entries. The worker's own MDC is restored after the task.
+ */
+public final class ContextPropagatingExecutor implements Executor {
+
+    private final Executor delegate;
+
+    public ContextPropagatingExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        delegate.execute(wrap(task));
+    }
+
+    public static Runnable wrap(Runnable task) {
+        Context context = Context.current();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            setMdc(mdc);
+            try (Scope scope = context.makeCurrent()) {
+                task.run();
+            } finally {
+                setMdc(previous);
+            }
+        };
+    }
+
+    private static void setMdc(Map<String, String> mdc) {
+        if (mdc == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdc);
+        }
+    }
+}
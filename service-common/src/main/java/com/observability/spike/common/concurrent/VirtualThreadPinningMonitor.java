@@ -0,0 +1,81 @@
+package com.observability.spike.common.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Streams JFR jdk.VirtualThreadPinned events so that virtual threads blocking while pinned to
+ * their carrier (e.g. inside synchronized telemetry code) show up in logs and metrics. Created by
+ * {@link com.observability.spike.common.config.VirtualThreadConfig}.
+ */
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final int LOGGED_FRAMES = 8;
+
+    private final Counter pinnedCounter;
+    private final Timer pinnedDuration;
+    private final Duration threshold;
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, String serviceName, long thresholdMs) {
+        this.threshold = Duration.ofMillis(thresholdMs);
+        this.pinnedCounter = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Count of virtual threads that blocked while pinned to their carrier thread")
+                .tag("service", serviceName)
+                .register(meterRegistry);
+        this.pinnedDuration = Timer.builder("jvm.threads.virtual.pinned.duration")
+                .description("Duration virtual threads stayed pinned to their carrier thread")
+                .tag("service", serviceName)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        recordingStream.startAsync();
+        logger.info("Virtual thread pinning monitor started with threshold {} ms", threshold.toMillis());
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        pinnedDuration.record(event.getDuration());
+
+        if (logger.isWarnEnabled()) {
+            StringBuilder frames = new StringBuilder();
+            if (event.getStackTrace() != null) {
+                List<RecordedFrame> recordedFrames = event.getStackTrace().getFrames();
+                for (int i = 0; i < Math.min(LOGGED_FRAMES, recordedFrames.size()); i++) {
+                    RecordedFrame frame = recordedFrames.get(i);
+                    frames.append("\n    at ")
+                            .append(frame.getMethod().getType().getName())
+                            .append('.')
+                            .append(frame.getMethod().getName())
+                            .append(':')
+                            .append(frame.getLineNumber());
+                }
+            }
+            logger.warn("Virtual thread pinned for {} ms{}", event.getDuration().toMillis(), frames);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+}
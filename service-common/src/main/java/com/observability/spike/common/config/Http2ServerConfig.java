@@ -0,0 +1,36 @@
+package com.observability.spike.common.config;
+
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Raises Tomcat's HTTP/2 stream limits for both services. Registered as an auto-configuration
+ * ({@code META-INF/spring/...AutoConfiguration.imports}), so services only need this module on the
+ * classpath.
+ */
+@AutoConfiguration
+@ConditionalOnProperty(name = "server.http2.enabled", havingValue = "true")
+public class Http2ServerConfig {
+
+    @Value("${server.http2.max-concurrent-streams:250}")
+    private int maxConcurrentStreams;
+
+    @Bean
+    public TomcatConnectorCustomizer http2StreamLimitsCustomizer() {
+        // Tomcat only executes 20 streams per connection concurrently by default, which caps
+        // throughput when a client multiplexes all requests over a few h2c connections
+        return connector -> {
+            for (UpgradeProtocol upgradeProtocol : connector.findUpgradeProtocols()) {
+                if (upgradeProtocol instanceof Http2Protocol http2Protocol) {
+                    http2Protocol.setMaxConcurrentStreams(maxConcurrentStreams);
+                    http2Protocol.setMaxConcurrentStreamExecution(maxConcurrentStreams);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package com.observability.spike.common.config;
+
+import com.observability.spike.common.logging.LoggingMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.context.annotation.Bean;
+
+@AutoConfiguration
+public class LoggingMetricsConfig {
+
+    // Micrometer binds it as a MeterBinder; services with their own OTel meter also call bindTo(Meter)
+    @Bean
+    public LoggingMetrics loggingMetrics(@Value("${spring.application.name}") String serviceName) {
+        return new LoggingMetrics(serviceName);
+    }
+}
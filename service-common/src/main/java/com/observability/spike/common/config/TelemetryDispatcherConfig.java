@@ -0,0 +1,23 @@
+package com.observability.spike.common.config;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.observability.spike.common.telemetry.TelemetryDispatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.context.annotation.Bean;
+
+@AutoConfiguration
+public class TelemetryDispatcherConfig {
+
+    // Started only once constructed; Micrometer binds it as a MeterBinder
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public TelemetryDispatcher telemetryDispatcher(
+            TelemetryClient telemetryClient,
+            @Value("${spring.application.name}") String serviceName,
+            @Value("${telemetry.dispatcher.enabled:true}") boolean enabled,
+            @Value("${telemetry.dispatcher.capacity:8192}") int capacity,
+            @Value("${telemetry.dispatcher.overflow-policy:drop-oldest}") String overflowPolicy,
+            @Value("${telemetry.dispatcher.batch-size:256}") int batchSize) {
+        return new TelemetryDispatcher(telemetryClient, serviceName, enabled, capacity, overflowPolicy, batchSize);
+    }
+}
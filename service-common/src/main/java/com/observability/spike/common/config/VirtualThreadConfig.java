@@ -0,0 +1,21 @@
+package com.observability.spike.common.config;
+
+import com.observability.spike.common.concurrent.VirtualThreadPinningMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+@AutoConfiguration
+@ConditionalOnProperty(name = {"spring.threads.virtual.enabled", "virtual-threads.pinning-monitor.enabled"}, havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.name}") String serviceName,
+            @Value("${virtual-threads.pinning-monitor.threshold-ms:20}") long thresholdMs) {
+        return new VirtualThreadPinningMonitor(meterRegistry, serviceName, thresholdMs);
+    }
+}
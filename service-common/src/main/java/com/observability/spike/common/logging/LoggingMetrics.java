@@ -0,0 +1,117 @@
+package com.observability.spike.common.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Async logging state for Micrometer (as a {@link MeterBinder}) and OpenTelemetry: queue depth
+ * and capacity and events discarded from a full queue per {@link TraceContextAsyncAppender}, and
+ * events denied by {@link TraceSampledLogFilter} in unsampled traces. Both are looked up in the
+ * Logback context that {@code logback-spring.xml} configured. Created by
+ * {@link com.observability.spike.common.config.LoggingMetricsConfig}.
+ */
+public class LoggingMetrics implements MeterBinder {
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+    private static final AttributeKey<String> APPENDER = AttributeKey.stringKey("appender");
+
+    private final String serviceName;
+    private final List<TraceContextAsyncAppender> appenders = new ArrayList<>();
+    private final List<TraceSampledLogFilter> samplingFilters = new ArrayList<>();
+
+    public LoggingMetrics(String serviceName) {
+        this.serviceName = serviceName;
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        for (Logger logger : context.getLoggerList()) {
+            for (Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders(); it.hasNext(); ) {
+                if (it.next() instanceof TraceContextAsyncAppender appender && !appenders.contains(appender)) {
+                    appenders.add(appender);
+                }
+            }
+        }
+        for (TurboFilter filter : context.getTurboFilterList()) {
+            if (filter instanceof TraceSampledLogFilter samplingFilter) {
+                samplingFilters.add(samplingFilter);
+            }
+        }
+    }
+
+    long sampledOut() {
+        long denied = 0;
+        for (TraceSampledLogFilter filter : samplingFilters) {
+            denied += filter.deniedEvents();
+        }
+        return denied;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (TraceContextAsyncAppender appender : appenders) {
+            Gauge.builder("logging.async.queue.size", appender, TraceContextAsyncAppender::queueDepth)
+                    .description("Log events waiting in the async appender queue")
+                    .tag("service", serviceName)
+                    .tag("appender", appender.getName())
+                    .register(registry);
+            Gauge.builder("logging.async.queue.capacity", appender, TraceContextAsyncAppender::getQueueSize)
+                    .description("Capacity of the async appender queue")
+                    .tag("service", serviceName)
+                    .tag("appender", appender.getName())
+                    .register(registry);
+            FunctionCounter.builder("logging.async.dropped", appender, TraceContextAsyncAppender::discardedEvents)
+                    .description("Log events below WARN discarded because the async appender queue was nearly full")
+                    .tag("service", serviceName)
+                    .tag("appender", appender.getName())
+                    .register(registry);
+        }
+        if (!samplingFilters.isEmpty()) {
+            FunctionCounter.builder("logging.sampling.dropped", this, LoggingMetrics::sampledOut)
+                    .description("Log events below WARN dropped because their trace was not sampled")
+                    .tag("service", serviceName)
+                    .register(registry);
+        }
+    }
+
+    public void bindTo(Meter meter) {
+        for (TraceContextAsyncAppender appender : appenders) {
+            Attributes attributes = Attributes.of(SERVICE_NAME, serviceName, APPENDER, appender.getName());
+            meter.gaugeBuilder("logging.async.queue.size")
+                    .setDescription("Log events waiting in the async appender queue")
+                    .setUnit("1")
+                    .ofLongs()
+                    .buildWithCallback(measurement -> measurement.record(appender.queueDepth(), attributes));
+            meter.gaugeBuilder("logging.async.queue.capacity")
+                    .setDescription("Capacity of the async appender queue")
+                    .setUnit("1")
+                    .ofLongs()
+                    .buildWithCallback(measurement -> measurement.record(appender.getQueueSize(), attributes));
+            meter.counterBuilder("logging.async.dropped")
+                    .setDescription("Log events below WARN discarded because the async appender queue was nearly full")
+                    .setUnit("1")
+                    .buildWithCallback(measurement -> measurement.record(appender.discardedEvents(), attributes));
+        }
+        if (!samplingFilters.isEmpty()) {
+            Attributes attributes = Attributes.of(SERVICE_NAME, serviceName);
+            meter.counterBuilder("logging.sampling.dropped")
+                    .setDescription("Log events below WARN dropped because their trace was not sampled")
+                    .setUnit("1")
+                    .buildWithCallback(measurement -> measurement.record(sampledOut(), attributes));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.observability.spike.common.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import org.slf4j.MDC;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link AsyncAppender} (configured in {@code logback-spring.xml}) that adds the current span's
+ * {@code trace_id}, {@code span_id} and {@code trace_flags} to each event's MDC on the logging
+ * thread, before the event is queued, then restores the values the thread's MDC held before.
+ * Events below WARN are discarded while fewer than {@code discardingThreshold} slots remain (a
+ * fifth of the queue unless set) and counted for {@link LoggingMetrics}; WARN and ERROR wait for
+ * room instead, so keep {@code neverBlock} off.
+ */
+public class TraceContextAsyncAppender extends AsyncAppender {
+
+    public static final String TRACE_ID = "trace_id";
+    public static final String SPAN_ID = "span_id";
+    public static final String TRACE_FLAGS = "trace_flags";
+
+    private final LongAdder discarded = new LongAdder();
+    private int discardBelowRemaining;
+
+    @Override
+    public void start() {
+        int threshold = getDiscardingThreshold();
+        discardBelowRemaining = threshold < 0 ? getQueueSize() / 5 : threshold;
+        // Discarding happens in append() so it can be counted; the base class must not discard too
+        setDiscardingThreshold(0);
+        super.start();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (isDiscardable(event) && getRemainingCapacity() < discardBelowRemaining) {
+            discarded.increment();
+            return;
+        }
+        super.append(event);
+    }
+
+    // The base class copies the MDC into the event here, on the logging thread
+    @Override
+    protected void preprocess(ILoggingEvent event) {
+        SpanContext spanContext = Span.current().getSpanContext();
+        if (!spanContext.isValid()) {
+            super.preprocess(event);
+            return;
+        }
+        String previousTraceId = MDC.get(TRACE_ID);
+        String previousSpanId = MDC.get(SPAN_ID);
+        String previousTraceFlags = MDC.get(TRACE_FLAGS);
+        MDC.put(TRACE_ID, spanContext.getTraceId());
+        MDC.put(SPAN_ID, spanContext.getSpanId());
+        MDC.put(TRACE_FLAGS, spanContext.getTraceFlags().asHex());
+        try {
+            super.preprocess(event);
+        } finally {
+            restore(TRACE_ID, previousTraceId);
+            restore(SPAN_ID, previousSpanId);
+            restore(TRACE_FLAGS, previousTraceFlags);
+        }
+    }
+
+    // The caller may keep its own trace ids in the MDC, e.g. one propagated to a worker thread
+    private static void restore(String key, String previous) {
+        if (previous != null) {
+            MDC.put(key, previous);
+        } else {
+            MDC.remove(key);
+        }
+    }
+
+    int queueDepth() {
+        return getNumberOfElementsInQueue();
+    }
+
+    long discardedEvents() {
+        return discarded.sum();
+    }
+}
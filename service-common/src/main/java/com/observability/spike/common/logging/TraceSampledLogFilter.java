@@ -0,0 +1,67 @@
+package com.observability.spike.common.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import org.slf4j.Marker;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logback turbo filter (configured in {@code logback-spring.xml}). In {@code sampled-traces} mode
+ * it denies events below WARN logged under a span that is neither sampled nor recording, before
+ * the event is created or its message formatted. A recording but unsampled span may still be
+ * exported by order-service's tail sampler (error and slow-enrichment traces), which is only
+ * decided once the trace ends, so its INFO lines are kept. Where every trace records (tail
+ * sampling or span metrics enabled) this keeps INFO for all traces. WARN and ERROR, and events
+ * logged outside any span, always pass. Mode {@code all} (the default) lets every event through.
+ */
+public class TraceSampledLogFilter extends TurboFilter {
+
+    public static final String ALL = "all";
+    public static final String SAMPLED_TRACES = "sampled-traces";
+
+    private final LongAdder denied = new LongAdder();
+    private String mode = ALL;
+    private boolean sampledTracesOnly;
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    @Override
+    public void start() {
+        String normalized = mode.trim().toLowerCase(Locale.ROOT);
+        if (!ALL.equals(normalized) && !SAMPLED_TRACES.equals(normalized)) {
+            addError("Unsupported log sampling mode '" + mode + "', expected " + ALL + " or " + SAMPLED_TRACES);
+            return;
+        }
+        sampledTracesOnly = SAMPLED_TRACES.equals(normalized);
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!sampledTracesOnly || level == null || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        Span span = Span.current();
+        SpanContext spanContext = span.getSpanContext();
+        if (!spanContext.isValid() || spanContext.isSampled() || span.isRecording()) {
+            return FilterReply.NEUTRAL;
+        }
+        // isXxxEnabled() checks pass no format; events the logger level disables anyway are not counted
+        if (format != null && level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            denied.increment();
+        }
+        return FilterReply.DENY;
+    }
+
+    long deniedEvents() {
+        return denied.sum();
+    }
+}
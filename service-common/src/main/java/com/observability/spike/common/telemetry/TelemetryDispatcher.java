@@ -0,0 +1,326 @@
+package com.observability.spike.common.telemetry;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.Scope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Moves Application Insights {@link TelemetryClient} calls off the request thread. Each call is
+ * queued as a lambda on a bounded lock-free ring buffer, so building its properties is deferred
+ * too, and a background thread replays the queue in batches under the caller's OTel context,
+ * which keeps the events correlated with the request. Within {@link #openBatch()} the calls of
+ * one request are collected and queued together as a single slot. The drain thread parks while
+ * the queue is empty and is unparked by the next call queued.
+ *
+ * <p>Created by {@link com.observability.spike.common.config.TelemetryDispatcherConfig}, which
+ * starts the drain thread once the dispatcher is constructed. Queue depth, dispatched and dropped
+ * calls are reported to Micrometer (as a {@link MeterBinder}) and OpenTelemetry.
+ */
+public class TelemetryDispatcher implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryDispatcher.class);
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+    private static final AttributeKey<String> OVERFLOW_POLICY = AttributeKey.stringKey("overflow.policy");
+    private static final ContextKey<RequestBatch> BATCH_KEY = ContextKey.named("telemetry-dispatcher-batch");
+
+    public enum OverflowPolicy { DROP_OLDEST, DROP_NEWEST }
+
+    private final TelemetryClient telemetryClient;
+    private final String serviceName;
+    private final boolean enabled;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // Bounded MPMC ring buffer: a slot is writable when its sequence equals the enqueue position
+    // and readable when it equals the dequeue position + 1
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<Consumer<TelemetryClient>> tasks;
+    private final AtomicReferenceArray<Context> contexts;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Thread drainer;
+    // Set by the drainer before it parks on an empty queue, cleared by whoever unparks it
+    private final AtomicBoolean drainerParked = new AtomicBoolean();
+
+    public TelemetryDispatcher(TelemetryClient telemetryClient, String serviceName, boolean enabled, int capacity,
+                               String overflowPolicy, int batchSize) {
+        this.telemetryClient = telemetryClient;
+        this.serviceName = serviceName;
+        this.enabled = enabled;
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase().replace('-', '_'));
+        this.batchSize = batchSize;
+
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.tasks = new AtomicReferenceArray<>(this.capacity);
+        this.contexts = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        drainer = Thread.ofPlatform().name("telemetry-dispatcher").daemon().start(this::drainLoop);
+        logger.info("Telemetry dispatcher started with capacity {} and {} policy", capacity, overflowPolicy);
+    }
+
+    // Request-thread cost: one context lookup and one ring buffer slot
+    public void dispatch(Consumer<TelemetryClient> telemetry) {
+        dispatch(Context.current(), telemetry);
+    }
+
+    // For callers whose span is not current on the thread, such as the reactive stack
+    public void dispatch(Context context, Consumer<TelemetryClient> telemetry) {
+        RequestBatch batch = context.get(BATCH_KEY);
+        if (batch != null && batch.add(context, telemetry)) {
+            return;
+        }
+        enqueue(context, telemetry);
+    }
+
+    /**
+     * Collects every call dispatched on this thread until the returned scope closes, then queues
+     * them as one slot; each call is still replayed under the context it was dispatched in. The
+     * batch stays confined to the thread that opened it: calls dispatched on other threads under
+     * its context (e.g. tasks run by a context-propagating executor) are queued on their own.
+     */
+    public Scope openBatch() {
+        RequestBatch batch = new RequestBatch();
+        Scope scope = Context.current().with(BATCH_KEY, batch).makeCurrent();
+        return () -> {
+            scope.close();
+            batch.close();
+        };
+    }
+
+    private void enqueue(Context context, Consumer<TelemetryClient> telemetry) {
+        if (!enabled) {
+            replay(telemetry, context);
+            return;
+        }
+
+        if (offer(telemetry, context)) {
+            wakeDrainer();
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+            dropped.increment();
+            return;
+        }
+        // Drop the oldest queued calls until there is room for this one
+        while (!offer(telemetry, context)) {
+            if (poll(null) != null) {
+                dropped.increment();
+            }
+        }
+        wakeDrainer();
+    }
+
+    // Request-thread cost while the drainer is busy: one volatile read
+    private void wakeDrainer() {
+        if (drainerParked.get() && drainerParked.compareAndSet(true, false)) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    public long queueDepth() {
+        return Math.max(0, enqueuePosition.get() - dequeuePosition.get());
+    }
+
+    private boolean offer(Consumer<TelemetryClient> task, Context context) {
+        long position = enqueuePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    tasks.set(index, task);
+                    contexts.set(index, context);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                // Full: the slot still holds a call from one lap ago
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    // Returns null when empty; the slot's context is handed back through contextOut when given
+    private Consumer<TelemetryClient> poll(Context[] contextOut) {
+        long position = dequeuePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    Consumer<TelemetryClient> task = tasks.get(index);
+                    if (contextOut != null) {
+                        contextOut[0] = contexts.get(index);
+                    }
+                    tasks.set(index, null);
+                    contexts.set(index, null);
+                    sequences.set(index, position + capacity);
+                    return task;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    private void drainLoop() {
+        Context[] context = new Context[1];
+        while (running || queueDepth() > 0) {
+            int drained = 0;
+            Consumer<TelemetryClient> task;
+            while (drained < batchSize && (task = poll(context)) != null) {
+                replay(task, context[0]);
+                drained++;
+            }
+            context[0] = null;
+
+            if (drained > 0) {
+                dispatched.add(drained);
+            } else {
+                awaitWork();
+            }
+        }
+    }
+
+    // The queue is checked again after announcing the park, so a call queued in between either is
+    // seen here or unparks the drainer (an unpark before park leaves a permit)
+    private void awaitWork() {
+        drainerParked.set(true);
+        if (running && queueDepth() == 0) {
+            LockSupport.park(this);
+        }
+        drainerParked.set(false);
+    }
+
+    private void replay(Consumer<TelemetryClient> task, Context context) {
+        try (Scope scope = context.makeCurrent()) {
+            task.accept(telemetryClient);
+        } catch (RuntimeException e) {
+            logger.debug("Dispatched telemetry call failed: {}", e.getMessage());
+        }
+    }
+
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            LockSupport.unpark(drainer);
+            // Let the drainer flush what is already queued
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("telemetry.dispatcher.queue.depth", this, TelemetryDispatcher::queueDepth)
+                .description("Application Insights calls waiting in the telemetry dispatcher queue")
+                .tag("service", serviceName)
+                .register(registry);
+        FunctionCounter.builder("telemetry.dispatcher.dispatched", dispatched, LongAdder::sum)
+                .description("Count of Application Insights calls replayed by the telemetry dispatcher")
+                .tag("service", serviceName)
+                .register(registry);
+        FunctionCounter.builder("telemetry.dispatcher.dropped", dropped, LongAdder::sum)
+                .description("Count of Application Insights calls dropped by the telemetry dispatcher")
+                .tag("service", serviceName)
+                .tag("policy", overflowPolicy.name().toLowerCase())
+                .register(registry);
+    }
+
+    public void bindTo(Meter meter) {
+        Attributes attributes = Attributes.of(SERVICE_NAME, serviceName);
+        meter.gaugeBuilder("telemetry.dispatcher.queue.depth")
+                .setDescription("Application Insights calls waiting in the telemetry dispatcher queue")
+                .setUnit("1")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(queueDepth(), attributes));
+        Attributes droppedAttributes = Attributes.of(SERVICE_NAME, serviceName,
+                OVERFLOW_POLICY, overflowPolicy.name().toLowerCase());
+        meter.counterBuilder("telemetry.dispatcher.dropped")
+                .setDescription("Count of Application Insights calls dropped by the telemetry dispatcher")
+                .setUnit("1")
+                .buildWithCallback(measurement -> measurement.record(dropped.sum(), droppedAttributes));
+    }
+
+    // One request's calls, each with the context it was dispatched in. Only the thread that opened
+    // the batch adds to or closes it, so it needs no synchronization.
+    private final class RequestBatch {
+
+        private final Thread owner = Thread.currentThread();
+        private final List<Context> callContexts = new ArrayList<>(8);
+        private final List<Consumer<TelemetryClient>> calls = new ArrayList<>(8);
+        private boolean closed;
+
+        // False once closed (e.g. for a call made while the scope is being unwound), or when the
+        // batch's context was carried to another thread
+        boolean add(Context context, Consumer<TelemetryClient> telemetry) {
+            if (closed || Thread.currentThread() != owner) {
+                return false;
+            }
+            callContexts.add(context);
+            calls.add(telemetry);
+            return true;
+        }
+
+        void close() {
+            closed = true;
+            if (calls.size() == 1) {
+                enqueue(callContexts.get(0), calls.get(0));
+            } else if (!calls.isEmpty()) {
+                enqueue(Context.root(), client -> {
+                    for (int i = 0; i < calls.size(); i++) {
+                        replay(calls.get(i), callContexts.get(i));
+                    }
+                    if (enabled) {
+                        // The drainer counts the slot as one call
+                        dispatched.add(calls.size() - 1);
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.observability.spike.common.concurrent;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Scope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextPropagatingExecutorTest {
+
+    private static final SpanContext CALLER = SpanContext.create(
+            "0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331", TraceFlags.getSampled(), TraceState.getDefault());
+
+    private final ExecutorService threads = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+        MDC.clear();
+    }
+
+    @Test
+    void virtualThreadRunsTaskWithCallersSpanAndMdc() throws Exception {
+        try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            Observed observed = submitUnderCaller(new ContextPropagatingExecutor(virtualThreads));
+
+            assertThat(observed.virtual()).isTrue();
+            assertThat(observed.spanId()).isEqualTo(CALLER.getSpanId());
+            assertThat(observed.traceId()).isEqualTo(CALLER.getTraceId());
+            assertThat(observed.orderId()).isEqualTo("42");
+        }
+    }
+
+    @Test
+    void pooledThreadGetsItsOwnContextBackAfterTheTask() throws Exception {
+        threads.submit(() -> MDC.put("worker", "pool")).get();
+
+        Observed observed = submitUnderCaller(new ContextPropagatingExecutor(threads));
+        Observed after = CompletableFuture.supplyAsync(Observed::current, threads).get();
+
+        assertThat(observed.spanId()).isEqualTo(CALLER.getSpanId());
+        assertThat(observed.orderId()).isEqualTo("42");
+        assertThat(after.spanId()).isEqualTo(SpanContext.getInvalid().getSpanId());
+        assertThat(after.orderId()).isNull();
+        assertThat(after.worker()).isEqualTo("pool");
+    }
+
+    private Observed submitUnderCaller(ContextPropagatingExecutor executor) throws Exception {
+        MDC.put("order_id", "42");
+        try (Scope scope = Span.wrap(CALLER).makeCurrent()) {
+            return CompletableFuture.supplyAsync(Observed::current, executor).get();
+        } finally {
+            MDC.remove("order_id");
+        }
+    }
+
+    private record Observed(boolean virtual, String traceId, String spanId, String orderId, String worker) {
+
+        static Observed current() {
+            SpanContext spanContext = Span.current().getSpanContext();
+            return new Observed(Thread.currentThread().isVirtual(), spanContext.getTraceId(), spanContext.getSpanId(),
+                    MDC.get("order_id"), MDC.get("worker"));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.observability.spike.common.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.read.ListAppender;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceLoggingTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private final LoggerContext context = new LoggerContext();
+    private final ListAppender<ILoggingEvent> events = new ListAppender<>();
+
+    @BeforeEach
+    void startEvents() {
+        context.setMDCAdapter(MDC.getMDCAdapter());
+        events.setContext(context);
+        events.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+        context.stop();
+    }
+
+    @Test
+    void unsampledInfoIsDeniedAndWarnIsKept() {
+        TraceSampledLogFilter filter = new TraceSampledLogFilter();
+        filter.setContext(context);
+        filter.setMode(TraceSampledLogFilter.SAMPLED_TRACES);
+        filter.start();
+        context.addTurboFilter(filter);
+        Logger logger = logger(events);
+
+        try (Scope scope = Span.wrap(spanContext("00f067aa0ba902b7", TraceFlags.getDefault())).makeCurrent()) {
+            logger.info("unsampled info");
+            logger.warn("unsampled warn");
+        }
+        logger.info("outside any span");
+
+        assertThat(events.list).extracting(ILoggingEvent::getFormattedMessage)
+                .containsExactly("unsampled warn", "outside any span");
+        assertThat(filter.deniedEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void infoIsKeptForRecordedTracesTheTailSamplerMayStillExport() {
+        TraceSampledLogFilter filter = new TraceSampledLogFilter();
+        filter.setContext(context);
+        filter.setMode(TraceSampledLogFilter.SAMPLED_TRACES);
+        filter.start();
+        context.addTurboFilter(filter);
+        Logger logger = logger(events);
+        // Records every span without sampling it, as order-service does ahead of the tail decision
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .setSampler(new Sampler() {
+                    @Override
+                    public SamplingResult shouldSample(Context parentContext, String traceId, String name,
+                                                       SpanKind spanKind, Attributes attributes, List<LinkData> parentLinks) {
+                        return SamplingResult.recordOnly();
+                    }
+
+                    @Override
+                    public String getDescription() {
+                        return "RecordOnly";
+                    }
+                })
+                .build();
+
+        Span span = tracerProvider.get("test").spanBuilder("order.request").startSpan();
+        try (Scope scope = span.makeCurrent()) {
+            assertThat(span.getSpanContext().isSampled()).isFalse();
+            logger.info("recorded info");
+        } finally {
+            span.end();
+            tracerProvider.close();
+        }
+
+        assertThat(events.list).extracting(ILoggingEvent::getFormattedMessage).containsExactly("recorded info");
+        assertThat(filter.deniedEvents()).isZero();
+    }
+
+    @Test
+    void spanIdsAreAddedToTheEventAndTheCallersMdcIsRestored() {
+        TraceContextAsyncAppender appender = new TraceContextAsyncAppender();
+        appender.setContext(context);
+        appender.addAppender(events);
+        appender.start();
+        Logger logger = logger(appender);
+
+        MDC.put(TraceContextAsyncAppender.TRACE_ID, "caller-trace");
+        try (Scope scope = Span.wrap(spanContext("b7ad6b7169203331", TraceFlags.getSampled())).makeCurrent()) {
+            logger.info("in span");
+        }
+        // Stopping drains the queue into the list appender
+        appender.stop();
+
+        assertThat(events.list).singleElement().satisfies(event -> {
+            assertThat(event.getMDCPropertyMap())
+                    .containsEntry(TraceContextAsyncAppender.TRACE_ID, TRACE_ID)
+                    .containsEntry(TraceContextAsyncAppender.SPAN_ID, "b7ad6b7169203331")
+                    .containsEntry(TraceContextAsyncAppender.TRACE_FLAGS, "01");
+        });
+        assertThat(MDC.get(TraceContextAsyncAppender.TRACE_ID)).isEqualTo("caller-trace");
+        assertThat(MDC.get(TraceContextAsyncAppender.SPAN_ID)).isNull();
+    }
+
+    private Logger logger(Appender<ILoggingEvent> appender) {
+        Logger logger = context.getLogger(TraceLoggingTest.class);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return logger;
+    }
+
+    private static SpanContext spanContext(String spanId, TraceFlags flags) {
+        return SpanContext.create(TRACE_ID, spanId, flags, TraceState.getDefault());
+    }
+}
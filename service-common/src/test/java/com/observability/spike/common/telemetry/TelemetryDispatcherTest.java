@@ -0,0 +1,125 @@
+package com.observability.spike.common.telemetry;
+
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.observability.spike.common.concurrent.ContextPropagatingExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Scope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelemetryDispatcherTest {
+
+    private static final SpanContext REQUEST = spanContext("00f067aa0ba902b7");
+    private static final SpanContext CHILD = spanContext("b7ad6b7169203331");
+
+    private final List<String> replayed = new CopyOnWriteArrayList<>();
+    private TelemetryDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void requestBatchTakesOneSlotAndReplaysEachCallInItsOwnContext() throws Exception {
+        dispatcher = new TelemetryDispatcher(new TelemetryClient(), "test-service", true, 16, "drop-oldest", 256);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        dispatcher.bindTo(registry);
+
+        try (Scope request = Span.wrap(REQUEST).makeCurrent(); Scope batch = dispatcher.openBatch()) {
+            dispatcher.dispatch(client -> recordCurrentSpan("OrderRequest"));
+            try (Scope child = Span.wrap(CHILD).makeCurrent()) {
+                dispatcher.dispatch(client -> recordCurrentSpan("CustomerEnrichmentSuccess"));
+            }
+            dispatcher.dispatch(client -> recordCurrentSpan("OrderFound"));
+            assertThat(dispatcher.queueDepth()).isZero();
+        }
+        assertThat(dispatcher.queueDepth()).isEqualTo(1);
+
+        dispatcher.start();
+        awaitReplayed(3);
+
+        assertThat(replayed).containsExactly(
+                "OrderRequest@" + REQUEST.getSpanId(),
+                "CustomerEnrichmentSuccess@" + CHILD.getSpanId(),
+                "OrderFound@" + REQUEST.getSpanId());
+        assertThat(registry.get("telemetry.dispatcher.dispatched").functionCounter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void callsFromOtherThreadsUnderTheBatchContextAreQueuedOnTheirOwn() throws Exception {
+        dispatcher = new TelemetryDispatcher(new TelemetryClient(), "test-service", true, 16, "drop-oldest", 256);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try (Scope request = Span.wrap(REQUEST).makeCurrent(); Scope batch = dispatcher.openBatch()) {
+            dispatcher.dispatch(client -> recordCurrentSpan("OrderRequest"));
+            // The task carries the batch's context to a pool thread
+            executor.submit(ContextPropagatingExecutor.wrap(
+                    () -> dispatcher.dispatch(client -> recordCurrentSpan("CustomerCall")))).get();
+            assertThat(dispatcher.queueDepth()).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(dispatcher.queueDepth()).isEqualTo(2);
+
+        dispatcher.start();
+        awaitReplayed(2);
+        assertThat(replayed).containsExactly("CustomerCall@" + REQUEST.getSpanId(), "OrderRequest@" + REQUEST.getSpanId());
+    }
+
+    @Test
+    void parkedDrainerIsWokenByTheNextCall() throws Exception {
+        dispatcher = new TelemetryDispatcher(new TelemetryClient(), "test-service", true, 16, "drop-oldest", 256);
+        dispatcher.start();
+        // Long enough for the drainer to find the queue empty and park
+        Thread.sleep(50);
+
+        dispatcher.dispatch(client -> recordCurrentSpan("event"));
+
+        awaitReplayed(1);
+        assertThat(replayed).hasSize(1);
+    }
+
+    @Test
+    void dropNewestCountsRejectedCalls() throws Exception {
+        dispatcher = new TelemetryDispatcher(new TelemetryClient(), "test-service", true, 4, "drop-newest", 256);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        dispatcher.bindTo(registry);
+
+        for (int i = 0; i < 7; i++) {
+            dispatcher.dispatch(client -> recordCurrentSpan("event"));
+        }
+
+        assertThat(dispatcher.queueDepth()).isEqualTo(4);
+        assertThat(registry.get("telemetry.dispatcher.dropped").tag("policy", "drop_newest").functionCounter().count())
+                .isEqualTo(3);
+    }
+
+    private void recordCurrentSpan(String event) {
+        replayed.add(event + "@" + Span.current().getSpanContext().getSpanId());
+    }
+
+    private void awaitReplayed(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (replayed.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static SpanContext spanContext(String spanId) {
+        return SpanContext.create("4bf92f3577b34da6a3ce929d0e0e4736", spanId, TraceFlags.getSampled(),
+                TraceState.getDefault());
+    }
+}
@@ -101,6 +101,7 @@ echo "   2. Set the environment variable in each terminal before starting the se
 echo "   3. Restart the services to pick up the new configuration"
 echo ""
 echo "💡 Quick start commands:"
+echo "   # Once, from the repository root: mvn -pl service-common install -DskipTests"
 echo "   # Terminal 1 - Customer Service"
 echo "   export APPLICATIONINSIGHTS_CONNECTION_STRING=\"$CUSTOMER_CONNECTION_STRING\""
 echo "   cd customer-service-simple && mvn spring-boot:run"
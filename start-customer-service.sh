@@ -1,8 +1,12 @@
 #!/bin/bash
 
 # Start Customer Service with Application Insights Java Agent
+# Usage: ./start-customer-service.sh [instances]
+#   With more than one instance, they run in the background on consecutive ports from 8081.
 echo "Starting Customer Service with Application Insights Java Agent..."
 
+INSTANCES=${1:-${CUSTOMER_INSTANCES:-1}}
+
 # Check if connection string is set
 if [ -z "$APPLICATIONINSIGHTS_CONNECTION_STRING" ]; then
     echo "❌ APPLICATIONINSIGHTS_CONNECTION_STRING environment variable is not set!"
@@ -11,10 +15,38 @@ if [ -z "$APPLICATIONINSIGHTS_CONNECTION_STRING" ]; then
 fi
 
 echo "✅ Connection string is set"
-echo "🚀 Starting customer service on port 8081..."
+
+# The services depend on service-common, which spring-boot:run resolves from the local repository
+mvn -q -B -pl service-common install -DskipTests || exit 1
 
 cd customer-service-simple
 
-# Start with Application Insights Java Agent
-mvn spring-boot:run \
-  -Dspring-boot.run.jvmArguments="-javaagent:../ai-agent/applicationinsights-agent-3.4.19.jar -Dapplicationinsights.configuration.file=../ai-agent/applicationinsights-customer.json"
+AGENT_ARGUMENTS="-javaagent:../ai-agent/applicationinsights-agent-3.4.19.jar -Dapplicationinsights.configuration.file=../ai-agent/applicationinsights-customer.json"
+
+if [ "$INSTANCES" -le 1 ]; then
+    echo "🚀 Starting customer service on port 8081..."
+
+    # Start with Application Insights Java Agent
+    mvn spring-boot:run \
+      -Dspring-boot.run.jvmArguments="$AGENT_ARGUMENTS"
+    exit $?
+fi
+
+BASE_URLS=""
+for i in $(seq 0 $((INSTANCES - 1))); do
+    PORT=$((8081 + i))
+    echo "🚀 Starting customer service instance $((i + 1))/$INSTANCES on port $PORT..."
+
+    mvn spring-boot:run \
+      -Dspring-boot.run.jvmArguments="$AGENT_ARGUMENTS" \
+      -Dspring-boot.run.arguments="--server.port=$PORT" \
+      > ../customer-service-$PORT.log 2>&1 &
+
+    BASE_URLS="${BASE_URLS:+$BASE_URLS,}http://localhost:$PORT"
+done
+
+echo ""
+echo "📝 Logs: customer-service-<port>.log"
+echo "👉 Start order service against all instances with:"
+echo "   CUSTOMER_INSTANCES=$INSTANCES ./start-order-service.sh"
+echo "   (customer-service.base-urls=$BASE_URLS)"
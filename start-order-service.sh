@@ -1,8 +1,12 @@
 #!/bin/bash
 
 # Start Order Service with Application Insights Java Agent
+# Usage: CUSTOMER_INSTANCES=3 ./start-order-service.sh   (balances over customer-service on ports 8081..8083)
+#        SPRING_PROFILES_ACTIVE=metrics-bridge ./start-order-service.sh   (Micrometer exported through the OTel SDK)
 echo "Starting Order Service with Application Insights Java Agent..."
 
+CUSTOMER_INSTANCES=${CUSTOMER_INSTANCES:-1}
+
 # Check if connection string is set
 if [ -z "$APPLICATIONINSIGHTS_CONNECTION_STRING" ]; then
     echo "❌ APPLICATIONINSIGHTS_CONNECTION_STRING environment variable is not set!"
@@ -13,8 +17,24 @@ fi
 echo "✅ Connection string is set"
 echo "🚀 Starting order service on port 8080..."
 
+# The services depend on service-common, which spring-boot:run resolves from the local repository
+mvn -q -B -pl service-common install -DskipTests || exit 1
+
 cd order-service-simple
 
+BASE_URLS=""
+for i in $(seq 0 $((CUSTOMER_INSTANCES - 1))); do
+    BASE_URLS="${BASE_URLS:+$BASE_URLS,}http://localhost:$((8081 + i))"
+done
+echo "🔀 Customer service endpoints: $BASE_URLS"
+
+# The bridged pipeline exports Micrometer meters itself, so the agent must not capture them as well
+if [[ ",$SPRING_PROFILES_ACTIVE," == *",metrics-bridge,"* ]]; then
+    export APPLICATIONINSIGHTS_INSTRUMENTATION_MICROMETER_ENABLED=false
+    echo "📏 Micrometer bridged into the OTel SDK; agent Micrometer capture disabled"
+fi
+
 # Start with Application Insights Java Agent
 mvn spring-boot:run \
-  -Dspring-boot.run.jvmArguments="-javaagent:../ai-agent/applicationinsights-agent-3.4.19.jar -Dapplicationinsights.configuration.file=../ai-agent/applicationinsights-order.json"
+  -Dspring-boot.run.jvmArguments="-javaagent:../ai-agent/applicationinsights-agent-3.4.19.jar -Dapplicationinsights.configuration.file=../ai-agent/applicationinsights-order.json" \
+  -Dspring-boot.run.arguments="--customer-service.base-urls=$BASE_URLS"
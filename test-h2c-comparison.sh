@@ -0,0 +1,11 @@
+#!/bin/bash
+
+# Compare HTTP/1.1 vs h2c between order-service and customer-service
+# Throughput and peak connection counts for /api/orders/{id} -> /api/customers/{id}
+#
+# Usage: ./test-h2c-comparison.sh [total-requests] [concurrency]
+
+export TOTAL_REQUESTS=${1:-2000}
+export CONCURRENCY=${2:-200}
+
+"$(dirname "$0")/test-mode-comparison.sh" default h2c
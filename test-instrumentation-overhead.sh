@@ -0,0 +1,199 @@
+#!/bin/bash
+
+# Instrumentation overhead comparison: the same open-model load against both services in each
+# instrumentation configuration, with all telemetry exported to a local stub ingestion endpoint.
+#
+#   none   no agent, OTel SDK disabled, application Micrometer meters disabled
+#   agent  Application Insights agent on both services (TelemetryClient + Micrometer + auto-instrumentation)
+#   sdk    manual OpenTelemetrySdk with the Azure Monitor exporter, no agent
+#   both   agent and SDK together (the current start-*.sh setup)
+#
+# For order-service it measures startup time, CPU per request, allocation per request, heap
+# after GC, latency percentiles and the telemetry items that reached the stub, and writes a
+# comparison report to $RESULTS_DIR/report.md.
+#
+# Usage: ./test-instrumentation-overhead.sh                       (all four configurations)
+#        RATE=200 DURATION_SECONDS=60 ./test-instrumentation-overhead.sh none sdk
+
+RATE=${RATE:-100}
+DURATION_SECONDS=${DURATION_SECONDS:-30}
+WARMUP_SECONDS=${WARMUP_SECONDS:-15}
+MIX=${MIX:-existing=90,missing=10}
+STUB_PORT=${STUB_PORT:-4319}
+JVM_OPTIONS=${JVM_OPTIONS:--Xms512m -Xmx512m}
+RESULTS_DIR=${RESULTS_DIR:-target/overhead-$(date +%Y%m%d-%H%M%S)}
+AGENT_JAR=ai-agent/applicationinsights-agent-3.4.19.jar
+
+CONFIGURATIONS=${*:-none agent sdk both}
+STUB_CONNECTION_STRING="InstrumentationKey=00000000-0000-0000-0000-000000000000;IngestionEndpoint=http://localhost:$STUB_PORT/;LiveEndpoint=http://localhost:$STUB_PORT/"
+
+# Every order goes to customer-service
+ORDER_RUN_ARGUMENTS="--customer-service.cache.enabled=false"
+
+# JVM meters stay on everywhere: allocation and heap are read from them
+NO_METRICS_ARGUMENTS="--management.metrics.enable.all=false --management.metrics.enable.jvm=true"
+
+wait_for() {
+    local url=$1
+    for i in $(seq 1 60); do
+        if curl -s -f "$url" > /dev/null 2>&1; then
+            return 0
+        fi
+        sleep 1
+    done
+    return 1
+}
+
+stop_services() {
+    kill $ORDER_PID $CUSTOMER_PID $STUB_PID 2>/dev/null
+    wait $ORDER_PID $CUSTOMER_PID $STUB_PID 2>/dev/null
+}
+
+# utime + stime of a process, in milliseconds
+cpu_millis() {
+    awk -v hz="$(getconf CLK_TCK)" '{ print ($14 + $15) * 1000 / hz }' "/proc/$1/stat"
+}
+
+# First measurement of an actuator metric on order-service
+metric_value() {
+    curl -s "http://localhost:8080/actuator/metrics/$1" | grep -o '"value":[0-9.E+-]*' | head -1 | cut -d: -f2
+}
+
+summary_field() {
+    grep -o "$1=[^ ]*" "$2" | tail -1 | cut -d= -f2
+}
+
+load() {
+    java -cp "$LOADGEN_CLASSPATH" com.observability.spike.loadgen.LoadGeneratorMain \
+        --rate="$RATE" --mix="$MIX" --warmup-seconds=0 "$@"
+}
+
+measure() {
+    local config=$1
+    local agent_options="" order_arguments="$ORDER_RUN_ARGUMENTS" connection_string=""
+
+    case $config in
+        none)  order_arguments="$order_arguments --otel.sdk.disabled=true $NO_METRICS_ARGUMENTS" ;;
+        agent) order_arguments="$order_arguments --otel.sdk.disabled=true"
+               connection_string=$STUB_CONNECTION_STRING ;;
+        sdk)   connection_string=$STUB_CONNECTION_STRING ;;
+        both)  connection_string=$STUB_CONNECTION_STRING ;;
+        *)     echo "❌ Unknown configuration: $config"; return ;;
+    esac
+    if [ "$config" = "agent" ] || [ "$config" = "both" ]; then
+        if [ ! -f "$AGENT_JAR" ]; then
+            echo "⚠️  Skipping $config: $AGENT_JAR not found"
+            return
+        fi
+        agent_options="-javaagent:$AGENT_JAR"
+    fi
+
+    echo "🔧 Starting services with instrumentation: $config"
+    java -cp load-generator/target/classes com.observability.spike.loadgen.StubIngestionServer "$STUB_PORT" \
+        > "$RESULTS_DIR/stub-$config.log" 2>&1 &
+    STUB_PID=$!
+
+    # Statsbeat would otherwise report to Azure directly
+    export APPLICATIONINSIGHTS_STATSBEAT_DISABLED=true
+    if [ -n "$connection_string" ]; then
+        export APPLICATIONINSIGHTS_CONNECTION_STRING=$connection_string
+    else
+        unset APPLICATIONINSIGHTS_CONNECTION_STRING
+    fi
+
+    java $JVM_OPTIONS ${agent_options:+$agent_options -Dapplicationinsights.configuration.file=ai-agent/applicationinsights-customer.json} \
+        -jar customer-service-simple/target/customer-service-simple-1.0.0.jar \
+        > "$RESULTS_DIR/customer-service-$config.log" 2>&1 &
+    CUSTOMER_PID=$!
+
+    java $JVM_OPTIONS ${agent_options:+$agent_options -Dapplicationinsights.configuration.file=ai-agent/applicationinsights-order.json} \
+        -jar order-service-simple/target/order-service-simple-1.0.0-exec.jar $order_arguments \
+        > "$RESULTS_DIR/order-service-$config.log" 2>&1 &
+    ORDER_PID=$!
+
+    if ! wait_for http://localhost:8081/api/customers/health || ! wait_for http://localhost:8080/api/orders/health; then
+        echo "❌ Services did not start with $config, see $RESULTS_DIR/*-$config.log"
+        stop_services
+        return
+    fi
+    local startup
+    startup=$(grep -o 'Started OrderServiceApplication in [0-9.]* seconds' "$RESULTS_DIR/order-service-$config.log" | awk '{ print $4 }')
+
+    echo "🔥 Warming up for ${WARMUP_SECONDS}s..."
+    load --duration-seconds="$WARMUP_SECONDS" > /dev/null
+
+    # Collect garbage on both sides of the run so the allocation counter is up to date
+    jcmd "$ORDER_PID" GC.run > /dev/null
+    local cpu_before allocated_before
+    cpu_before=$(cpu_millis "$ORDER_PID")
+    allocated_before=$(metric_value jvm.gc.memory.allocated)
+
+    echo "🚀 Measuring ${RATE} req/s for ${DURATION_SECONDS}s..."
+    load --duration-seconds="$DURATION_SECONDS" --summary-file="$RESULTS_DIR/load-$config.txt" \
+        --hgrm-dir="$RESULTS_DIR/hgrm-$config" > "$RESULTS_DIR/load-$config.log"
+
+    local cpu_after allocated_after heap
+    cpu_after=$(cpu_millis "$ORDER_PID")
+    jcmd "$ORDER_PID" GC.run > /dev/null
+    allocated_after=$(metric_value jvm.gc.memory.allocated)
+    heap=$(metric_value "jvm.memory.used?tag=area:heap")
+
+    # Let the batch exporters flush before reading what reached the stub
+    sleep "${EXPORT_FLUSH_SECONDS:-10}"
+    curl -s "http://localhost:$STUB_PORT/stats" > "$RESULTS_DIR/ingestion-$config.txt"
+
+    local summary="$RESULTS_DIR/load-$config.txt" completed items types
+    completed=$(summary_field completed "$summary")
+    items=$(grep '^items\.' "$RESULTS_DIR/ingestion-$config.txt" | cut -d= -f2 | awk '{ total += $1 } END { print total + 0 }')
+    types=$(grep '^items\.' "$RESULTS_DIR/ingestion-$config.txt" | sed 's/^items\.//; s/Data=/=/' | paste -sd ' ' -)
+
+    awk -v config="$config" -v startup="${startup:-?}" -v completed="$completed" \
+        -v cpu="$(awk -v a="$cpu_after" -v b="$cpu_before" 'BEGIN { print a - b }')" \
+        -v allocated="$(awk -v a="$allocated_after" -v b="$allocated_before" 'BEGIN { print a - b }')" \
+        -v heap="$heap" -v items="$items" -v types="${types:-none}" -v warmup_requests="$((RATE * WARMUP_SECONDS))" \
+        -v throughput="$(summary_field throughput "$summary")" -v p50="$(summary_field p50_ms "$summary")" \
+        -v p99="$(summary_field p99_ms "$summary")" -v p999="$(summary_field p999_ms "$summary")" \
+        -v bytes="$(grep '^track.bytes=' "$RESULTS_DIR/ingestion-$config.txt" | cut -d= -f2)" \
+        'BEGIN {
+            per = completed > 0 ? completed : 1
+            printf "| %s | %s | %.2f | %.1f | %.1f | %s | %s | %s | %s | %.2f | %.1f | %s |\n",
+                config, startup, cpu / per, allocated / per / 1024, heap / 1048576, throughput,
+                p50, p99, p999, items / (completed + warmup_requests), bytes / 1024, types
+        }' >> "$RESULTS_DIR/report.md"
+
+    stop_services
+    sleep 2
+}
+
+if [ ! -f customer-service-simple/target/customer-service-simple-1.0.0.jar ] \
+    || [ ! -f order-service-simple/target/order-service-simple-1.0.0-exec.jar ] || [ -n "$REBUILD" ]; then
+    echo "📦 Building services and load generator..."
+    mvn -q -B install -DskipTests || exit 1
+    # Executable jars, so each JVM is started (and measured) directly rather than under Maven
+    mvn -q -B -pl customer-service-simple,order-service-simple package spring-boot:repackage -DskipTests || exit 1
+fi
+
+mkdir -p "$RESULTS_DIR"
+mvn -q -B -pl load-generator dependency:build-classpath -Dmdep.outputFile="$RESULTS_DIR/classpath.txt" || exit 1
+LOADGEN_CLASSPATH="load-generator/target/classes:$(cat "$RESULTS_DIR/classpath.txt")"
+
+{
+    echo "# Instrumentation overhead: $RATE req/s for ${DURATION_SECONDS}s, mix $MIX, JVM $JVM_OPTIONS"
+    echo ""
+    echo "Order-service process. CPU and allocation per completed request over the measured run; heap after a full GC;"
+    echo "latency in ms from the scheduled start (coordinated-omission corrected); telemetry items that reached the stub"
+    echo "per request over the whole run including warm-up."
+    echo ""
+    echo "| config | startup s | CPU ms/req | alloc KB/req | heap MB | req/s | p50 | p99 | p99.9 | items/req | ingested KB | items by type |"
+    echo "|---|---|---|---|---|---|---|---|---|---|---|---|"
+} > "$RESULTS_DIR/report.md"
+
+trap stop_services EXIT
+for config in $CONFIGURATIONS; do
+    measure "$config"
+done
+
+echo ""
+cat "$RESULTS_DIR/report.md"
+echo ""
+echo "📝 Report, service logs and percentile distributions: $RESULTS_DIR"
@@ -0,0 +1,143 @@
+#!/bin/bash
+
+# Compare execution profiles side by side under identical load
+# Runs both services locally (no Application Insights agent) once per profile and drives
+# /api/orders/{id} -> /api/customers/{id} at high concurrency.
+#
+# Usage: TOTAL_REQUESTS=2000 CONCURRENCY=200 ./test-mode-comparison.sh default h2c reactive
+#        CUSTOMER_INSTANCES=3 ./test-mode-comparison.sh default   (balance over ports 8081..8083)
+
+TOTAL_REQUESTS=${TOTAL_REQUESTS:-2000}
+CONCURRENCY=${CONCURRENCY:-200}
+CUSTOMER_INSTANCES=${CUSTOMER_INSTANCES:-1}
+LAST_CUSTOMER_PORT=$((8081 + CUSTOMER_INSTANCES - 1))
+
+if [ $# -eq 0 ]; then
+    echo "Usage: $0 <profile> [<profile>...]   (use 'default' for the baseline)"
+    exit 1
+fi
+
+# Cache and batching would hide the customer call, so every order goes to customer-service
+RUN_ARGUMENTS="--customer-service.cache.enabled=false --customer-service.batch.enabled=false"
+
+# Load shedding would mix rejections into the transport comparison
+CUSTOMER_RUN_ARGUMENTS="--concurrency-limit.enabled=false"
+
+CUSTOMER_BASE_URLS=""
+for port in $(seq 8081 "$LAST_CUSTOMER_PORT"); do
+    CUSTOMER_BASE_URLS="${CUSTOMER_BASE_URLS:+$CUSTOMER_BASE_URLS,}http://localhost:$port"
+done
+RUN_ARGUMENTS="$RUN_ARGUMENTS --customer-service.base-urls=$CUSTOMER_BASE_URLS"
+
+wait_for() {
+    local url=$1
+    for i in $(seq 1 60); do
+        if curl -s -f "$url" > /dev/null 2>&1; then
+            return 0
+        fi
+        sleep 1
+    done
+    return 1
+}
+
+start_services() {
+    local profile=$1
+
+    CUSTOMER_PIDS=""
+    cd customer-service-simple
+    for port in $(seq 8081 "$LAST_CUSTOMER_PORT"); do
+        mvn -q spring-boot:run -Dspring-boot.run.profiles="$profile" \
+          -Dspring-boot.run.arguments="--server.port=$port $CUSTOMER_RUN_ARGUMENTS" \
+          > ../customer-service-$profile-$port.log 2>&1 &
+        CUSTOMER_PIDS="$CUSTOMER_PIDS $!"
+    done
+    cd ..
+
+    cd order-service-simple
+    mvn -q spring-boot:run -Dspring-boot.run.profiles="$profile" \
+      -Dspring-boot.run.arguments="$RUN_ARGUMENTS" \
+      > ../order-service-$profile.log 2>&1 &
+    ORDER_PID=$!
+    cd ..
+
+    for port in $(seq 8081 "$LAST_CUSTOMER_PORT"); do
+        if ! wait_for "http://localhost:$port/api/customers/health"; then
+            echo "❌ Customer service on port $port did not start in $profile mode, see customer-service-$profile-$port.log"
+            stop_services
+            exit 1
+        fi
+    done
+    if ! wait_for http://localhost:8080/api/orders/health; then
+        echo "❌ Order service did not start in $profile mode, see order-service-$profile.log"
+        stop_services
+        exit 1
+    fi
+}
+
+stop_services() {
+    kill $ORDER_PID $CUSTOMER_PIDS 2>/dev/null
+    pkill -f "order-service-simple" 2>/dev/null
+    pkill -f "customer-service-simple" 2>/dev/null
+    sleep 5
+}
+
+run_load() {
+    for i in $(seq 1 "$TOTAL_REQUESTS"); do
+        echo "ORD-00$(( i % 5 + 1 ))"
+    done | xargs -P "$CONCURRENCY" -I{} curl -s -o /dev/null -w '%{http_code}\n' \
+        "http://localhost:8080/api/orders/{}"
+}
+
+measure() {
+    local profile=$1
+
+    echo "🔧 Starting services in $profile mode..."
+    start_services "$profile"
+
+    # Warm up JIT and connections
+    TOTAL_REQUESTS=200 run_load > /dev/null
+
+    local connections_file
+    connections_file=$(mktemp)
+
+    local start end
+    start=$(date +%s.%N)
+    run_load > "$RESULTS_DIR/$profile.codes" &
+    local load_pid=$!
+
+    # Sample established connections from order-service to customer-service while loaded
+    while kill -0 $load_pid 2>/dev/null; do
+        ss -Htn state established "( dport >= :8081 and dport <= :$LAST_CUSTOMER_PORT )" | wc -l >> "$connections_file"
+        sleep 0.2
+    done
+    wait $load_pid
+    end=$(date +%s.%N)
+
+    local elapsed ok peak
+    elapsed=$(echo "$end - $start" | bc)
+    ok=$(grep -c '^200$' "$RESULTS_DIR/$profile.codes")
+    peak=$(sort -n "$connections_file" | tail -1)
+    rm -f "$connections_file"
+
+    printf "%-16s %10s %12.2f %12.1f %16s\n" "$profile" "$ok/$TOTAL_REQUESTS" "$elapsed" \
+        "$(echo "$ok / $elapsed" | bc -l)" "${peak:-0}" >> "$RESULTS_DIR/summary.txt"
+
+    stop_services
+}
+
+RESULTS_DIR=$(mktemp -d)
+printf "%-16s %10s %12s %12s %16s\n" "profile" "ok" "seconds" "req/s" "peak-conns" > "$RESULTS_DIR/summary.txt"
+
+# The services depend on service-common, which spring-boot:run resolves from the local repository
+mvn -q -B -pl service-common install -DskipTests || exit 1
+
+echo "=== Profile comparison: $TOTAL_REQUESTS requests, concurrency $CONCURRENCY, $CUSTOMER_INSTANCES customer instance(s) ==="
+for profile in "$@"; do
+    measure "$profile"
+done
+
+echo ""
+cat "$RESULTS_DIR/summary.txt"
+echo ""
+echo "📝 Service logs: customer-service-<profile>-<port>.log, order-service-<profile>.log"
+rm -rf "$RESULTS_DIR"
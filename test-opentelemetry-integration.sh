@@ -61,7 +61,7 @@ echo ""
 
 echo "🔍 What to verify in Azure Application Insights:"
 echo "1. Custom events: OrderLookup, CustomerEnrichmentSuccess, etc."
-echo "2. Metrics: customer_enrichment_success, order_processing_operations"
+echo "2. Metrics: span.calls, span.duration (by span.name and status.code)"
 echo "3. Traces: Distributed traces showing order → customer service calls"
 echo "4. Dependencies: HTTP calls to customer service"
 echo "5. Exceptions: Any errors during processing"
@@ -13,6 +13,9 @@ export APPLICATIONINSIGHTS_CONNECTION_STRING="InstrumentationKey=00000000-0000-0
 echo "✅ Mock connection string set for testing"
 echo "🔧 Starting customer service..."
 
+# The services depend on service-common, which spring-boot:run resolves from the local repository
+mvn -q -B -pl service-common install -DskipTests || exit 1
+
 # Start customer service in background
 cd customer-service-simple
 mvn spring-boot:run \